@@ -0,0 +1,110 @@
+package tvtrader.orders;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the OrderLineParser with the regex and Scanner based parser it
+ * replaced.<br>
+ * Every invocation parses the full set of subject lines, a mix of orders and
+ * other mails like they end up in the inbox.<br>
+ * <br>
+ * Run with: mvn -P benchmark test-compile exec:java
+ * -Dexec.args="OrderLineParserBenchmark -prof gc"<br>
+ *
+ * @author Wouter
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderLineParserBenchmark {
+	private static final String[] SUBJECT_LINES = {
+			"TradingView Alert: BUY_BITTREX_DEFAULTBTC_ETH",
+			"TradingView Alert: SELL_BITTREX_DEFAULTBTC_NEO",
+			"TradingView Alert: sell_BITTREX_ALTACCOUNT_XRP\r\n",
+			"TradingView Alert: STOPLOSS_BITTREX_DEFAULTBTC_ADA",
+			"Re: TradingView Alert: BUY_BITTREX_DEFAULTBTC_OMG_15m",
+			"TradingView Alert: crossing 0.00012 on BTC-ETH",
+			"Your TradingView subscription will be renewed soon" };
+
+	private OrderLineParser parser;
+	private RegexOrderLineParser regexParser;
+
+	@Setup
+	public void setup() {
+		parser = new OrderLineParser();
+		regexParser = new RegexOrderLineParser();
+	}
+
+	@Benchmark
+	public void singlePass(Blackhole blackhole) {
+		for (String subject : SUBJECT_LINES) {
+			blackhole.consume(parser.parseOrderLine(subject));
+		}
+	}
+
+	@Benchmark
+	public void regexAndScanner(Blackhole blackhole) {
+		for (String subject : SUBJECT_LINES) {
+			blackhole.consume(regexParser.parseOrderLine(subject));
+		}
+	}
+
+	/**
+	 * The previous implementation of the OrderLineParser, without logging.<br>
+	 */
+	static class RegexOrderLineParser {
+		private static final String ORDERLINE_PATTERN = "\\w*_\\w*_\\w*_\\w*$";
+		private static final String LIMIT_BUY = "BUY";
+		private static final String LIMIT_SELL = "SELL";
+		private static final String SUBJECT_DELIMITER = "_";
+
+		private Pattern pattern = Pattern.compile(ORDERLINE_PATTERN);
+
+		Optional<MarketOrder> parseOrderLine(String subject) {
+			Matcher matcher = pattern.matcher(subject);
+
+			if (matcher.find()) {
+				String orderLine = subject.substring(matcher.start(), matcher.end());
+
+				try (Scanner scanner = new Scanner(orderLine)) {
+					scanner.useDelimiter(SUBJECT_DELIMITER);
+
+					OrderType orderType = determineOrderType(scanner.next().trim());
+					MarketOrder order = new MarketOrder();
+					order.setExchange(scanner.next());
+					order.setAccount(scanner.next());
+					order.setAltCoin(scanner.next());
+					order.setOrderType(orderType);
+
+					return Optional.of(order);
+				}
+			}
+
+			return Optional.empty();
+		}
+
+		private OrderType determineOrderType(String type) {
+			if (type.equalsIgnoreCase(LIMIT_BUY)) {
+				return OrderType.LIMIT_BUY;
+			} else if (type.equalsIgnoreCase(LIMIT_SELL)) {
+				return OrderType.LIMIT_SELL;
+			} else {
+				return OrderType.UNSUPPORTED;
+			}
+		}
+	}
+
+}
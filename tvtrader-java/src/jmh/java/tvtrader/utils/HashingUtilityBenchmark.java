@@ -0,0 +1,83 @@
+package tvtrader.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the HashingUtility with the implementation it replaced, which
+ * looked up and initialized a Mac and formatted the hex string with a
+ * Formatter on every call.<br>
+ * Every invocation signs a Bittrex balances url, like every private call
+ * does.<br>
+ * <br>
+ * Run with: mvn -P benchmark test-compile exec:java
+ * -Dexec.args="HashingUtilityBenchmark -prof gc"<br>
+ *
+ * @author Wouter
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashingUtilityBenchmark {
+	private static final String URL = "https://bittrex.com/api/v1.1/account/getbalances"
+			+ "?apikey=0123456789abcdef0123456789abcdef&nonce=1529000000000";
+	private static final String SECRET = "fedcba9876543210fedcba9876543210";
+
+	private HashingUtility hasher;
+	private UncachedHashingUtility uncachedHasher;
+
+	@Setup
+	public void setup() {
+		hasher = new HashingUtility(Encoding.SHA512);
+		uncachedHasher = new UncachedHashingUtility(Encoding.SHA512);
+	}
+
+	@Benchmark
+	public String cachedMac() {
+		return hasher.calculateSignature(URL, SECRET);
+	}
+
+	@Benchmark
+	public String uncachedMac() throws Exception {
+		return uncachedHasher.calculateSignature(URL, SECRET);
+	}
+
+	/**
+	 * The previous implementation of the HashingUtility.<br>
+	 */
+	static class UncachedHashingUtility {
+		private String encoding;
+
+		UncachedHashingUtility(Encoding encoding) {
+			this.encoding = encoding.getEncoding();
+		}
+
+		String calculateSignature(String data, String key) throws Exception {
+			SecretKeySpec signingKey = new SecretKeySpec(key.getBytes(), encoding);
+
+			Mac mac = Mac.getInstance(encoding);
+			mac.init(signingKey);
+
+			return toHexString(mac.doFinal(data.getBytes()));
+		}
+
+		private String toHexString(byte[] bytes) {
+			try (Formatter formatter = new Formatter();) {
+				for (byte b : bytes) {
+					formatter.format("%02x", b);
+				}
+
+				return formatter.toString();
+			}
+		}
+	}
+
+}
@@ -3,7 +3,9 @@ package tvtrader.application;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import tvtrader.properties.PropertiesFileLoader;
+import tvtrader.services.ConfigurationService;
 import tvtrader.services.JobService;
+import tvtrader.services.WebService;
 
 @Component
 public class ConsoleRunner {
@@ -11,6 +13,8 @@ public class ConsoleRunner {
 	
 	@Autowired private PropertiesFileLoader propertiesFileLoader;
 	@Autowired private JobService jobService;
+	@Autowired private ConfigurationService configurationService;
+	@Autowired private WebService webService;
 
 	public void run(String... args) {
 		if (args.length != 2) {
@@ -30,6 +34,7 @@ public class ConsoleRunner {
 		}
 
 		if (successful) {
+			webService.setUpClient(configurationService.getHttpClientConfiguration());
 			jobService.startJobs();
 		}
 	}
@@ -14,11 +14,18 @@ import tvtrader.exchange.apidata.Order;
 import tvtrader.exchange.apidata.Ticker;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.request.RequestBudget;
+import tvtrader.request.RetryPolicy;
 import tvtrader.request.Url;
 import tvtrader.services.WebService;
+import tvtrader.utils.Futures;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Representation of Bittrex.<br>
@@ -44,12 +51,15 @@ public class Bittrex implements Exchange {
 	private Api api;
 	private JsonParser parser;
 	private WebService webService;
+	private RetryPolicy retryPolicy;
 
 	@Autowired
-	public Bittrex(@Qualifier("BittrexApi") Api api, @Qualifier("BittrexParser") JsonParser parser, WebService webService) {
+	public Bittrex(@Qualifier("BittrexApi") Api api, @Qualifier("BittrexParser") JsonParser parser, WebService webService,
+			RetryPolicy retryPolicy) {
 		this.api = api;
 		this.parser = parser;
 		this.webService = webService;
+		this.retryPolicy = retryPolicy;
 	}
 
 	@Override
@@ -79,90 +89,185 @@ public class Bittrex implements Exchange {
 
 	@Override
 	public Map<String, Ticker> getTickers() throws ExchangeException {
-		Url url = api.getMarketSummaries();
+		return Futures.await(getTickersAsync());
+	}
 
-		try {
-			String response = webService.sendRequest(url);
-			log.debug(RECEIVED_RESPONSE, response);
-			return parser.parseMarketSummaries(response);
-		} catch (ExchangeException e) {
-			throw new ExchangeException("Couldn't get tickers from " + getName(), e);
-		}
+	@Override
+	public CompletableFuture<Map<String, Ticker>> getTickersAsync() {
+		return getTickersAsync(market -> true);
+	}
+
+	@Override
+	public Map<String, Ticker> getTickers(Predicate<String> marketFilter) throws ExchangeException {
+		return Futures.await(getTickersAsync(marketFilter));
+	}
+
+	/**
+	 * The market summaries are the largest response by far, so they are parsed
+	 * while they are read instead of being read into a String first.<br>
+	 */
+	@Override
+	public CompletableFuture<Map<String, Ticker>> getTickersAsync(Predicate<String> marketFilter) {
+		RequestBudget budget = RequestBudget.refresh(NAME);
+
+		CompletableFuture<Map<String, Ticker>> tickers = retryPolicy.retry(() -> webService.streamRequestAsync(
+				api.getMarketSummaries(), budget, body -> parser.parseMarketSummaries(body, marketFilter)));
+
+		return withMessage(tickers.thenApply(result -> {
+			log.debug("Received {} tickers.", result.size());
+			return result;
+		}), "Couldn't get tickers from " + getName());
 	}
 
 	@Override
 	public Map<String, Double> getBalances(ApiCredentials credentials) throws ExchangeException {
-		try {
-			Url url = api.getBalances(credentials);
-			String response = webService.sendRequest(url);
-			log.debug(RECEIVED_RESPONSE, response);
+		return Futures.await(getBalancesAsync(credentials));
+	}
+
+	@Override
+	public CompletableFuture<Map<String, Double>> getBalancesAsync(ApiCredentials credentials) {
+		RequestBudget budget = RequestBudget.refresh(NAME, credentials.getKey());
 
-			return parser.parseBalances(response);
-		} catch (ExchangeException e) {
-			throw new ExchangeException("Couldn't get balances for " + credentials.getKey() + " at " + getName(), e);
-		}
+		return withMessage(read(() -> api.getBalances(credentials), budget, parser::parseBalances),
+				"Couldn't get balances for " + credentials.getKey() + " at " + getName());
 	}
 
 	@Override
 	public boolean placeOrder(MarketOrder order, ApiCredentials credentials) {
-		try {
-			Url url = api.placeOrder(order, credentials);
+		return placeOrderAsync(order, credentials).join();
+	}
 
-			String response = webService.sendRequest(url);
-			log.debug(RECEIVED_RESPONSE, response);
+	@Override
+	public CompletableFuture<Boolean> placeOrderAsync(MarketOrder order, ApiCredentials credentials) {
+		Supplier<Url> url = () -> {
+			try {
+				return api.placeOrder(order, credentials);
+			} catch (UnsupportedOrderTypeException e) {
+				throw new CompletionException(e);
+			}
+		};
 
-			return parser.checkResponse(response);
-		} catch (UnsupportedOrderTypeException | ExchangeException e) {
-			log.info("Couldn't place order for {}. Received the following message: {}", order.getAccount(),
-					e.getMessage());
-			log.debug("Received exception: ", e);
+		RequestBudget budget = RequestBudget.order(NAME, credentials.getKey());
+
+		return send(url, budget, parser::checkResponse).exceptionally(e -> {
+			logOrderFailure(order, Futures.unwrap(e));
 			return false;
-		}
+		});
+	}
+
+	private void logOrderFailure(MarketOrder order, Throwable e) {
+		log.info("Couldn't place order for {}. Received the following message: {}", order.getAccount(),
+				e.getMessage());
+		log.debug("Received exception: ", e);
 	}
 
 	@Override
 	public boolean cancelOrder(String orderId, ApiCredentials credentials) {
-		try {
-			Url url = api.cancelOrder(orderId, credentials);
+		return cancelOrderAsync(orderId, credentials).join();
+	}
 
-			String response = webService.sendRequest(url);
-			log.debug(RECEIVED_RESPONSE, response);
+	@Override
+	public CompletableFuture<Boolean> cancelOrderAsync(String orderId, ApiCredentials credentials) {
+		RequestBudget budget = RequestBudget.order(NAME, credentials.getKey());
 
-			return parser.checkResponse(response);
-		} catch (ExchangeException e) {
-			log.info("Couldn't cancel order {}. Received the following message: {}", orderId, e.getMessage());
+		return send(() -> api.cancelOrder(orderId, credentials), budget, parser::checkResponse).exceptionally(e -> {
+			log.info("Couldn't cancel order {}. Received the following message: {}", orderId,
+					Futures.unwrap(e).getMessage());
 			log.debug("Received exception: ", e);
 			return false;
-		}
+		});
 	}
 
 	@Override
 	public List<Order> getOpenOrders(ApiCredentials credentials) throws ExchangeException {
-		try {
-			Url url = api.getOpenOrders(credentials);
-			String response = webService.sendRequest(url);
-			log.debug(RECEIVED_RESPONSE, response);
+		return Futures.await(getOpenOrdersAsync(credentials));
+	}
+
+	@Override
+	public CompletableFuture<List<Order>> getOpenOrdersAsync(ApiCredentials credentials) {
+		RequestBudget budget = RequestBudget.refresh(NAME, credentials.getKey());
 
-			return parser.parseOpenOrders(response);
-		} catch (ExchangeException e) {
-			throw new ExchangeException(
-					"Couldn't fetch open orders for account: " + credentials.getKey() + " on exchange: " + getName(),
-					e);
-		}
+		return withMessage(read(() -> api.getOpenOrders(credentials), budget, parser::parseOpenOrders),
+				"Couldn't fetch open orders for account: " + credentials.getKey() + " on exchange: " + getName());
 	}
 
 	@Override
 	public List<Order> getOrderHistory(ApiCredentials credentials) throws ExchangeException {
-		try {
-			Url url = api.getOrderHistory(credentials);
-			String response = webService.sendRequest(url);
+		return Futures.await(getOrderHistoryAsync(credentials));
+	}
+
+	@Override
+	public CompletableFuture<List<Order>> getOrderHistoryAsync(ApiCredentials credentials) {
+		RequestBudget budget = RequestBudget.refresh(NAME, credentials.getKey());
+
+		return withMessage(read(() -> api.getOrderHistory(credentials), budget, parser::parseOrderHistory),
+				"Couldn't fetch the order history for account: " + credentials.getKey() + " on exchange: " + getName()
+						+ ".");
+	}
+
+	/**
+	 * Sends a read, and sends it again if it fails in a way that might not
+	 * happen again. The url is built for every attempt, so the nonce and
+	 * signature are fresh.<br>
+	 */
+	private <T> CompletableFuture<T> read(Supplier<Url> url, RequestBudget budget, ResponseParser<T> responseParser) {
+		return retryPolicy.retry(() -> send(url, budget, responseParser));
+	}
+
+	/**
+	 * Sends the request and parses the response on the thread that receives
+	 * it.<br>
+	 * The url is only built once the rate limiter lets the request go, so the
+	 * nonces reach Bittrex in the order the requests are sent.<br>
+	 * Cancelling the returned future cancels the request as well, wherever it
+	 * is.<br>
+	 */
+	private <T> CompletableFuture<T> send(Supplier<Url> url, RequestBudget budget, ResponseParser<T> responseParser) {
+		CompletableFuture<String> request = webService.sendRequestAsync(url, budget);
+		CompletableFuture<T> parsed = request.thenApply(response -> {
 			log.debug(RECEIVED_RESPONSE, response);
 
-			return parser.parseOrderHistory(response);
-		} catch (ExchangeException e) {
-			throw new ExchangeException("Couldn't fetch the order history for account: " + credentials.getKey()
-					+ " on exchange: " + getName() + ".", e);
-		}
+			try {
+				return responseParser.parse(response);
+			} catch (ExchangeException e) {
+				throw new CompletionException(e);
+			}
+		});
+
+		parsed.whenComplete((value, failure) -> {
+			if (parsed.isCancelled()) {
+				request.cancel(false);
+			}
+		});
+
+		return parsed;
+	}
+
+	/**
+	 * Wraps an ExchangeException the future fails with in one with the provided
+	 * message.<br>
+	 */
+	private <T> CompletableFuture<T> withMessage(CompletableFuture<T> future, String message) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+
+		future.whenComplete((value, failure) -> {
+			Throwable cause = failure == null ? null : Futures.unwrap(failure);
+
+			if (cause == null) {
+				result.complete(value);
+			} else if (cause instanceof ExchangeException) {
+				result.completeExceptionally(new ExchangeException(message, (ExchangeException) cause));
+			} else {
+				result.completeExceptionally(cause);
+			}
+		});
+
+		return result;
+	}
+
+	@FunctionalInterface
+	private interface ResponseParser<T> {
+		T parse(String response) throws ExchangeException;
 	}
 
 	@Override
@@ -43,7 +43,7 @@ public class BittrexApi implements Api {
         String market = order.getMainCoin() + MARKET_DELIMITER + order.getAltCoin();
         String parameterizedUrl = buildUrl(determineOrderType(order), setApiKeyParam(credentials.getKey()),
                 setMarketParam(market), setQuantityParam(order.getQuantity()), setRateParam(order.getRate()),
-                addNonce());
+                addNonce(credentials.getKey()));
 
         Url url = new Url(parameterizedUrl);
 
@@ -56,7 +56,7 @@ public class BittrexApi implements Api {
     @Override
     public Url getBalances(ApiCredentials credentials) {
         String parameterizedUrl = buildUrl(BittrexEndpoint.GET_BALANCES.getEndpoint(), setApiKeyParam(credentials.getKey()),
-                addNonce());
+                addNonce(credentials.getKey()));
         Url url = new Url(parameterizedUrl);
         addSignatureHeader(url, credentials.getSecret());
 
@@ -66,7 +66,7 @@ public class BittrexApi implements Api {
     @Override
     public Url getOrderHistory(ApiCredentials credentials) {
         String parameterizedUrl = buildUrl(BittrexEndpoint.GET_ORDERHISTORY.getEndpoint(),
-                setApiKeyParam(credentials.getKey()), addNonce());
+                setApiKeyParam(credentials.getKey()), addNonce(credentials.getKey()));
 
         Url url = new Url(parameterizedUrl);
         addSignatureHeader(url, credentials.getSecret());
@@ -78,7 +78,7 @@ public class BittrexApi implements Api {
     @Override
     public Url cancelOrder(String orderUuid, ApiCredentials credentials) {
         String parameterizedUrl = buildUrl(BittrexEndpoint.CANCEL_ORDER.getEndpoint(), setApiKeyParam(credentials.getKey()),
-                setUuidParam(orderUuid), addNonce());
+                setUuidParam(orderUuid), addNonce(credentials.getKey()));
 
         Url url = new Url(parameterizedUrl);
         addSignatureHeader(url, credentials.getSecret());
@@ -90,7 +90,7 @@ public class BittrexApi implements Api {
     @Override
     public Url getOpenOrders(ApiCredentials credentials) {
         String parameterizedUrl = buildUrl(BittrexEndpoint.GET_OPEN_ORDERS.getEndpoint(),
-                setApiKeyParam(credentials.getKey()), addNonce());
+                setApiKeyParam(credentials.getKey()), addNonce(credentials.getKey()));
 
         Url url = new Url(parameterizedUrl);
         addSignatureHeader(url, credentials.getSecret());
@@ -100,10 +100,10 @@ public class BittrexApi implements Api {
     }
 
     /**
-     * Returns a nonce as a GET parameter.
+     * Returns the next nonce of the api key as a GET parameter.
      */
-    private String addNonce() {
-        return "nonce=" + NonceCreator.getNonce();
+    private String addNonce(String apiKey) {
+        return "nonce=" + NonceCreator.getNonce(apiKey);
     }
 
     /**
@@ -1,26 +1,14 @@
 package tvtrader.bittrex;
 
-import com.google.gson.annotations.SerializedName;
 import lombok.ToString;
+import tvtrader.model.OrderType;
 
-@ToString
+@ToString(callSuper = true)
 public class BittrexFilledOrder extends BittrexOrder {
-	//Json response fields that differ from open orders response.
-	
-	@SerializedName("TimeStamp")
-	private String timestamp;
-	
-	@SerializedName("Commission")
-	private double commission;
-	
-	@Override
-	public long getTimeStamp() {
-		return getTimeStamp(timestamp);
-	}
-	
-	@Override
-	public double getCommission() {
-		return commission;
+
+	public BittrexFilledOrder(String orderId, String mainCoin, String altCoin, OrderType orderType, double quantity,
+			double quantityRemaining, double price, double rate, long timeStamp, double commission) {
+		super(orderId, mainCoin, altCoin, orderType, quantity, quantityRemaining, price, rate, timeStamp, commission);
 	}
-	
+
 }
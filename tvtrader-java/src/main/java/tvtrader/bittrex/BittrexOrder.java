@@ -1,67 +1,63 @@
 package tvtrader.bittrex;
 
-import com.google.gson.annotations.SerializedName;
+import lombok.ToString;
 import tvtrader.exchange.apidata.Order;
 import tvtrader.model.OrderType;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-
 /**
  * 
  * Data class for Bittrex transactions.<br>
+ * Immutable. The market, order type and timestamp are decoded once by the
+ * {@link BittrexOrderAdapter} instead of on every call.<br>
  * 
  * @author Wouter
  *
  */
+@ToString
 public abstract class BittrexOrder implements Order {
-	private static final int BEGIN_INDEX = 0;
-	private static final int INDEX_OFFSET = 1;
-	private static final char MARKET_DELIMITER = '-';
-
-	@SerializedName("OrderUuid")
-	private String orderUuid;
-	@SerializedName("Exchange")
-	private String market;
-	@SerializedName("OrderType")
-	private String orderType;
-	@SerializedName("Quantity")
-	private double quantity;
-	@SerializedName("QuantityRemaining")
-	private double quantityRemaining;
-	@SerializedName("Price")
-	private double price;
-	@SerializedName("PricePerUnit")
-	private double pricePerUnit;
+	private final String orderId;
+	private final String mainCoin;
+	private final String altCoin;
+	private final OrderType orderType;
+	private final double quantity;
+	private final double quantityRemaining;
+	private final double price;
+	private final double rate;
+	private final long timeStamp;
+	private final double commission;
+
+	protected BittrexOrder(String orderId, String mainCoin, String altCoin, OrderType orderType, double quantity,
+			double quantityRemaining, double price, double rate, long timeStamp, double commission) {
+		this.orderId = orderId;
+		this.mainCoin = mainCoin;
+		this.altCoin = altCoin;
+		this.orderType = orderType;
+		this.quantity = quantity;
+		this.quantityRemaining = quantityRemaining;
+		this.price = price;
+		this.rate = rate;
+		this.timeStamp = timeStamp;
+		this.commission = commission;
+	}
 
 	@Override
 	public String getOrderId() {
-		return orderUuid;
+		return orderId;
 	}
 
 	@Override
 	public String getMainCoin() {
-		return market.substring(BEGIN_INDEX, market.indexOf(MARKET_DELIMITER));
+		return mainCoin;
 	}
 
 	@Override
 	public String getAltCoin() {
-		return market.substring(market.indexOf(MARKET_DELIMITER) + INDEX_OFFSET);
+		return altCoin;
 	}
 
 	@Override
 	public OrderType getOrderType() {
-		return getOrderType(orderType);
-	}
-
-	private OrderType getOrderType(String orderType) {
-		if (orderType.equalsIgnoreCase(OrderType.LIMIT_BUY.getType())) {
-			return OrderType.LIMIT_BUY;
-		} else if (orderType.equalsIgnoreCase(OrderType.LIMIT_SELL.getType())) {
-			return OrderType.LIMIT_SELL;
-		} else {
-			return OrderType.UNSUPPORTED;
-		}
+		return orderType;
 	}
 
 	@Override
@@ -81,19 +77,23 @@ public abstract class BittrexOrder implements Order {
 
 	@Override
 	public double getRate() {
-		return pricePerUnit;
+		return rate;
 	}
 
 	/**
-	 * Determines the timestamp in unix time.<br>
+	 * Returns the timestamp in unix time.<br>
 	 * <br>
 	 * Bittrex uses UTC timestamps.<br>
 	 * 
 	 */
-	protected long getTimeStamp(String timeStamp) {
-		LocalDateTime ldt = LocalDateTime.parse(timeStamp);
+	@Override
+	public long getTimeStamp() {
+		return timeStamp;
+	}
 
-		return ldt.toEpochSecond(ZoneOffset.UTC);
+	@Override
+	public double getCommission() {
+		return commission;
 	}
 
 }
@@ -0,0 +1,187 @@
+package tvtrader.bittrex;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import tvtrader.model.OrderType;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads the Bittrex orders and decodes the market, order type and timestamp
+ * while doing so.<br>
+ * The filled orders of the order history and the open orders only differ in
+ * the names of the timestamp and commission fields.<br>
+ *
+ * @author Wouter
+ *
+ */
+public abstract class BittrexOrderAdapter<T extends BittrexOrder> extends TypeAdapter<T> {
+	private static final char MARKET_DELIMITER = '-';
+	private static final String ORDER_UUID = "OrderUuid";
+	private static final String EXCHANGE = "Exchange";
+	private static final String ORDER_TYPE = "OrderType";
+	private static final String QUANTITY = "Quantity";
+	private static final String QUANTITY_REMAINING = "QuantityRemaining";
+	private static final String PRICE = "Price";
+	private static final String PRICE_PER_UNIT = "PricePerUnit";
+
+	private final String timeStampField;
+	private final String commissionField;
+
+	private BittrexOrderAdapter(String timeStampField, String commissionField) {
+		this.timeStampField = timeStampField;
+		this.commissionField = commissionField;
+	}
+
+	@Override
+	public T read(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+
+		String orderId = null;
+		String market = null;
+		OrderType orderType = OrderType.UNSUPPORTED;
+		double quantity = 0;
+		double quantityRemaining = 0;
+		double price = 0;
+		double rate = 0;
+		long timeStamp = 0;
+		double commission = 0;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+
+			if (reader.peek() == JsonToken.NULL) {
+				reader.nextNull();
+			} else if (name.equals(ORDER_UUID)) {
+				orderId = reader.nextString();
+			} else if (name.equals(EXCHANGE)) {
+				market = reader.nextString();
+			} else if (name.equals(ORDER_TYPE)) {
+				orderType = parseOrderType(reader.nextString());
+			} else if (name.equals(QUANTITY)) {
+				quantity = reader.nextDouble();
+			} else if (name.equals(QUANTITY_REMAINING)) {
+				quantityRemaining = reader.nextDouble();
+			} else if (name.equals(PRICE)) {
+				price = reader.nextDouble();
+			} else if (name.equals(PRICE_PER_UNIT)) {
+				rate = reader.nextDouble();
+			} else if (name.equals(timeStampField)) {
+				timeStamp = parseTimeStamp(reader.nextString());
+			} else if (name.equals(commissionField)) {
+				commission = reader.nextDouble();
+			} else {
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		String mainCoin = null;
+		String altCoin = market;
+
+		if (market != null && market.indexOf(MARKET_DELIMITER) >= 0) {
+			int delimiter = market.indexOf(MARKET_DELIMITER);
+			mainCoin = market.substring(0, delimiter);
+			altCoin = market.substring(delimiter + 1);
+		}
+
+		return create(orderId, mainCoin, altCoin, orderType, quantity, quantityRemaining, price, rate, timeStamp,
+				commission);
+	}
+
+	@Override
+	public void write(JsonWriter writer, T order) throws IOException {
+		if (order == null) {
+			writer.nullValue();
+			return;
+		}
+
+		writer.beginObject();
+		writer.name(ORDER_UUID).value(order.getOrderId());
+		writer.name(EXCHANGE).value(order.getMainCoin() + MARKET_DELIMITER + order.getAltCoin());
+		writer.name(ORDER_TYPE).value(order.getOrderType().getType().toUpperCase());
+		writer.name(QUANTITY).value(order.getQuantity());
+		writer.name(QUANTITY_REMAINING).value(order.getQuantityRemaining());
+		writer.name(PRICE).value(order.getPrice());
+		writer.name(PRICE_PER_UNIT).value(order.getRate());
+		writer.name(timeStampField)
+				.value(LocalDateTime.ofEpochSecond(order.getTimeStamp(), 0, ZoneOffset.UTC).toString());
+		writer.name(commissionField).value(order.getCommission());
+		writer.endObject();
+	}
+
+	protected abstract T create(String orderId, String mainCoin, String altCoin, OrderType orderType,
+			double quantity, double quantityRemaining, double price, double rate, long timeStamp, double commission);
+
+	private OrderType parseOrderType(String orderType) {
+		if (orderType.equalsIgnoreCase(OrderType.LIMIT_BUY.getType())) {
+			return OrderType.LIMIT_BUY;
+		} else if (orderType.equalsIgnoreCase(OrderType.LIMIT_SELL.getType())) {
+			return OrderType.LIMIT_SELL;
+		} else {
+			return OrderType.UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * Determines the timestamp in unix time.<br>
+	 * <br>
+	 * Bittrex uses UTC timestamps.<br>
+	 */
+	private long parseTimeStamp(String timeStamp) {
+		try {
+			return LocalDateTime.parse(timeStamp).toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeParseException e) {
+			throw new JsonParseException("Invalid timestamp: " + timeStamp, e);
+		}
+	}
+
+	/**
+	 * Adapter for the orders in the order history.<br>
+	 */
+	public static class FilledOrderAdapter extends BittrexOrderAdapter<BittrexFilledOrder> {
+
+		public FilledOrderAdapter() {
+			super("TimeStamp", "Commission");
+		}
+
+		@Override
+		protected BittrexFilledOrder create(String orderId, String mainCoin, String altCoin, OrderType orderType,
+				double quantity, double quantityRemaining, double price, double rate, long timeStamp,
+				double commission) {
+			return new BittrexFilledOrder(orderId, mainCoin, altCoin, orderType, quantity, quantityRemaining, price,
+					rate, timeStamp, commission);
+		}
+	}
+
+	/**
+	 * Adapter for the open orders.<br>
+	 */
+	public static class UnfilledOrderAdapter extends BittrexOrderAdapter<BittrexUnfilledOrder> {
+
+		public UnfilledOrderAdapter() {
+			super("Opened", "CommissionPaid");
+		}
+
+		@Override
+		protected BittrexUnfilledOrder create(String orderId, String mainCoin, String altCoin, OrderType orderType,
+				double quantity, double quantityRemaining, double price, double rate, long timeStamp,
+				double commission) {
+			return new BittrexUnfilledOrder(orderId, mainCoin, altCoin, orderType, quantity, quantityRemaining,
+					price, rate, timeStamp, commission);
+		}
+	}
+
+}
@@ -1,6 +1,8 @@
 package tvtrader.bittrex;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.springframework.stereotype.Component;
 import tvtrader.bittrex.response.*;
 import tvtrader.exchange.ExchangeException;
@@ -8,36 +10,146 @@ import tvtrader.exchange.apidata.JsonParser;
 import tvtrader.exchange.apidata.Order;
 import tvtrader.exchange.apidata.Ticker;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.*;
+import java.util.function.Predicate;
 
 @Component(value="BittrexParser")
 public class BittrexParser implements JsonParser {
 	private static final String RESPONSE_NOT_SUCCESSFUL_MESSAGE = "Response not successful. Received the following message: ";
+	private static final String SUCCESS = "success";
+	private static final String MESSAGE = "message";
+	private static final String RESULT = "result";
+	private static final String MARKET_NAME = "MarketName";
+	private static final String ASK = "Ask";
+	private static final String BID = "Bid";
+	private static final String LAST = "Last";
 	
 	private Gson gson;
 
 	public BittrexParser(Gson gson) {
 		super();
-		this.gson = gson;
+		this.gson = gson.newBuilder()
+				.registerTypeAdapter(BittrexFilledOrder.class, new BittrexOrderAdapter.FilledOrderAdapter())
+				.registerTypeAdapter(BittrexUnfilledOrder.class, new BittrexOrderAdapter.UnfilledOrderAdapter())
+				.create();
 	}
 	
 	@Override
 	public Map<String, Ticker> parseMarketSummaries(String json) throws ExchangeException {
-		BittrexTickerResponse response = gson.fromJson(json, BittrexTickerResponse.class);
-
-		if (response.isSuccess()) {
-			List<BittrexTicker> tickerList = response.getResult();
-
-			Map<String, Ticker> tickers = new HashMap<>();
+		return parseMarketSummaries(new StringReader(json), market -> true);
+	}
 
-			tickerList.forEach(ticker -> tickers.put(ticker.getMarket(), ticker));
+	/**
+	 * Reads the market summaries token by token, so the response is never held
+	 * as a whole and the summaries of filtered markets are skipped without
+	 * creating any objects.<br>
+	 */
+	@Override
+	public Map<String, Ticker> parseMarketSummaries(Reader json, Predicate<String> marketFilter)
+			throws ExchangeException {
+		JsonReader reader = new JsonReader(json);
+		reader.setLenient(true);
+
+		boolean success = false;
+		String message = null;
+		Map<String, Ticker> tickers = new HashMap<>();
+
+		try {
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case SUCCESS:
+					success = reader.nextBoolean();
+					break;
+				case MESSAGE:
+					message = nextStringOrNull(reader);
+					break;
+				case RESULT:
+					readTickers(reader, marketFilter, tickers);
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+		} catch (IOException | IllegalStateException | NumberFormatException e) {
+			throw new ExchangeException("Couldn't read the market summaries.", e);
+		}
 
+		if (success) {
 			return tickers;
 		} else {
-			throw new ExchangeException(
-					RESPONSE_NOT_SUCCESSFUL_MESSAGE + response.getMessage());
+			throw new ExchangeException(RESPONSE_NOT_SUCCESSFUL_MESSAGE + message);
+		}
+	}
+
+	private void readTickers(JsonReader reader, Predicate<String> marketFilter, Map<String, Ticker> tickers)
+			throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return;
+		}
+
+		reader.beginArray();
+
+		while (reader.hasNext()) {
+			String market = null;
+			double ask = 0;
+			double bid = 0;
+			double last = 0;
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+				case MARKET_NAME:
+					market = nextStringOrNull(reader);
+					break;
+				case ASK:
+					ask = nextDoubleOrZero(reader);
+					break;
+				case BID:
+					bid = nextDoubleOrZero(reader);
+					break;
+				case LAST:
+					last = nextDoubleOrZero(reader);
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+
+			if (market != null && marketFilter.test(market)) {
+				tickers.put(market, new BittrexTicker(market, ask, bid, last));
+			}
+		}
+
+		reader.endArray();
+	}
+
+	private String nextStringOrNull(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return null;
+		}
+
+		return reader.nextString();
+	}
+
+	private double nextDoubleOrZero(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return 0;
 		}
 
+		return reader.nextDouble();
 	}
 
 	@Override
@@ -1,25 +1,14 @@
 package tvtrader.bittrex;
 
-import com.google.gson.annotations.SerializedName;
 import lombok.ToString;
+import tvtrader.model.OrderType;
 
-@ToString
+@ToString(callSuper = true)
 public class BittrexUnfilledOrder extends BittrexOrder {
-	
-	//Json response fields that differ from filled orders response.
-	@SerializedName("Opened")
-	private String opened;
-	@SerializedName("CommissionPaid")
-	private double commissionPaid;
-	
-	@Override
-	public long getTimeStamp() {
-		return getTimeStamp(opened);
-	}
-	
-	@Override
-	public double getCommission() {
-		return commissionPaid;
+
+	public BittrexUnfilledOrder(String orderId, String mainCoin, String altCoin, OrderType orderType, double quantity,
+			double quantityRemaining, double price, double rate, long timeStamp, double commission) {
+		super(orderId, mainCoin, altCoin, orderType, quantity, quantityRemaining, price, rate, timeStamp, commission);
 	}
 
 }
@@ -0,0 +1,81 @@
+package tvtrader.caches;
+
+import lombok.extern.log4j.Log4j2;
+import tvtrader.exchange.ExchangeException;
+import tvtrader.utils.Futures;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Makes sure only one refresh per key is in flight.<br>
+ * <br>
+ * The first caller for a key does the refresh, callers that ask for the same
+ * key in the meantime wait for it and share its result or exception instead of
+ * sending the same request again.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+public class SingleFlight<T> {
+	private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Runs the refresh for the key, or waits for the one already in flight.<br>
+	 *
+	 * @throws ExchangeException
+	 *             If the shared refresh fails.
+	 */
+	public T refresh(String key, Refresh<T> refresh) throws ExchangeException {
+		CompletableFuture<T> call = new CompletableFuture<>();
+		CompletableFuture<T> running = inFlight.putIfAbsent(key, call);
+
+		if (running != null) {
+			log.debug("Waiting for the refresh of {} that's already in flight.", key);
+			return Futures.await(running);
+		}
+
+		try {
+			T result = refresh.run();
+			call.complete(result);
+			return result;
+		} catch (ExchangeException | RuntimeException | Error e) {
+			call.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, call);
+		}
+	}
+
+	/**
+	 * Runs the refresh for the key if it's needed, or waits for the one already in
+	 * flight.<br>
+	 * <br>
+	 * The check is done again once the caller owns the refresh, because the
+	 * refresh it waited for or raced with could have made it unnecessary.<br>
+	 *
+	 * @throws ExchangeException
+	 *             If the shared refresh fails.
+	 */
+	public void refreshIfNeeded(String key, BooleanSupplier needed, Refresh<T> refresh) throws ExchangeException {
+		if (needed.getAsBoolean()) {
+			refresh(key, () -> needed.getAsBoolean() ? refresh.run() : null);
+		}
+	}
+
+	/**
+	 * Returns the number of refreshes in flight.<br>
+	 */
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+	@FunctionalInterface
+	public interface Refresh<T> {
+		T run() throws ExchangeException;
+	}
+
+}
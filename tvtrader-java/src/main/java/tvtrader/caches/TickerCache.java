@@ -3,19 +3,19 @@ package tvtrader.caches;
 import lombok.Getter;
 import tvtrader.exchange.apidata.Ticker;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TickerCache {
 	@Getter private long lastRefresh;
 	private Map<String, Ticker> tickers;
 	
 	public TickerCache() {
-		tickers = new HashMap<>();
+		tickers = new ConcurrentHashMap<>();
 	}
 	
 	public Ticker getTicker(String market) {
-		return tickers.get(market);
+		return market == null ? null : tickers.get(market);
 	}
 	
 	public void refreshCache(Map<String, Ticker> tickers) {
@@ -3,16 +3,18 @@ package tvtrader.dao;
 import org.springframework.stereotype.Component;
 import tvtrader.model.Account;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class AccountRepository {
 	private Map<String, Map<String, Account>> repository;
 
 	public AccountRepository() {
-		repository = new HashMap<>();
+		// Read by the workers of the order pipeline.
+		repository = new ConcurrentHashMap<>();
 	}
 
 	/**
@@ -25,7 +27,7 @@ public class AccountRepository {
 	 */
 	public void addAccount(String exchange, Account account) {
 		// Creates a map for the accounts if it isn't there.
-		Map<String, Account> cache = repository.computeIfAbsent(exchange, value -> new HashMap<String, Account>());
+		Map<String, Account> cache = repository.computeIfAbsent(exchange, value -> new ConcurrentHashMap<String, Account>());
 		cache.put(account.getName(), account);
 	}
 
@@ -85,10 +87,16 @@ public class AccountRepository {
 	 * 
 	 * @param exchange
 	 *            The exchange for which to fetch the accounts.
-	 * @return Iterator for the accounts.
+	 * @return Iterator for the accounts. Empty if the exchange has no accounts.
 	 */
 	public Iterator<Account> getAccounts(String exchange) {
-		return repository.get(exchange).values().iterator();
+		Map<String, Account> cache = repository.get(exchange);
+
+		if (cache == null) {
+			return Collections.emptyIterator();
+		}
+
+		return cache.values().iterator();
 	}
 
 }
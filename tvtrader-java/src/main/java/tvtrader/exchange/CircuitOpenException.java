@@ -0,0 +1,16 @@
+package tvtrader.exchange;
+
+/**
+ * Should be thrown when a request isn't sent because the circuit of its
+ * endpoint is open.
+ * 
+ * @author Wouter
+ *
+ */
+public class CircuitOpenException extends ExchangeException {
+	private static final long serialVersionUID = 1L;
+	
+	public CircuitOpenException(String message) {
+		super(message);
+	}
+}
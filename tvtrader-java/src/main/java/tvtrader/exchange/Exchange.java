@@ -4,17 +4,41 @@ import tvtrader.exchange.apidata.Order;
 import tvtrader.exchange.apidata.Ticker;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.utils.Futures;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Models an exchange and all the requests it should handle.<br>
+ * <br>
+ * Every request has an asynchronous counterpart that doesn't block the calling
+ * thread. The returned futures fail with an ExchangeException where the
+ * blocking method would throw one.<br>
+ * <br>
+ * The sells of a batch don't depend on each other and are sent concurrently,
+ * at most BATCH_PARALLELISM at a time. The buys are sent the same way once
+ * all the sells are done, so the balance the sells free up is there for them.
+ * Cancels are sent concurrently as well. An exchange with a batch endpoint can
+ * override these methods to send the orders in fewer requests.<br>
  * 
  * @author Wouter
  *
  */
 public interface Exchange {
+	/**
+	 * The maximum number of orders or cancels of a batch that are sent at the
+	 * same time.<br>
+	 */
+	int BATCH_PARALLELISM = 5;
+
 	/**
 	 * Fetches the latest tickers.<br>
 	 * 
@@ -23,6 +47,28 @@ public interface Exchange {
 	 */
 	public Map<String, Ticker> getTickers() throws ExchangeException;
 
+	/**
+	 * Fetches the latest tickers without blocking.<br>
+	 * 
+	 */
+	public CompletableFuture<Map<String, Ticker>> getTickersAsync();
+
+	/**
+	 * Fetches the latest tickers for the markets accepted by the filter.<br>
+	 * The tickers of the other markets are skipped while the response is read.<br>
+	 * 
+	 * @throws ExchangeException
+	 *             If anything goes wrong while contacting the exchange.
+	 */
+	public Map<String, Ticker> getTickers(Predicate<String> marketFilter) throws ExchangeException;
+
+	/**
+	 * Fetches the latest tickers for the markets accepted by the filter without
+	 * blocking.<br>
+	 * 
+	 */
+	public CompletableFuture<Map<String, Ticker>> getTickersAsync(Predicate<String> marketFilter);
+
 	/**
 	 * Fetches all the balances for the current account.
 	 * 
@@ -35,6 +81,12 @@ public interface Exchange {
 	 */
 	public Map<String, Double> getBalances(ApiCredentials credentials) throws ExchangeException;
 
+	/**
+	 * Fetches all the balances for the current account without blocking.<br>
+	 * 
+	 */
+	public CompletableFuture<Map<String, Double>> getBalancesAsync(ApiCredentials credentials);
+
 	/**
 	 * Places the order at the exchange.
 	 * 
@@ -47,6 +99,13 @@ public interface Exchange {
 	 */
 	public boolean placeOrder(MarketOrder order, ApiCredentials credentials) ;
 
+	/**
+	 * Places the order at the exchange without blocking.<br>
+	 * The future never fails, it completes with false if anything goes wrong.<br>
+	 * 
+	 */
+	public CompletableFuture<Boolean> placeOrderAsync(MarketOrder order, ApiCredentials credentials);
+
 	/**
 	 * Cancels the order connected to the provided orderId and credentials.
 	 * 
@@ -59,6 +118,96 @@ public interface Exchange {
 	 */
 	public boolean cancelOrder(String orderId, ApiCredentials credentials);
 
+	/**
+	 * Cancels the order without blocking.<br>
+	 * The future never fails, it completes with false if anything goes wrong.<br>
+	 * 
+	 */
+	public CompletableFuture<Boolean> cancelOrderAsync(String orderId, ApiCredentials credentials);
+
+	/**
+	 * Places the orders at the exchange.<br>
+	 * 
+	 * @param orders
+	 *            The orders to place, all for the account of the credentials.
+	 * @param credentials
+	 *            The api credentials for the account.
+	 * 
+	 * @return For every order, in the same order: True if success. False if
+	 *         anything goes wrong.
+	 */
+	public default List<Boolean> placeOrders(List<MarketOrder> orders, ApiCredentials credentials) {
+		return placeOrdersAsync(orders, credentials).join();
+	}
+
+	/**
+	 * Places the orders at the exchange without blocking. The sells are placed
+	 * first, the other orders once all the sells are done.<br>
+	 * The future never fails, the result of an order is false if anything goes
+	 * wrong.<br>
+	 * 
+	 */
+	public default CompletableFuture<List<Boolean>> placeOrdersAsync(List<MarketOrder> orders,
+			ApiCredentials credentials) {
+		List<Integer> sells = new ArrayList<>();
+		List<Integer> others = new ArrayList<>();
+
+		for (int i = 0; i < orders.size(); i++) {
+			if (orders.get(i).getOrderType() == OrderType.LIMIT_SELL) {
+				sells.add(i);
+			} else {
+				others.add(i);
+			}
+		}
+
+		Boolean[] results = new Boolean[orders.size()];
+		Function<Integer, CompletableFuture<Boolean>> place = index -> orderResult(
+				() -> placeOrderAsync(orders.get(index), credentials)).thenApply(result -> results[index] = result);
+
+		return Futures.allBounded(sells, BATCH_PARALLELISM, place)
+				.thenCompose(sold -> Futures.allBounded(others, BATCH_PARALLELISM, place))
+				.thenApply(placed -> Arrays.asList(results));
+	}
+
+	/**
+	 * Cancels the orders connected to the provided orderIds and credentials.<br>
+	 * 
+	 * @param orderIds
+	 *            The ids of the orders to cancel.
+	 * @param credentials
+	 *            The api credentials for the account.
+	 * 
+	 * @return For every order, in the same order: True if successful. False if
+	 *         anything goes wrong.
+	 */
+	public default List<Boolean> cancelOrders(List<String> orderIds, ApiCredentials credentials) {
+		return cancelOrdersAsync(orderIds, credentials).join();
+	}
+
+	/**
+	 * Cancels the orders without blocking.<br>
+	 * The future never fails, the result of an order is false if anything goes
+	 * wrong.<br>
+	 * 
+	 */
+	public default CompletableFuture<List<Boolean>> cancelOrdersAsync(List<String> orderIds,
+			ApiCredentials credentials) {
+		return Futures.allBounded(orderIds, BATCH_PARALLELISM,
+				orderId -> orderResult(() -> cancelOrderAsync(orderId, credentials)));
+	}
+
+	/**
+	 * Turns a failure of a single order into false, so it doesn't fail the
+	 * batch.<br>
+	 */
+	static CompletableFuture<Boolean> orderResult(Supplier<CompletableFuture<Boolean>> call) {
+		try {
+			return call.get().exceptionally(e -> false);
+		} catch (RuntimeException e) {
+			return CompletableFuture.completedFuture(false);
+		}
+	}
+
 	/**
 	 * Fetches all the open orders for the specified account.
 	 * 
@@ -73,6 +222,13 @@ public interface Exchange {
 	 */
 	public List<Order> getOpenOrders(ApiCredentials credentials) throws ExchangeException;
 
+	/**
+	 * Fetches all the open orders for the specified account without
+	 * blocking.<br>
+	 * 
+	 */
+	public CompletableFuture<List<Order>> getOpenOrdersAsync(ApiCredentials credentials);
+
 	/**
 	 * Fetches the orderhistory for the specified market/account.
 	 * 
@@ -86,6 +242,12 @@ public interface Exchange {
 	public List<Order> getOrderHistory(ApiCredentials credentials)
 			throws ExchangeException;
 
+	/**
+	 * Fetches the orderhistory for the specified account without blocking.<br>
+	 * 
+	 */
+	public CompletableFuture<List<Order>> getOrderHistoryAsync(ApiCredentials credentials);
+
 	/**
 	 * Creates the proper market syntax for the specific exchange.
 	 * 
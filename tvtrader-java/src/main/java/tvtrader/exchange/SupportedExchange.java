@@ -2,15 +2,24 @@ package tvtrader.exchange;
 
 
 public enum SupportedExchange {
-	BITTREX("BITTREX");
+	BITTREX("BITTREX", "https://bittrex.com");
 	
 	String name;
+	String host;
 	
-	SupportedExchange(String type) {
+	SupportedExchange(String type, String host) {
 		this.name = type;
+		this.host = host;
 	}
 	
 	public String getName() {
 		return name;
 	}
+
+	/**
+	 * Returns the url of the host the api calls are sent to.<br>
+	 */
+	public String getHost() {
+		return host;
+	}
 }
@@ -0,0 +1,20 @@
+package tvtrader.exchange;
+
+/**
+ * Should be thrown when a request failed in a way that might not happen again,
+ * like a lost connection or a server error. Reads may be sent again.
+ * 
+ * @author Wouter
+ *
+ */
+public class TransientExchangeException extends ExchangeException {
+	private static final long serialVersionUID = 1L;
+	
+	public TransientExchangeException(String message) {
+		super(message);
+	}
+	
+	public TransientExchangeException(String message, Exception e) {
+		super(message, e);
+	}
+}
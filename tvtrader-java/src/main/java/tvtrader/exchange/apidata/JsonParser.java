@@ -2,8 +2,10 @@ package tvtrader.exchange.apidata;
 
 import tvtrader.exchange.ExchangeException;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 public interface JsonParser {
 
@@ -15,6 +17,17 @@ public interface JsonParser {
 	 */
 	public Map<String, tvtrader.exchange.apidata.Ticker> parseMarketSummaries(String json) throws ExchangeException;
 
+	/**
+	 * Parses the response for the tickers while it is read, only the tickers for
+	 * markets accepted by the filter are created.<br>
+	 * 
+	 * @throws ExchangeException
+	 *             If the response from the exchange was not successful or
+	 *             couldn't be read.
+	 */
+	public Map<String, tvtrader.exchange.apidata.Ticker> parseMarketSummaries(Reader json, Predicate<String> marketFilter)
+			throws ExchangeException;
+
 	/**
 	 * Parses the response for all the available balances.<br>
 	 * 
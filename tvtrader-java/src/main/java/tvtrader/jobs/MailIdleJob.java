@@ -0,0 +1,131 @@
+package tvtrader.jobs;
+
+import lombok.extern.log4j.Log4j2;
+import tvtrader.mail.MailClient;
+import tvtrader.mail.MailClientException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push mode alternative for polling the mail server.<br>
+ * Keeps the inbox open with IMAP IDLE and hands new mails off to the fetch
+ * job as soon as the server reports them.<br>
+ * <br>
+ * The fetch job and the keepalives are run on the provided executor. Every
+ * mailbox gets its own executor, so a pushed alert doesn't wait behind the
+ * other jobs and a slow job doesn't delay the keepalives.<br>
+ * <br>
+ * When listening fails 5 times in a row the job gives up and runs the
+ * fallback, which polls the mailbox instead.<br>
+ * <br>
+ * Created by the JobService, one for every mailbox that supports IDLE.<br>
+ * 
+ * @author Wouter
+ *
+ */
+@Log4j2
+public class MailIdleJob implements Runnable {
+	// Should be well within the timeout of the mail client.
+	private static final int KEEPALIVE_INTERVAL_IN_SECONDS = 5;
+	private static final int RECONNECT_DELAY_IN_MS = 1_000;
+	private static final int MAX_FAILED_ATTEMPTS = 5;
+
+	private MailClient client;
+	private Runnable fetchJob;
+	private ScheduledExecutorService executorService;
+	private Runnable fallback;
+	private volatile boolean running;
+	private int failedAttempts;
+
+	public MailIdleJob(MailClient client, Runnable fetchJob, ScheduledExecutorService executorService,
+			Runnable fallback) {
+		this.client = client;
+		this.fetchJob = fetchJob;
+		this.executorService = executorService;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Checks if the mail server supports push mode.<br>
+	 * 
+	 */
+	public boolean isSupported() {
+		return client.supportsIdle();
+	}
+
+	@Override
+	public void run() {
+		running = true;
+		failedAttempts = 0;
+		ScheduledFuture<?> keepAlive = executorService.scheduleAtFixedRate(client::keepAlive,
+				KEEPALIVE_INTERVAL_IN_SECONDS, KEEPALIVE_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+
+		try {
+			while (running && !Thread.currentThread().isInterrupted() && failedAttempts < MAX_FAILED_ATTEMPTS) {
+				waitForMails();
+			}
+		} finally {
+			keepAlive.cancel(false);
+			client.closeConnection();
+		}
+
+		if (running && failedAttempts >= MAX_FAILED_ATTEMPTS) {
+			log.warn("Couldn't listen for new mails {} times in a row. Polling for new mails instead.",
+					failedAttempts);
+			running = false;
+			fallback.run();
+		}
+	}
+
+	/**
+	 * Waits for the server to report new mails and processes them.<br>
+	 * Blocks until the mails have been processed, so the same mails don't get
+	 * handed off twice.<br>
+	 */
+	private void waitForMails() {
+		try {
+			boolean newMails = client.idle();
+			failedAttempts = 0;
+
+			if (newMails) {
+				executorService.submit(fetchJob).get();
+			}
+		} catch (MailClientException e) {
+			failedAttempts++;
+			log.debug("Exception: ", e);
+			log.info("Lost the connection to the mail server. Reconnecting. Received the following message: {}",
+					e.getMessage());
+
+			if (failedAttempts < MAX_FAILED_ATTEMPTS) {
+				pause();
+			}
+		} catch (ExecutionException e) {
+			log.debug("Exception: ", e);
+			log.error("Something went wrong:\n{}", e.getMessage());
+		} catch (InterruptedException e) {
+			log.debug("Mail idle job got interrupted. Stopping.");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void pause() {
+		try {
+			Thread.sleep(RECONNECT_DELAY_IN_MS);
+		} catch (InterruptedException e) {
+			log.debug("Mail idle job got interrupted. Stopping.");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops listening for new mails.<br>
+	 */
+	public void stop() {
+		running = false;
+		client.closeConnection();
+	}
+
+}
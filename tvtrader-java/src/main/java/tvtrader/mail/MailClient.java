@@ -1,24 +1,36 @@
 package tvtrader.mail;
 
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import tvtrader.exceptionlogger.UnverifiedException;
+import tvtrader.model.MailConfiguration;
 import tvtrader.services.ConfigurationService;
 
 import javax.mail.*;
 import javax.mail.Flags.Flag;
+import javax.mail.search.*;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Models an IMAPS mail client.<br>
- * Fetches the subject lines from mails within the timelimit as set with
- * setTimeLimit(int) and from the expected sender.<br>
+ * Fetches the order lines from mails within the timelimit as set with
+ * setTimeLimit(int) and from the expected sender. The order lines are the
+ * subject and the lines of the plain text body.<br>
+ * <br>
+ * The connection to the mail server is kept open between fetches. If the
+ * connection is lost the client reconnects on the next call, backing off
+ * exponentially while the server stays unreachable.<br>
  * 
  * @author Wouter
  *
@@ -33,21 +45,90 @@ public class MailClient {
 	// Default timeout for mail server operations in ms.
 	private static final String DEFAULT_TIMEOUT = "10000";
 
-	private ConnectionListenerImpl listener = new ConnectionListenerImpl();
+	// Delays between reconnection attempts in ms.
+	private static final long INITIAL_RECONNECT_DELAY = 1_000;
+	private static final long MAX_RECONNECT_DELAY = 60_000;
+
+	private static final String IDLE_CAPABILITY = "IDLE";
+	private static final String DEFAULT_NAME = "DEFAULT";
+
 	private int timeLimit = DEFAULT_TIME_LIMIT_IN_SECONDS;
 
 	private ConfigurationService configurationService;
 
-	private Folder folder;
-	private Store store;
+	// Null for the default mail configuration of the configuration service.
+	private MailConfiguration mailConfiguration;
+
+	private final Object connectionLock = new Object();
+	private volatile Folder folder;
+	private volatile Store store;
+	private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+
+	// Settings used for the current connection.
+	private Properties connectedProperties;
+	private String connectedUsername;
+	private String connectedPassword;
+
+	private int failedAttempts;
+	private long nextAttempt;
+
+	private boolean deferExpunge = true;
+	private volatile boolean expungePending;
+
+	// Position in the inbox after the last fetch.
+	private long uidValidity = -1;
+	private long lastUid;
 
 	@Autowired
 	public MailClient(ConfigurationService configurationService) {
 		this.configurationService = configurationService;
 	}
 
+	/**
+	 * Creates a client for an additional mailbox.<br>
+	 * The connection settings are taken from the provided mail configuration
+	 * instead of the configuration service. Every client keeps its own
+	 * connection.<br>
+	 *
+	 */
+	public MailClient(ConfigurationService configurationService, MailConfiguration mailConfiguration) {
+		this.configurationService = configurationService;
+		this.mailConfiguration = mailConfiguration;
+	}
+
+	/**
+	 * Returns the name of the mail configuration used by this client.<br>
+	 *
+	 */
+	public String getName() {
+		return mailConfiguration == null ? DEFAULT_NAME : mailConfiguration.getName();
+	}
+
+	private Properties mailProperties() {
+		return mailConfiguration == null ? configurationService.getMailConfigurationAsProperties()
+				: mailConfiguration.getProperties();
+	}
+
+	private String username() {
+		return mailConfiguration == null ? configurationService.getUsername() : mailConfiguration.getUsername();
+	}
+
+	private String password() {
+		return mailConfiguration == null ? configurationService.getPassword() : mailConfiguration.getPassword();
+	}
+
+	private String inbox() {
+		return mailConfiguration == null ? configurationService.getInbox() : mailConfiguration.getInbox();
+	}
+
+	private String protocol() {
+		return mailConfiguration == null ? configurationService.getProtocol() : mailConfiguration.getProtocol();
+	}
+
 	/**
 	 * Verifies if the connection is accepted by the server, if it even exists.<br>
+	 * Always makes a fresh connection attempt. On success the connection is kept
+	 * open for the next fetch.<br>
 	 * 
 	 * @throws UnverifiedException
 	 *             Thrown if the connection could not be verified.
@@ -55,71 +136,412 @@ public class MailClient {
 	public void verify() throws UnverifiedException {
 		log.info("Verifying mail server credentials.");
 		try {
-			openConnection();
+			synchronized (connectionLock) {
+				closeConnection();
+				failedAttempts = 0;
+				nextAttempt = 0;
+				openStore();
+			}
 			log.info("Connection verified.");
 		} catch (MailClientException e) {
 			throw new UnverifiedException(
 					"Couldn't verify the connection to the mail server. Check the connection settings!", e);
-		} finally {
-			closeConnection();
 		}
 	}
 
 	/**
-	 * Fetches the subject lines of all valid mails from the server.<br>
+	 * Fetches the order lines of all valid mails from the server.<br>
 	 * If there are no new valid mails or there was a problem fetching mails returns
 	 * an empty list.<br>
 	 * 
-	 * @return List of subject lines.
+	 * @return List of subject and body lines.
 	 */
-	public List<String> fetchSubjectLines() {
+	public List<String> fetchOrderLines() {
 		try {
-			openConnection();
-			folder = store.getFolder(configurationService.getInbox());
-			folder.open(Folder.READ_WRITE);
+			Folder inbox = openFolder();
 
 			log.info("Checking for new messages...");
-			Message[] messages = folder.getMessages();
+			Message[] messages = newMessages(inbox);
 
 			log.debug("Messages: {}", messages.length);
+			Message[] candidates = search(inbox, messages);
+
+			log.debug("Candidates: {}", candidates.length);
+			prefetch(inbox, candidates);
 
-			return checkMails(messages);
-		} catch (IllegalStateException | MessagingException | MailClientException e) {
+			return checkMails(inbox, messages, candidates);
+		} catch (IllegalStateException | MessagingException e) {
+			log.debug("Exception: ", e);
+			log.info("Something went wrong while fetching mails from the server. Received the following message: {}",
+					e.getMessage());
+			connectionLost();
+		} catch (MailClientException e) {
 			log.debug("Exception: ", e);
 			log.info("Something went wrong while fetching mails from the server. Received the following message: {}",
 					e.getMessage());
-		} finally {
-			closeConnection();
 		}
 
 		return Collections.emptyList();
 	}
 
 	/**
-	 * Opens the connection to the mail server.
+	 * Returns the messages that arrived since the last fetch.<br>
+	 * For IMAP inboxes only messages with a UID above the last seen UID are
+	 * retrieved. If the UIDVALIDITY of the inbox changed, the UIDs are no longer
+	 * comparable and the whole inbox is scanned again.<br>
+	 *
+	 * @throws MessagingException
+	 *             If something goes wrong while retrieving the messages.
+	 */
+	private Message[] newMessages(Folder inbox) throws MessagingException {
+		if (!(inbox instanceof UIDFolder)) {
+			return inbox.getMessages();
+		}
+
+		UIDFolder uidInbox = (UIDFolder) inbox;
+		long validity = uidInbox.getUIDValidity();
+
+		if (validity != uidValidity) {
+			log.debug("UIDVALIDITY changed from {} to {}. Scanning the whole inbox.", uidValidity, validity);
+			uidValidity = validity;
+			lastUid = 0;
+		}
+
+		List<Message> newMessages = new ArrayList<>();
+
+		// A UID range always includes the last message, even if its UID is below the start.
+		for (Message msg : uidInbox.getMessagesByUID(lastUid + 1, UIDFolder.LASTUID)) {
+			long uid = uidInbox.getUID(msg);
+
+			if (uid > lastUid) {
+				newMessages.add(msg);
+			}
+		}
+
+		return newMessages.toArray(new Message[0]);
+	}
+
+	/**
+	 * Checks if the inbox has messages that the next fetch would scan.<br>
+	 *
+	 * @throws MessagingException
+	 *             If something goes wrong while retrieving the messages.
+	 */
+	private boolean hasNewMessages(Folder inbox) throws MessagingException {
+		return newMessages(inbox).length > 0;
+	}
+
+	/**
+	 * Lets the server select the unread messages from the expected sender within
+	 * the time limit, so only candidates have to be downloaded.<br>
+	 * The server only compares dates, not times. The exact time limit is checked
+	 * after fetching.<br>
+	 *
+	 * @throws MessagingException
+	 *             If something goes wrong while searching.
+	 */
+	private Message[] search(Folder inbox, Message[] messages) throws MessagingException {
+		if (messages.length == 0) {
+			return messages;
+		}
+
+		return inbox.search(searchTerm(LocalDateTime.now()), messages);
+	}
+
+	/**
+	 * Unread, from the expected sender and sent since the time limit.<br>
+	 */
+	SearchTerm searchTerm(LocalDateTime now) {
+		Date since = Date.from(now.minusSeconds(timeLimit).atZone(ZoneId.systemDefault()).toInstant());
+
+		return new AndTerm(new SearchTerm[] {
+				new FlagTerm(new Flags(Flag.SEEN), false),
+				new FromStringTerm(configurationService.getExpectedSender()),
+				new SentDateTerm(ComparisonTerm.GE, since) });
+	}
+
+	/**
+	 * Retrieves the envelope, flags and UIDs of all messages in a single request
+	 * instead of one round trip per message and attribute.<br>
+	 *
+	 * @throws MessagingException
+	 *             If something goes wrong while fetching.
+	 */
+	private void prefetch(Folder inbox, Message[] messages) throws MessagingException {
+		if (messages.length > 0) {
+			FetchProfile profile = new FetchProfile();
+			profile.add(FetchProfile.Item.ENVELOPE);
+			profile.add(FetchProfile.Item.FLAGS);
+			profile.add(UIDFolder.FetchProfileItem.UID);
+
+			inbox.fetch(messages, profile);
+		}
+	}
+
+	/**
+	 * Remembers the highest UID of the processed messages so the next fetch only
+	 * retrieves newer messages.<br>
+	 *
+	 * @throws MessagingException
+	 *             If the UID couldn't be retrieved.
+	 */
+	private void markScanned(Folder inbox, Message[] messages) throws MessagingException {
+		if (inbox instanceof UIDFolder && messages.length > 0) {
+			lastUid = Math.max(lastUid, ((UIDFolder) inbox).getUID(messages[messages.length - 1]));
+		}
+	}
+
+	/**
+	 * Forgets the last seen UID, the next fetch will scan the whole inbox.<br>
+	 */
+	private void resetScanPosition() {
+		uidValidity = -1;
+		lastUid = 0;
+	}
+
+	/**
+	 * Returns the state of the connection to the mail server.<br>
+	 * 
+	 */
+	public ConnectionState getConnectionState() {
+		return connectionState;
+	}
+
+	/**
+	 * Returns a connected store.<br>
+	 * Reconnects if there is no connection yet, if the connection is lost or if
+	 * the mail configuration has changed since connecting.<br>
+	 * 
+	 * @throws MailClientException
+	 *             If something goes wrong while connecting to the server or if
+	 *             we're still backing off from a failed attempt.
+	 */
+	private Store openStore() throws MailClientException {
+		synchronized (connectionLock) {
+			if (store != null && !settingsChanged() && store.isConnected()) {
+				return store;
+			}
+
+			if (store != null) {
+				connectionLost();
+			}
+			checkBackoff();
+
+			Properties mailProps = mailProperties();
+			String username = username();
+			String password = password();
+
+			try {
+				Store created = createStore(mailProps);
+				created.connect(username, password);
+
+				if (!mailProps.equals(connectedProperties) || !username.equals(connectedUsername)) {
+					resetScanPosition();
+				}
+
+				store = created;
+				connectedProperties = mailProps;
+				connectedUsername = username;
+				connectedPassword = password;
+				failedAttempts = 0;
+				connectionState = ConnectionState.CONNECTED;
+				log.debug("Connected to the mail store.");
+
+				return created;
+			} catch (IllegalStateException | MessagingException e) {
+				log.debug("Exception: ", e);
+				scheduleReconnect();
+				throw new MailClientException("Couldn't connect to the mail server!", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the opened inbox.<br>
+	 * Sends a NOOP to verify an already opened inbox is still alive and to pick up
+	 * new mails.<br>
+	 * 
+	 * @throws MailClientException
+	 *             If the connection to the server couldn't be (re)established.
+	 */
+	private Folder openFolder() throws MailClientException {
+		synchronized (connectionLock) {
+			Store current = openStore();
+
+			if (folder != null && folder.isOpen() && alive(folder)) {
+				return folder;
+			}
+
+			try {
+				Folder inbox = current.getFolder(inbox());
+				inbox.open(Folder.READ_WRITE);
+				folder = inbox;
+
+				return inbox;
+			} catch (IllegalStateException | MessagingException e) {
+				log.debug("Exception: ", e);
+				connectionLost();
+				throw new MailClientException("Couldn't open the inbox!", e);
+			}
+		}
+	}
+
+	/**
+	 * Sends a NOOP to the server for the provided folder.<br>
 	 * 
-	 * @return true if connected.
+	 * @return True if the server answered.
+	 */
+	private boolean alive(Folder inbox) {
+		try {
+			if (inbox instanceof IMAPFolder) {
+				((IMAPFolder) inbox).doCommand(protocol -> {
+					protocol.noop();
+					return null;
+				});
+			} else {
+				inbox.getMessageCount();
+			}
+
+			return true;
+		} catch (MessagingException e) {
+			log.debug("The connection to the mail folder was lost. Received the following exception:\n", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the mail configuration changed since the current connection was
+	 * made.<br>
+	 */
+	private boolean settingsChanged() {
+		return !mailProperties().equals(connectedProperties)
+				|| !username().equals(connectedUsername)
+				|| !password().equals(connectedPassword);
+	}
+
+	/**
 	 * @throws MailClientException
-	 *             If something goes wrong while connecting to the server.
+	 *             If the delay after the last failed connection attempt hasn't
+	 *             passed yet.
+	 */
+	private void checkBackoff() throws MailClientException {
+		long remaining = nextAttempt - System.currentTimeMillis();
+
+		if (remaining > 0) {
+			throw new MailClientException(
+					"Couldn't connect to the mail server. Trying to reconnect in " + remaining + " ms.");
+		}
+	}
+
+	/**
+	 * Doubles the delay before the next connection attempt, up to a maximum of
+	 * MAX_RECONNECT_DELAY.<br>
+	 */
+	private void scheduleReconnect() {
+		long delay = Math.min(MAX_RECONNECT_DELAY, INITIAL_RECONNECT_DELAY << Math.min(failedAttempts, 16));
+		failedAttempts++;
+		nextAttempt = System.currentTimeMillis() + delay;
+		connectionState = ConnectionState.RECONNECTING;
+
+		log.debug("Connection attempt {} failed. Retrying in {} ms.", failedAttempts, delay);
+	}
+
+	/**
+	 * Closes the (broken) connection so the next call reconnects.<br>
 	 */
-	private boolean openConnection() throws MailClientException {
-		Properties mailProps = configurationService.getMailConfigurationAsProperties();
-		addTimeOuts(mailProps);
+	private void connectionLost() {
+		synchronized (connectionLock) {
+			closeConnection();
+			connectionState = ConnectionState.RECONNECTING;
+		}
+	}
+
+	/**
+	 * Creates a new, unconnected, store for the configured mail server.
+	 * 
+	 * @throws NoSuchProviderException
+	 *             If the configured protocol isn't supported.
+	 */
+	private Store createStore(Properties mailProps) throws NoSuchProviderException {
+		Properties sessionProps = new Properties();
+		sessionProps.putAll(mailProps);
+		addTimeOuts(sessionProps);
 
 		log.debug("Connecting to the mail server.");
-		Session session = Session.getInstance(mailProps, null);
+		Session session = Session.getInstance(sessionProps, null);
 
+		return session.getStore();
+	}
+
+	/**
+	 * Checks if the mail server supports the IMAP IDLE command.<br>
+	 * 
+	 * @return True if the server supports IDLE. False if it doesn't or if the
+	 *         server couldn't be reached.
+	 */
+	public boolean supportsIdle() {
 		try {
-			store = session.getStore();
-			store.addConnectionListener(listener);
-			store.connect(configurationService.getUsername(), configurationService.getPassword());
+			Store current = openStore();
+
+			return current instanceof IMAPStore && ((IMAPStore) current).hasCapability(IDLE_CAPABILITY);
+		} catch (MessagingException | MailClientException e) {
+			log.debug("Exception: ", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Waits for new mails using the IMAP IDLE command.<br>
+	 * Blocks until the server signals a change in the inbox or until the IDLE
+	 * command is interrupted by keepAlive() or a fetch on another thread.<br>
+	 * If there are already mails the last fetch didn't scan this method returns
+	 * immediately. Mails that were scanned but are still in the inbox don't
+	 * count, otherwise they would be fetched over and over again.<br>
+	 * 
+	 * @return True if there are mails the last fetch didn't scan.
+	 * @throws MailClientException
+	 *             If the connection to the mail server failed or the server
+	 *             doesn't support IDLE.
+	 */
+	public boolean idle() throws MailClientException {
+		Folder inbox = openFolder();
+
+		if (!(inbox instanceof IMAPFolder)) {
+			throw new MailClientException("IDLE is only supported for IMAP mail servers!");
+		}
+
+		// Deleted mails would otherwise count as new mails.
+		expungeDeleted();
+
+		try {
+			if (!hasNewMessages(inbox)) {
+				log.debug("Waiting for new mails.");
+				((IMAPFolder) inbox).idle(true);
+			}
+
+			return hasNewMessages(inbox);
 		} catch (IllegalStateException | MessagingException e) {
 			log.debug("Exception: ", e);
-			throw new MailClientException("Couldn't connect to the mail server!", e);
+			connectionLost();
+			throw new MailClientException("Lost the IDLE connection to the mail server!", e);
 		}
+	}
 
-		sleepForBroadcast();
-		return listener.isConnected();
+	/**
+	 * Interrupts a running IDLE command by sending a NOOP to the server.<br>
+	 * Should be called regularly (well within the mail server timeout) so the
+	 * connection doesn't time out.<br>
+	 */
+	public void keepAlive() {
+		Folder current = folder;
+
+		if (current != null && current.isOpen()) {
+			try {
+				current.getMessageCount();
+			} catch (MessagingException e) {
+				log.debug("Failed to keep the connection alive.\nReceived the following exception:\n", e);
+			}
+		}
 	}
 
 	/**
@@ -130,145 +552,168 @@ public class MailClient {
 	 * <br>
 	 * See also:
 	 * https://www.javacodegeeks.com/2014/06/javamail-can-be-evil-and-force-you-to-restart-your-app-server.html<br>
-	 *
+	 * 
 	 * @param mailProperties
 	 */
 	private void addTimeOuts(Properties mailProperties) {
 		log.debug("Setting mail client timeouts.");
 		String mail = "mail.";
-		String protocol = configurationService.getProtocol();
+		String protocol = protocol();
 		mailProperties.put(mail + protocol + ".connectiontimeout", DEFAULT_TIMEOUT);
 		mailProperties.put(mail + protocol + ".timeout", DEFAULT_TIMEOUT);
 		mailProperties.put(mail + protocol + ".writetimeout", DEFAULT_TIMEOUT);
 	}
 
 	/**
-	 * Filters out all the mails that:<br>
+	 * Filters out all the candidates that:<br>
 	 * - Aren't from the expected sender.<br>
 	 * - Are outside of the time limit.<br>
 	 * <br>
-	 * Returns a List<String> with the subjects of the remaining messages.<br>
+	 * All scanned messages are deleted afterwards.<br>
+	 * Returns a List<String> with the subjects and body lines of the remaining
+	 * messages.<br>
 	 * 
+	 * @param inbox
 	 * @param messages
+	 *            All messages scanned in this pass.
+	 * @param candidates
+	 *            The messages matching the server side search.
 	 * @return
 	 * @throws MessagingException
 	 *             If something goes wrong while fetching.
 	 */
-	private List<String> checkMails(Message[] messages) throws MessagingException {
-		List<String> subjectLines = new ArrayList<>();
+	private List<String> checkMails(Folder inbox, Message[] messages, Message[] candidates)
+			throws MessagingException {
+		Set<String> orderLines = new LinkedHashSet<>();
+
+		List<Message> read = new ArrayList<>();
 
 		log.debug("Processing messages.");
-		for (Message msg : messages) {
+		for (Message msg : candidates) {
 			if (unread(msg)) {
-				LocalDateTime date = convertToLocalDateTime(msg);
+				LocalDateTime date = MailFilter.convertToLocalDateTime(msg);
 
 				log.debug("Checking if mail is within timelimit.");
-				if (withinTimeLimit(date)) {
+				if (MailFilter.withinTimeLimit(date, timeLimit)) {
 
 					Address[] from = msg.getFrom();
 
 					log.debug("Checking if sender is valid.");
-					if (addressPresent(from) && fromExpectedSender(from)) {
-
-						log.debug("Fetching subject");
-						String subject = msg.getSubject();
+					if (MailFilter.addressPresent(from)
+							&& MailFilter.fromExpectedSender(from, configurationService.getExpectedSender())) {
 
-						addSubjectLine(subjectLines, subject);
+						log.debug("Fetching subject and body");
+						for (String line : MailFilter.orderLines(msg)) {
+							addOrderLine(orderLines, line);
+						}
 					}
 				}
 
-				// Reading the message
-				msg.setFlag(Flag.SEEN, true);
+				read.add(msg);
 			}
-			// 'Deleting' the message.
-			msg.setFlag(Flag.DELETED, true);
 		}
 
-		log.debug("Expunging folder.");
-		folder.expunge();
+		updateFlags(inbox, messages, read);
+		markScanned(inbox, messages);
 
-		log.debug("Fetched subjectlines.");
-		return subjectLines;
-	}
-
-	private boolean unread(Message msg) throws MessagingException {
-		return !msg.isSet(Flag.SEEN);
+		log.debug("Fetched order lines.");
+		return new ArrayList<>(orderLines);
 	}
 
 	/**
-	 * Retrieves the sent date from the message and converts the old Java Date
-	 * object, returned by JavaMail, to the new LocalDateTime API.<br>
-	 * <br>
-	 * Adapted from https://stackoverflow.com/a/23885950.<br>
-	 * 
+	 * Marks the read messages as seen and 'deletes' all scanned messages, using one
+	 * STORE command per flag instead of one per message.<br>
+	 * The deleted messages are expunged right away unless expunging is deferred,
+	 * see setDeferExpunge(boolean).<br>
+	 *
 	 * @throws MessagingException
-	 *             If the sentDate couldn't be retrieved from the message.
+	 *             If the flags couldn't be set.
 	 */
-	private LocalDateTime convertToLocalDateTime(Message msg) throws MessagingException {
-		return LocalDateTime.ofInstant(msg.getSentDate().toInstant(), ZoneId.systemDefault());
-	}
+	private void updateFlags(Folder inbox, Message[] messages, List<Message> read) throws MessagingException {
+		if (!read.isEmpty()) {
+			inbox.setFlags(read.toArray(new Message[0]), new Flags(Flag.SEEN), true);
+		}
 
-	/**
-	 * Checks if the received date is within the specified time limit.<br>
-	 * 
-	 */
-	private boolean withinTimeLimit(LocalDateTime receivedDate) {
-		return receivedDate.isAfter(LocalDateTime.now().minusSeconds(timeLimit));
+		if (messages.length > 0) {
+			inbox.setFlags(messages, new Flags(Flag.DELETED), true);
+			expungePending = true;
+		}
+
+		if (!deferExpunge) {
+			expungeDeleted();
+		}
 	}
 
 	/**
-	 * Checks if any senders are present.<br>
-	 * 
+	 * Permanently removes the messages deleted by previous fetches.<br>
+	 * Does nothing if there is nothing to expunge or the connection is closed.<br>
 	 */
-	private boolean addressPresent(Address[] from) {
-		return from != null && from.length > 0;
+	public void expungeDeleted() {
+		synchronized (connectionLock) {
+			Folder current = folder;
+
+			if (expungePending && current != null && current.isOpen()) {
+				try {
+					log.debug("Expunging folder.");
+					current.expunge();
+					expungePending = false;
+				} catch (MessagingException e) {
+					log.debug("Failed to expunge the mail folder.\nReceived the following exception:\n", e);
+				}
+			}
+		}
 	}
 
-	/**
-	 * Checks if the sender is the expected sender.<br>
-	 * 
-	 */
-	private boolean fromExpectedSender(Address[] from) {
-		return from[0].toString().contains(configurationService.getExpectedSender());
+	private boolean unread(Message msg) throws MessagingException {
+		return !msg.isSet(Flag.SEEN);
 	}
 
 	/**
-	 * Add the subject to the list of subject lines.<br>
+	 * Add the line to the list of order lines.<br>
 	 * Duplicate lines will be ignored.<br>
 	 * 
 	 */
-	private void addSubjectLine(List<String> subjectLines, String subject) {
-		if (!subjectLines.contains(subject)) {
-			log.debug("Adding subject: {}", subject);
-			subjectLines.add(subject);
+	private void addOrderLine(Set<String> orderLines, String line) {
+		if (orderLines.add(line)) {
+			log.debug("Adding order line: {}", line);
 		}
 	}
 
 	/**
-	 * Closes the connection to the mail server.
+	 * Closes the connection to the mail server.<br>
+	 * A blocked idle() call will return with a MailClientException.<br>
 	 * 
 	 * @return true if successful.
 	 */
-	protected boolean closeConnection() {
-		if (folder != null && folder.isOpen()) {
-			try {
-				folder.close(false);
-			} catch (MessagingException e) {
-				log.debug("Failed to close the connection to the mail folder.\nReceived the following exception:\n", e);
+	public boolean closeConnection() {
+		synchronized (connectionLock) {
+			Folder currentFolder = folder;
+			Store currentStore = store;
+			folder = null;
+			store = null;
+
+			if (currentFolder != null && currentFolder.isOpen()) {
+				try {
+					currentFolder.close(false);
+				} catch (MessagingException e) {
+					log.debug("Failed to close the connection to the mail folder.\nReceived the following exception:\n",
+							e);
+				}
 			}
-		}
 
-		if (store != null) {
-			try {
-				store.close();
-			} catch (MessagingException e) {
-				log.debug("Failed to close the connection to the mail store.\nReceived the following exception:\n", e);
+			if (currentStore != null) {
+				try {
+					currentStore.close();
+					log.debug("Closed the connection to the mail store.");
+				} catch (MessagingException e) {
+					log.debug("Failed to close the connection to the mail store.\nReceived the following exception:\n",
+							e);
+				}
 			}
-		}
 
-		sleepForBroadcast();
-
-		return listener.isClosed();
+			connectionState = ConnectionState.DISCONNECTED;
+			return currentStore == null || !currentStore.isConnected();
+		}
 	}
 
 	/**
@@ -282,18 +727,23 @@ public class MailClient {
 	}
 
 	/**
-	 * Sleep for 20 ms<br>
-	 * The connection event isn't broadcasted immediately so we wait a short
-	 * time.<br>
-	 * 
+	 * Sets whether deleted mails are expunged during the fetch or later on, when
+	 * expungeDeleted() is called.<br>
+	 * Deferring keeps the expunge off the path between receiving an alert and
+	 * placing the order.<br>
+	 *
 	 */
-	private void sleepForBroadcast() {
-		try {
-			Thread.sleep(20);
-		} catch (InterruptedException e) {
-			log.error("Connection event sleep got interrupted!");
-			Thread.currentThread().interrupt();
-		}
+	public void setDeferExpunge(boolean deferExpunge) {
+		this.deferExpunge = deferExpunge;
+	}
+
+	/**
+	 * States of the connection to the mail server.<br>
+	 */
+	public enum ConnectionState {
+		CONNECTED,
+		DISCONNECTED,
+		RECONNECTING
 	}
 
 }
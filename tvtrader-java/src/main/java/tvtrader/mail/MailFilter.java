@@ -0,0 +1,124 @@
+package tvtrader.mail;
+
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rules an alert mail has to pass before its subject and body are used as
+ * order lines. Shared by the MailClient and the SmtpReceiver.<br>
+ * 
+ * @author Wouter
+ *
+ */
+@Log4j2
+@UtilityClass
+class MailFilter {
+
+	/**
+	 * Retrieves the sent date from the message and converts the old Java Date
+	 * object, returned by JavaMail, to the new LocalDateTime API.<br>
+	 * <br>
+	 * Adapted from https://stackoverflow.com/a/23885950.<br>
+	 * 
+	 * @throws MessagingException
+	 *             If the sentDate couldn't be retrieved from the message.
+	 */
+	LocalDateTime convertToLocalDateTime(Message msg) throws MessagingException {
+		return LocalDateTime.ofInstant(msg.getSentDate().toInstant(), ZoneId.systemDefault());
+	}
+
+	/**
+	 * Checks if the received date is within the specified time limit in
+	 * seconds.<br>
+	 * 
+	 */
+	boolean withinTimeLimit(LocalDateTime receivedDate, int timeLimit) {
+		return receivedDate.isAfter(LocalDateTime.now().minusSeconds(timeLimit));
+	}
+
+	/**
+	 * Checks if any senders are present.<br>
+	 * 
+	 */
+	boolean addressPresent(Address[] from) {
+		return from != null && from.length > 0;
+	}
+
+	/**
+	 * Checks if the sender is the expected sender.<br>
+	 * 
+	 */
+	boolean fromExpectedSender(Address[] from, String expectedSender) {
+		return from[0].toString().contains(expectedSender);
+	}
+
+	/**
+	 * Returns the subject and the lines of the plain text body of the mail, the
+	 * places an alert can hold order lines.<br>
+	 * Blank lines, an HTML body and attachments are ignored. If the body can't be
+	 * read only the subject is returned.<br>
+	 * 
+	 * @throws MessagingException
+	 *             If the subject couldn't be retrieved from the message.
+	 */
+	List<String> orderLines(Message msg) throws MessagingException {
+		List<String> lines = new ArrayList<>();
+
+		if (msg.getSubject() != null) {
+			lines.add(msg.getSubject());
+		}
+
+		try {
+			String body = textBody(msg);
+
+			if (body != null) {
+				for (String line : body.split("\\R")) {
+					if (!line.trim().isEmpty()) {
+						lines.add(line.trim());
+					}
+				}
+			}
+		} catch (IOException | MessagingException e) {
+			log.debug("Exception: ", e);
+			log.info("Couldn't read the body of a mail, only using the subject. Received the following message: {}",
+					e.getMessage());
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Returns the first text/plain part of the mail or null if there is none.<br>
+	 */
+	private String textBody(Part part) throws MessagingException, IOException {
+		if (part.isMimeType("text/plain")) {
+			return part.getContent().toString();
+		}
+
+		if (part.isMimeType("multipart/*")) {
+			Multipart multipart = (Multipart) part.getContent();
+
+			for (int i = 0; i < multipart.getCount(); i++) {
+				String text = textBody(multipart.getBodyPart(i));
+
+				if (text != null) {
+					return text;
+				}
+			}
+		}
+
+		return null;
+	}
+
+}
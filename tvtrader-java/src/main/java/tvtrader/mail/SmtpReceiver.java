@@ -0,0 +1,364 @@
+package tvtrader.mail;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tvtrader.services.ConfigurationService;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Minimal SMTP server that accepts alert mails directly, as an alternative for
+ * polling a mailbox.<br>
+ * Supports just enough of SMTP (RFC 5321) to receive mails: HELO, EHLO, MAIL,
+ * RCPT, DATA, RSET, NOOP and QUIT. Mails are accepted for any recipient.<br>
+ * <br>
+ * The received mails have to pass the same rules as the mails fetched by the
+ * MailClient: they have to be from the expected sender and within the time
+ * limit. The subject and the lines of the plain text body of the mails that
+ * pass are handed to the consumer provided on start, one batch per mail.<br>
+ * <br>
+ * There is no authentication and the From: header is easily forged, so anyone
+ * who can reach the port can place orders. The receiver listens on the
+ * loopback address unless another address is configured; never expose the
+ * port to an untrusted network.<br>
+ * <br>
+ * At most 4 clients are served at the same time, others are turned away with a
+ * 421 reply. Lines longer than 1000 characters are rejected.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class SmtpReceiver implements Closeable {
+	// Mails older than this will be ignored.
+	private static final int DEFAULT_TIME_LIMIT_IN_SECONDS = 300;
+
+	// Timeout for reading from a connection in ms.
+	private static final int DEFAULT_TIMEOUT = 10_000;
+
+	// Alert mails are tiny, anything bigger is rejected.
+	private static final int MAX_MESSAGE_SIZE = 1_048_576;
+
+	// Line length without the CRLF, a bit more lenient than RFC 5321.
+	private static final int MAX_LINE_LENGTH = 1_000;
+
+	// Alerts come from a single sender, a few connections are plenty.
+	private static final int MAX_CONNECTIONS = 4;
+
+	private int timeLimit = DEFAULT_TIME_LIMIT_IN_SECONDS;
+
+	private ConfigurationService configurationService;
+	private Session session = Session.getInstance(new Properties());
+
+	private volatile ServerSocket serverSocket;
+	private ExecutorService connectionExecutor;
+	private Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+	private Consumer<List<String>> orderLineConsumer;
+
+	@Autowired
+	public SmtpReceiver(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	/**
+	 * Starts listening for mails on the provided port of the loopback
+	 * address.<br>
+	 *
+	 * @see #start(String, int, Consumer)
+	 */
+	public void start(int port, Consumer<List<String>> orderLineConsumer) throws MailClientException {
+		start(null, port, orderLineConsumer);
+	}
+
+	/**
+	 * Starts listening for mails on the provided address and port.<br>
+	 *
+	 * @param address
+	 *            The address to listen on. Null for the loopback address.
+	 * @param port
+	 *            The port to listen on. 0 picks a free port, see getPort().
+	 * @param orderLineConsumer
+	 *            Receives the subject and body lines of every accepted mail.
+	 *            Called on the connection thread.
+	 * @throws MailClientException
+	 *             If the port couldn't be opened.
+	 */
+	public synchronized void start(String address, int port, Consumer<List<String>> orderLineConsumer)
+			throws MailClientException {
+		if (serverSocket != null) {
+			throw new MailClientException("The SMTP receiver is already running!");
+		}
+
+		try {
+			serverSocket = new ServerSocket(port, 0, InetAddress.getByName(address));
+		} catch (IOException e) {
+			throw new MailClientException("Couldn't listen for mails on " + address + ":" + port + "!", e);
+		}
+
+		this.orderLineConsumer = orderLineConsumer;
+		// One extra thread for accepting the connections.
+		connectionExecutor = Executors.newFixedThreadPool(MAX_CONNECTIONS + 1);
+		connectionExecutor.submit(this::acceptConnections);
+
+		log.info("Listening for mails on {}:{}.", serverSocket.getInetAddress().getHostAddress(),
+				serverSocket.getLocalPort());
+	}
+
+	/**
+	 * Returns the port the receiver listens on or -1 if it isn't running.<br>
+	 *
+	 */
+	public int getPort() {
+		ServerSocket current = serverSocket;
+
+		return current == null ? -1 : current.getLocalPort();
+	}
+
+	/**
+	 * Returns the address the receiver listens on or null if it isn't
+	 * running.<br>
+	 *
+	 */
+	public InetAddress getAddress() {
+		ServerSocket current = serverSocket;
+
+		return current == null ? null : current.getInetAddress();
+	}
+
+	private void acceptConnections() {
+		ServerSocket current = serverSocket;
+
+		while (current != null && !current.isClosed()) {
+			try {
+				Socket socket = current.accept();
+
+				if (connections.tryAcquire()) {
+					connectionExecutor.submit(() -> {
+						try {
+							handleConnection(socket);
+						} finally {
+							connections.release();
+						}
+					});
+				} else {
+					refuseConnection(socket);
+				}
+			} catch (SocketException e) {
+				log.debug("Stopped accepting connections.");
+			} catch (IOException e) {
+				log.debug("Exception: ", e);
+				log.info("Couldn't accept a connection. Received the following message: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Turns a client away because too many clients are connected.<br>
+	 */
+	private void refuseConnection(Socket socket) {
+		try (Socket client = socket;
+				Writer writer = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+			log.info("Too many SMTP clients connected. Refusing a connection.");
+			reply(writer, "421 Too many connections, try again later");
+		} catch (IOException e) {
+			log.debug("Exception: ", e);
+		}
+	}
+
+	/**
+	 * Runs the SMTP conversation with a client.<br>
+	 */
+	private void handleConnection(Socket socket) {
+		try (Socket client = socket;
+				BufferedReader reader = new BufferedReader(
+						new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+				Writer writer = new BufferedWriter(
+						new OutputStreamWriter(client.getOutputStream(), StandardCharsets.ISO_8859_1))) {
+
+			client.setSoTimeout(DEFAULT_TIMEOUT);
+			reply(writer, "220 tvtrader SMTP ready");
+
+			String line;
+			while ((line = readLine(reader)) != null) {
+				if (line.length() > MAX_LINE_LENGTH) {
+					reply(writer, "500 Line too long");
+					continue;
+				}
+
+				String command = line.length() < 4 ? line : line.substring(0, 4);
+
+				switch (command.toUpperCase(Locale.ENGLISH)) {
+				case "HELO":
+				case "EHLO":
+				case "MAIL":
+				case "RCPT":
+				case "RSET":
+				case "NOOP":
+					reply(writer, "250 OK");
+					break;
+				case "DATA":
+					reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+					receiveData(reader, writer);
+					break;
+				case "QUIT":
+					reply(writer, "221 Bye");
+					return;
+				default:
+					reply(writer, "502 Command not implemented");
+				}
+			}
+		} catch (IOException e) {
+			log.debug("Exception: ", e);
+			log.info("Lost the connection to an SMTP client. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the mail up to the terminating dot and processes it.<br>
+	 * If the client disconnects before the dot, the transaction is aborted: the
+	 * mail isn't answered or processed.<br>
+	 */
+	private void receiveData(BufferedReader reader, Writer writer) throws IOException {
+		StringBuilder data = new StringBuilder();
+		boolean tooBig = false;
+
+		String line;
+		while (!".".equals(line = readLine(reader))) {
+			if (line == null) {
+				log.info("An SMTP client disconnected before the end of the mail. Ignoring the mail.");
+				return;
+			}
+
+			// Undo the dot stuffing.
+			if (line.startsWith(".")) {
+				line = line.substring(1);
+			}
+
+			if (line.length() > MAX_LINE_LENGTH || data.length() + line.length() > MAX_MESSAGE_SIZE) {
+				tooBig = true;
+			} else if (!tooBig) {
+				data.append(line).append("\r\n");
+			}
+		}
+
+		if (tooBig) {
+			reply(writer, "552 Message too big");
+		} else {
+			reply(writer, "250 OK");
+			processMail(data.toString().getBytes(StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	/**
+	 * Reads a line without the line ending, or null at the end of the
+	 * stream.<br>
+	 * Only the first MAX_LINE_LENGTH + 1 characters of a line are kept, so a
+	 * client can't run us out of memory. Callers reject lines longer than
+	 * MAX_LINE_LENGTH.<br>
+	 */
+	private String readLine(BufferedReader reader) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int length = 0;
+
+		int c;
+		while ((c = reader.read()) != -1 && c != '\n') {
+			if (length++ <= MAX_LINE_LENGTH) {
+				line.append((char) c);
+			}
+		}
+
+		if (c == -1 && length == 0) {
+			return null;
+		}
+
+		// Drop the CR of the line ending, as long as nothing was cut off.
+		if (length == line.length() && length > 0 && line.charAt(length - 1) == '\r') {
+			line.setLength(length - 1);
+		}
+
+		return line.toString();
+	}
+
+	/**
+	 * Hands the subject and body lines of the mail to the consumer if the mail is from the
+	 * expected sender and within the time limit.<br>
+	 */
+	private void processMail(byte[] data) {
+		try {
+			MimeMessage msg = new MimeMessage(session, new ByteArrayInputStream(data));
+
+			if (msg.getSentDate() == null) {
+				log.info("Ignoring mail without a sent date.");
+				return;
+			}
+
+			LocalDateTime date = MailFilter.convertToLocalDateTime(msg);
+			Address[] from = msg.getFrom();
+
+			if (MailFilter.withinTimeLimit(date, timeLimit) && MailFilter.addressPresent(from)
+					&& MailFilter.fromExpectedSender(from, configurationService.getExpectedSender())) {
+				List<String> orderLines = MailFilter.orderLines(msg);
+
+				log.debug("Received order lines: {}", orderLines);
+				orderLineConsumer.accept(orderLines);
+			}
+		} catch (MessagingException e) {
+			log.debug("Exception: ", e);
+			log.info("Couldn't read a received mail. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	private void reply(Writer writer, String reply) throws IOException {
+		writer.write(reply);
+		writer.write("\r\n");
+		writer.flush();
+	}
+
+	/**
+	 * Sets the time limit for emails in seconds.<br>
+	 * Emails older than this limit will be ignored.<br>
+	 *
+	 */
+	public void setTimeLimit(int timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Stops listening for mails.<br>
+	 */
+	@Override
+	public synchronized void close() {
+		ServerSocket current = serverSocket;
+		serverSocket = null;
+
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				log.debug("Failed to close the SMTP receiver.\nReceived the following exception:\n", e);
+			}
+
+			connectionExecutor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+package tvtrader.model;
+
+import lombok.Data;
+
+/**
+ * Model representing the settings of the http client used to contact the
+ * exchanges.<br>
+ * The defaults are the defaults of OkHttp, except for the number of requests
+ * per host: all the calls go to the same few exchange hosts.<br>
+ *
+ * @author Wouter
+ */
+@Data
+public class HttpClientConfiguration {
+	private static final String INVALID_TIMEOUT_MESSAGE = "Timeout has to be >= 0!";
+	private static final String INVALID_LIMIT_MESSAGE = "Limit has to be > 0!";
+
+	// In milliseconds, 0 means no timeout.
+	private int connectTimeout = 10_000;
+	private int readTimeout = 10_000;
+	private int writeTimeout = 10_000;
+
+	private int maxIdleConnections = 5;
+
+	// In seconds.
+	private int keepAlive = 300;
+
+	private int maxRequests = 64;
+	private int maxRequestsPerHost = 16;
+	private boolean http2 = true;
+	private boolean warmUp = true;
+
+	// Requests per minute, 0 means no limit. Off by default: the budget has to
+	// fit the refresh rates, a ticker refresh every second alone takes 60.
+	private int rateLimitPerExchange = 0;
+	private int rateLimitPerKey = 0;
+
+	// Percentage of failed or slow calls that opens a circuit, 0 disables them.
+	private int circuitFailureRate = 50;
+
+	// In milliseconds, 0 means slow calls don't count as failed.
+	private int circuitSlowCall = 5_000;
+
+	// In milliseconds.
+	private int circuitOpenTime = 30_000;
+
+	// Sends a second request for a public read that takes longer than usual.
+	private boolean hedgeReads = false;
+
+	private int retryAttempts = 3;
+
+	// In milliseconds, 0 means no deadline.
+	private int retryDeadline = 15_000;
+
+	/**
+	 * Sets the timeout for connecting to the exchange in milliseconds.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided timeout is < 0.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = checkTimeout(connectTimeout);
+	}
+
+	/**
+	 * Sets the timeout for reading a response in milliseconds.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided timeout is < 0.
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = checkTimeout(readTimeout);
+	}
+
+	/**
+	 * Sets the timeout for writing a request in milliseconds.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided timeout is < 0.
+	 */
+	public void setWriteTimeout(int writeTimeout) {
+		this.writeTimeout = checkTimeout(writeTimeout);
+	}
+
+	/**
+	 * Sets the number of idle connections kept open per client.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided number is < 0.
+	 */
+	public void setMaxIdleConnections(int maxIdleConnections) {
+		if (maxIdleConnections < 0) {
+			throw new IllegalArgumentException("Idle connections has to be >= 0!");
+		}
+
+		this.maxIdleConnections = maxIdleConnections;
+	}
+
+	/**
+	 * Sets the number of seconds an idle connection is kept open.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided time is <= 0.
+	 */
+	public void setKeepAlive(int keepAlive) {
+		if (keepAlive <= 0) {
+			throw new IllegalArgumentException("Keep alive has to be > 0!");
+		}
+
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent asynchronous requests.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided limit is <= 0.
+	 */
+	public void setMaxRequests(int maxRequests) {
+		this.maxRequests = checkLimit(maxRequests);
+	}
+
+	/**
+	 * Sets the maximum number of concurrent asynchronous requests to a single
+	 * host.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided limit is <= 0.
+	 */
+	public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+		this.maxRequestsPerHost = checkLimit(maxRequestsPerHost);
+	}
+
+	/**
+	 * Sets the number of requests per minute to a single exchange.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided limit is < 0.
+	 */
+	public void setRateLimitPerExchange(int rateLimitPerExchange) {
+		this.rateLimitPerExchange = checkRateLimit(rateLimitPerExchange);
+	}
+
+	/**
+	 * Sets the number of requests per minute for a single api key.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided limit is < 0.
+	 */
+	public void setRateLimitPerKey(int rateLimitPerKey) {
+		this.rateLimitPerKey = checkRateLimit(rateLimitPerKey);
+	}
+
+	/**
+	 * Sets the percentage of the recent calls to an endpoint that have to fail
+	 * or be slow to open its circuit.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided percentage isn't between 0 and 100.
+	 */
+	public void setCircuitFailureRate(int circuitFailureRate) {
+		if (circuitFailureRate < 0 || circuitFailureRate > 100) {
+			throw new IllegalArgumentException("Failure rate has to be between 0 and 100!");
+		}
+
+		this.circuitFailureRate = circuitFailureRate;
+	}
+
+	/**
+	 * Sets the milliseconds after which a call counts as slow.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided time is < 0.
+	 */
+	public void setCircuitSlowCall(int circuitSlowCall) {
+		this.circuitSlowCall = checkTimeout(circuitSlowCall);
+	}
+
+	/**
+	 * Sets the milliseconds an open circuit waits before it lets a probe
+	 * through.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided time is <= 0.
+	 */
+	public void setCircuitOpenTime(int circuitOpenTime) {
+		this.circuitOpenTime = checkLimit(circuitOpenTime);
+	}
+
+	/**
+	 * Sets the maximum number of times a read is sent.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided number is <= 0.
+	 */
+	public void setRetryAttempts(int retryAttempts) {
+		this.retryAttempts = checkLimit(retryAttempts);
+	}
+
+	/**
+	 * Sets the milliseconds a read may take with all its attempts.<br>
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the provided time is < 0.
+	 */
+	public void setRetryDeadline(int retryDeadline) {
+		this.retryDeadline = checkTimeout(retryDeadline);
+	}
+
+	private int checkRateLimit(int rateLimit) {
+		if (rateLimit < 0) {
+			throw new IllegalArgumentException("Rate limit has to be >= 0!");
+		}
+
+		return rateLimit;
+	}
+
+	private int checkTimeout(int timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException(INVALID_TIMEOUT_MESSAGE);
+		}
+
+		return timeout;
+	}
+
+	private int checkLimit(int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException(INVALID_LIMIT_MESSAGE);
+		}
+
+		return limit;
+	}
+
+}
@@ -0,0 +1,88 @@
+package tvtrader.orders;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tvtrader.model.Account;
+import tvtrader.model.MarketOrder;
+import tvtrader.services.AccountService;
+import tvtrader.services.ConfigurationService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Expands orders for multiple accounts into an order per account.<br>
+ * The account of an order line can be:<br>
+ * - the wildcard (*): every account at the exchange.<br>
+ * - the name of an account group: every account in the group that is known at
+ * the exchange.<br>
+ * - the name of an account: just that account.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class AccountExpander {
+	private static final String WILDCARD = "*";
+
+	private AccountService accountService;
+	private ConfigurationService configurationService;
+
+	@Autowired
+	public AccountExpander(AccountService accountService, ConfigurationService configurationService) {
+		this.accountService = accountService;
+		this.configurationService = configurationService;
+	}
+
+	/**
+	 * Returns an order for every account the order is addressed to.<br>
+	 * An order for a single account is returned as is.<br>
+	 */
+	public List<MarketOrder> expand(MarketOrder order) {
+		String exchange = order.getExchange();
+		List<String> accounts;
+
+		if (WILDCARD.equals(order.getAccount())) {
+			accounts = new ArrayList<>();
+			Iterator<Account> iterator = accountService.getAccounts(exchange);
+			iterator.forEachRemaining(account -> accounts.add(account.getName()));
+		} else if (!accountService.hasAccount(exchange, order.getAccount())
+				&& !configurationService.getAccountGroup(order.getAccount()).isEmpty()) {
+			accounts = new ArrayList<>();
+
+			for (String account : configurationService.getAccountGroup(order.getAccount())) {
+				if (accountService.hasAccount(exchange, account)) {
+					accounts.add(account);
+				} else {
+					log.info("Skipping unknown account {} of group {}.", account, order.getAccount());
+				}
+			}
+		} else {
+			return Collections.singletonList(order);
+		}
+
+		log.info("Expanding order for {} to {} accounts.", order.getAccount(), accounts.size());
+
+		List<MarketOrder> orders = new ArrayList<>(accounts.size());
+		for (String account : accounts) {
+			orders.add(copyFor(order, account));
+		}
+
+		return orders;
+	}
+
+	private MarketOrder copyFor(MarketOrder order, String account) {
+		MarketOrder copy = new MarketOrder();
+		copy.setExchange(order.getExchange());
+		copy.setAccount(account);
+		copy.setAltCoin(order.getAltCoin());
+		copy.setOrderType(order.getOrderType());
+
+		return copy;
+	}
+
+}
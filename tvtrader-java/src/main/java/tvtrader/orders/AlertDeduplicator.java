@@ -0,0 +1,346 @@
+package tvtrader.orders;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.services.ConfigurationService;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the recent alerts, so an alert that arrives more than once
+ * only results in one order.<br>
+ * The same alert can arrive in multiple polls, in multiple mailboxes or through
+ * both a mail and the webhook.<br>
+ * <br>
+ * An alert is a duplicate if the last alert for the same exchange, account and
+ * altcoin had the same order type and was seen within the dedup window. An
+ * alert for the opposite order type replaces the earlier one, so buying back
+ * after a sell still works.<br>
+ * If the order of an alert isn't placed, the alert is forgotten again, so a
+ * resent alert can still place it.<br>
+ * <br>
+ * At most 10000 markets are remembered, the oldest are forgotten first. If a
+ * dedup file is configured, the alerts are appended to it and read back on
+ * start, so duplicates are still recognized after a restart. The file is
+ * written on its own thread, so checking an alert never waits for the
+ * disk.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class AlertDeduplicator implements Closeable {
+	private static final int CAPACITY = 10_000;
+	private static final String SEPARATOR = " ";
+	private static final long CLOSE_TIMEOUT_IN_SECONDS = 5;
+
+	private ConfigurationService configurationService;
+
+	// Ordered by the time the alert was seen, oldest first.
+	private final Map<String, Alert> alerts = new LinkedHashMap<>();
+
+	private Path file;
+	private int appended;
+
+	// Only set while the dedup file is in use. The writer is only used on its
+	// thread.
+	private ExecutorService fileWriter;
+	private BufferedWriter writer;
+
+	@Autowired
+	public AlertDeduplicator(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	/**
+	 * Reads back the alerts from the dedup file, if configured.<br>
+	 * The file is rewritten with just the alerts that are still within the
+	 * window.<br>
+	 */
+	public synchronized void start() {
+		String fileName = configurationService.getDedupFile();
+
+		if (fileName == null || fileName.isEmpty()) {
+			return;
+		}
+
+		file = Paths.get(fileName);
+
+		try {
+			if (Files.exists(file)) {
+				readAlerts(Files.readAllLines(file, StandardCharsets.UTF_8));
+			}
+
+			log.info("Loaded {} recent alerts from {}.", alerts.size(), file);
+		} catch (IOException e) {
+			log.debug("Exception: ", e);
+			log.error("Couldn't use the dedup file. Keeping the alerts in memory. Received the following message: {}",
+					e.getMessage());
+			file = null;
+			return;
+		}
+
+		fileWriter = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dedup-file");
+			thread.setDaemon(true);
+			return thread;
+		});
+		rewriteFile();
+	}
+
+	/**
+	 * Checks if the order was already received within the dedup window.<br>
+	 * If it wasn't, the order is remembered until it's forgotten again.<br>
+	 *
+	 * @return True if the order should be ignored.
+	 */
+	public boolean isDuplicate(MarketOrder order) {
+		return isDuplicate(order, System.currentTimeMillis());
+	}
+
+	synchronized boolean isDuplicate(MarketOrder order, long now) {
+		long window = configurationService.getDedupWindow() * 1000L;
+
+		if (window <= 0) {
+			return false;
+		}
+
+		removeExpired(now - window);
+
+		String market = marketKey(order);
+		Alert last = alerts.get(market);
+
+		if (last != null && last.orderType == order.getOrderType()) {
+			return true;
+		}
+
+		Alert alert = new Alert(order.getOrderType(), now, order);
+		remember(market, alert);
+		appendToFile(market, alert);
+
+		return false;
+	}
+
+	/**
+	 * Forgets the alert of an order that wasn't placed, so it isn't ignored when
+	 * it's resent.<br>
+	 * Does nothing if the alert was already replaced, or if the order didn't come
+	 * from an alert.<br>
+	 */
+	public synchronized void forget(MarketOrder order) {
+		String market = marketKey(order);
+		Alert last = alerts.get(market);
+
+		if (last != null && last.order == order) {
+			alerts.remove(market);
+			rewriteFile();
+		}
+	}
+
+	/**
+	 * Returns the number of remembered alerts.<br>
+	 */
+	public synchronized int size() {
+		return alerts.size();
+	}
+
+	private String marketKey(MarketOrder order) {
+		String market = order.getExchange() + "_" + order.getAccount() + "_" + order.getAltCoin();
+
+		return market.toUpperCase(Locale.ENGLISH);
+	}
+
+	private void remember(String market, Alert alert) {
+		// Removed first so the market moves to the end of the order.
+		alerts.remove(market);
+		alerts.put(market, alert);
+
+		if (alerts.size() > CAPACITY) {
+			Iterator<String> eldest = alerts.keySet().iterator();
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	private void removeExpired(long cutoff) {
+		Iterator<Alert> iterator = alerts.values().iterator();
+
+		while (iterator.hasNext() && iterator.next().seen < cutoff) {
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Reads the lines of the dedup file, formatted as: [seen] [ordertype]
+	 * [market].<br>
+	 * Corrupt and expired lines are skipped.<br>
+	 */
+	private void readAlerts(List<String> lines) {
+		long cutoff = System.currentTimeMillis() - configurationService.getDedupWindow() * 1000L;
+
+		for (String line : lines) {
+			String[] fields = line.split(SEPARATOR);
+
+			if (fields.length != 3) {
+				continue;
+			}
+
+			try {
+				Alert alert = new Alert(OrderType.valueOf(fields[1]), Long.parseLong(fields[0]), null);
+
+				if (alert.seen >= cutoff) {
+					// Files written before the account was normalized can hold it in any case.
+					remember(fields[2].toUpperCase(Locale.ENGLISH), alert);
+				}
+			} catch (IllegalArgumentException e) {
+				log.debug("Skipping corrupt line in the dedup file: {}", line);
+			}
+		}
+	}
+
+	private void appendToFile(String market, Alert alert) {
+		if (++appended > CAPACITY) {
+			rewriteFile();
+		} else {
+			List<String> line = Collections.singletonList(line(market, alert));
+			submit(() -> write(line, false));
+		}
+	}
+
+	/**
+	 * Replaces the content of the dedup file with the remembered alerts.<br>
+	 * The alerts are copied right away, the file is written on the file
+	 * thread.<br>
+	 */
+	private void rewriteFile() {
+		if (fileWriter == null) {
+			return;
+		}
+
+		List<String> lines = new ArrayList<>(alerts.size());
+		alerts.forEach((market, alert) -> lines.add(line(market, alert)));
+		appended = 0;
+
+		submit(() -> write(lines, true));
+	}
+
+	private void submit(Runnable task) {
+		if (fileWriter == null) {
+			return;
+		}
+
+		try {
+			fileWriter.execute(task);
+		} catch (RejectedExecutionException e) {
+			log.debug("The dedup file is already closed.", e);
+		}
+	}
+
+	private String line(String market, Alert alert) {
+		return alert.seen + SEPARATOR + alert.orderType.name() + SEPARATOR + market;
+	}
+
+	/**
+	 * Writes the lines to the dedup file. Runs on the file thread.<br>
+	 * When truncating, the file is opened again and kept open for appending.<br>
+	 */
+	private void write(List<String> lines, boolean truncate) {
+		try {
+			if (truncate) {
+				closeWriter();
+				writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			}
+
+			if (writer == null) {
+				return;
+			}
+
+			for (String line : lines) {
+				writer.write(line);
+				writer.newLine();
+			}
+
+			writer.flush();
+		} catch (IOException e) {
+			log.debug("Exception: ", e);
+			log.error("Couldn't write to the dedup file. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	private void closeWriter() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				log.debug("Failed to close the dedup file.\nReceived the following exception:\n", e);
+			}
+
+			writer = null;
+		}
+	}
+
+	/**
+	 * Finishes the pending writes and closes the dedup file.<br>
+	 */
+	@Override
+	public void close() {
+		ExecutorService closing;
+
+		synchronized (this) {
+			closing = fileWriter;
+			fileWriter = null;
+		}
+
+		if (closing == null) {
+			return;
+		}
+
+		closing.execute(this::closeWriter);
+		closing.shutdown();
+
+		try {
+			if (!closing.awaitTermination(CLOSE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS)) {
+				log.warn("Couldn't finish writing the dedup file in time.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Alert {
+		private final OrderType orderType;
+		private final long seen;
+		// The order of the alert, only known for alerts received since the start.
+		private final MarketOrder order;
+
+		private Alert(OrderType orderType, long seen, MarketOrder order) {
+			this.orderType = orderType;
+			this.seen = seen;
+			this.order = order;
+		}
+	}
+
+}
@@ -11,9 +11,12 @@ import tvtrader.model.MarketOrder;
 import tvtrader.services.AccountService;
 import tvtrader.services.ConfigurationService;
 import tvtrader.services.ExchangeService;
+import tvtrader.utils.Futures;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Responsible for checking (and canceling) open orders that have expired.<br>
@@ -44,8 +47,8 @@ public class OpenOrdersWatcher {
 
 	/**
 	 * Checks each account at every exchange for expired open orders.<br>
-	 * If an order is expired the method will call the cancelOrder method of the
-	 * exchange for that account and order.<br>
+	 * The expired orders of an account are cancelled in one batch with the
+	 * cancelOrders method of the exchange.<br>
 	 * 
 	 */
 	public void checkOrders() {
@@ -82,19 +85,29 @@ public class OpenOrdersWatcher {
 		long expirationDate = System.currentTimeMillis() - (expirationTime * 1000);
 		log.debug("Current expirationDate: {}", expirationDate);
 		
+		List<Order> expiredOrders = new ArrayList<>();
 		for (Order order : openOrders) {
 			log.debug("Checking open order: {}", order);
 			if (order.getTimeStamp() < expirationDate) {
 				log.info("Canceling open order: {}", order);
-				String orderId = order.getOrderId();
+				expiredOrders.add(order);
+			}
+		}
+
+		if (expiredOrders.isEmpty()) {
+			return;
+		}
+
+		List<String> orderIds = expiredOrders.stream().map(Order::getOrderId).collect(Collectors.toList());
+		List<Boolean> cancelled = Futures.await(exchangeService.cancelOrdersAsync(exchange, account, orderIds));
+		boolean replace = configurationService.getRetryOrderFlag();
 
-				boolean success = exchangeService.cancelOrder(exchange, account, orderId);
-				boolean replace = configurationService.getRetryOrderFlag();
+		for (int i = 0; i < expiredOrders.size(); i++) {
+			Order order = expiredOrders.get(i);
 
-				if (success && replace) {
-					MarketOrder newOrder = rebuildOrder(exchange, account, order);
-					replaceOrder(newOrder, order.getQuantityRemaining());
-				}
+			if (cancelled.get(i) && replace) {
+				MarketOrder newOrder = rebuildOrder(exchange, account, order);
+				replaceOrder(newOrder, order.getQuantityRemaining());
 			}
 		}
 	}
@@ -5,10 +5,10 @@ import org.springframework.stereotype.Component;
 import tvtrader.model.MarketOrder;
 import tvtrader.model.OrderType;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Helper class for the OrderBuilder. Determines if the subject line matches the
@@ -22,16 +22,15 @@ import java.util.regex.Pattern;
 public class OrderLineParser {
 	// Expected pattern:
 	// ORDERTYPE_EXCHANGE_ACCOUNT_ALTCOIN'
-	private static final String ORDERLINE_PATTERN = "\\w*_\\w*_\\w*_\\w*$";
-	private Pattern pattern;
+	// The order line is the run of word characters ([a-zA-Z0-9_]) at the end of
+	// the subject. It has to contain at least three delimiters. The account can
+	// be the wildcard, e.g. BUY_BITTREX_*_ETH.
+	private static final int MIN_DELIMITERS = 3;
 
 	private static final String LIMIT_BUY = "BUY";
 	private static final String LIMIT_SELL = "SELL";
-	private static final String SUBJECT_DELIMITER = "_";
-
-	public OrderLineParser() {
-		pattern = Pattern.compile(ORDERLINE_PATTERN);
-	}
+	private static final char SUBJECT_DELIMITER = '_';
+	private static final char WILDCARD = '*';
 
 	/**
 	 * Checks if the subject line matches the expected pattern for a valid
@@ -39,49 +38,127 @@ public class OrderLineParser {
 	 * If it does, it will build an order based on that pattern.<br>
 	 * Doesn't check if the ordertype is valid for the exchange.<br>
 	 * If the type can't be determined this field will be set to UNSUPPORTED.
+	 * <br>
+	 * The subject is scanned once, without regular expressions or intermediate
+	 * strings. Only the fields of the order are copied out of the subject.<br>
 	 * 
 	 * @param subject
 	 *            The subjectline to parse.
 	 * @return Optional<MarketOrder> based on the order line.
 	 */
 	public Optional<MarketOrder> parseOrderLine(String subject) {
-		Matcher matcher = pattern.matcher(subject);
+		int end = endOfLine(subject);
+		int start = startOfOrderLine(subject, end);
+
+		if (start < 0) {
+			return Optional.empty();
+		}
 
-		if (matcher.find()) {
-			String orderLine = subject.substring(matcher.start(), matcher.end());
-			log.info("Received order: {}", orderLine);
+		return createOrder(subject, start, end);
+	}
 
-			try (Scanner scanner = new Scanner(orderLine)) {
-				return createOrder(scanner);
+	/**
+	 * Parses all order lines at the end of the subject.<br>
+	 * The order lines can be separated by whitespace, commas or semicolons, e.g.
+	 * "Rebalance: BUY_BITTREX_DEFAULT_ETH, BUY_BITTREX_DEFAULT_NEO". The list
+	 * ends at the first word that isn't an order line, counting back from the
+	 * end of the subject.<br>
+	 * A subject with a single order line results in the same order as
+	 * parseOrderLine(String).<br>
+	 * 
+	 * @param subject
+	 *            The subject line or body to parse.
+	 * @return The orders in the order they appear in the subject.
+	 */
+	public List<MarketOrder> parseOrderLines(String subject) {
+		List<MarketOrder> orders = new ArrayList<>();
+
+		int end = endOfLine(subject);
+		int start = startOfOrderLine(subject, end);
+
+		while (start >= 0) {
+			createOrder(subject, start, end).ifPresent(orders::add);
+
+			end = start;
+			while (end > 0 && isListSeparator(subject.charAt(end - 1))) {
+				end--;
 			}
+
+			start = end < start ? startOfOrderLine(subject, end) : -1;
 		}
-		
-		return Optional.empty();
+
+		Collections.reverse(orders);
+		return orders;
 	}
 
-	private Optional<MarketOrder> createOrder(Scanner scanner) {
-		scanner.useDelimiter(SUBJECT_DELIMITER);
+	/**
+	 * Returns the start of the order line that ends at the provided index or -1
+	 * if there is no order line.<br>
+	 */
+	private int startOfOrderLine(String subject, int end) {
+		int start = end;
+		int delimiters = 0;
+
+		while (start > 0 && isWordChar(subject.charAt(start - 1))) {
+			start--;
+
+			if (subject.charAt(start) == SUBJECT_DELIMITER) {
+				delimiters++;
+			}
+		}
+
+		if (delimiters < MIN_DELIMITERS) {
+			return -1;
+		}
 
-		OrderType orderType = determineOrderType(scanner.next().trim());
-		String exchange = scanner.next();
-		String account = scanner.next();
-		String altCoin = scanner.next();
+		if (log.isInfoEnabled()) {
+			log.info("Received order: {}", subject.substring(start, end));
+		}
+
+		return start;
+	}
+
+	/**
+	 * Splits the order line in the subject into its fields and builds the
+	 * order.<br>
+	 * A field starts after a single delimiter, so consecutive delimiters result
+	 * in empty fields. Fields after the altcoin are ignored.<br>
+	 * 
+	 * @return The order or an empty optional if the line ends before the altcoin.
+	 */
+	private Optional<MarketOrder> createOrder(String subject, int start, int end) {
+		int typeStart = skipDelimiter(subject, start, end);
+		int typeEnd = endOfField(subject, typeStart, end);
+
+		int exchangeStart = skipDelimiter(subject, typeEnd, end);
+		int exchangeEnd = endOfField(subject, exchangeStart, end);
+
+		int accountStart = skipDelimiter(subject, exchangeEnd, end);
+		int accountEnd = endOfField(subject, accountStart, end);
+
+		int altCoinStart = skipDelimiter(subject, accountEnd, end);
+		int altCoinEnd = endOfField(subject, altCoinStart, end);
+
+		if (altCoinStart == end) {
+			log.info("Ignoring order line with missing fields.");
+			return Optional.empty();
+		}
 
 		MarketOrder order = new MarketOrder();
-		order.setExchange(exchange);
-		order.setAccount(account);
-		order.setAltCoin(altCoin);
-		order.setOrderType(orderType);
+		order.setExchange(subject.substring(exchangeStart, exchangeEnd));
+		order.setAccount(subject.substring(accountStart, accountEnd));
+		order.setAltCoin(subject.substring(altCoinStart, altCoinEnd));
+		order.setOrderType(determineOrderType(subject, typeStart, typeEnd));
 
 		log.debug("Created order.");
 		return Optional.of(order);
 	}
 
-	private OrderType determineOrderType(String type) {
+	private OrderType determineOrderType(String subject, int start, int end) {
 		OrderType ordertype = null;
-		if (type.equalsIgnoreCase(LIMIT_BUY)) {
+		if (fieldEquals(subject, start, end, LIMIT_BUY)) {
 			ordertype = OrderType.LIMIT_BUY;
-		} else if (type.equalsIgnoreCase(LIMIT_SELL)) {
+		} else if (fieldEquals(subject, start, end, LIMIT_SELL)) {
 			ordertype = OrderType.LIMIT_SELL;
 		} else {
 			ordertype = OrderType.UNSUPPORTED;
@@ -89,4 +166,54 @@ public class OrderLineParser {
 
 		return ordertype;
 	}
+
+	private boolean fieldEquals(String subject, int start, int end, String value) {
+		return end - start == value.length() && subject.regionMatches(true, start, value, 0, value.length());
+	}
+
+	/**
+	 * Returns the end of the subject, ignoring a single trailing line
+	 * terminator.<br>
+	 */
+	private int endOfLine(String subject) {
+		int end = subject.length();
+
+		if (end > 0) {
+			char last = subject.charAt(end - 1);
+
+			if (last == '\n') {
+				end--;
+				if (end > 0 && subject.charAt(end - 1) == '\r') {
+					end--;
+				}
+			} else if (last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+				end--;
+			}
+		}
+
+		return end;
+	}
+
+	private int skipDelimiter(String subject, int index, int end) {
+		return index < end && subject.charAt(index) == SUBJECT_DELIMITER ? index + 1 : index;
+	}
+
+	private int endOfField(String subject, int index, int end) {
+		int fieldEnd = index;
+
+		while (fieldEnd < end && subject.charAt(fieldEnd) != SUBJECT_DELIMITER) {
+			fieldEnd++;
+		}
+
+		return fieldEnd;
+	}
+
+	private boolean isListSeparator(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == ',' || c == ';';
+	}
+
+	private boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == SUBJECT_DELIMITER
+				|| c == WILDCARD;
+	}
 }
@@ -0,0 +1,299 @@
+package tvtrader.orders;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tvtrader.exchange.ExchangeException;
+import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.services.AccountService;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Turns order lines into placed orders.<br>
+ * <br>
+ * The order lines are processed in batches. Everything that is ingested at
+ * once, like all mails of a poll, travels through the stages as one batch, so
+ * the rates and balances are fetched once for the whole batch.<br>
+ * <br>
+ * The work is split into stages, each with a bounded queue and its own worker
+ * thread:<br>
+ * - parse: parses the order lines, expands orders for multiple accounts and
+ * drops repeated alerts. A line can hold multiple orders, an order that is in
+ * a batch more than once, like in the subject and the body of a mail, is only
+ * placed once. Filled by ingest(List).<br>
+ * - enrich: retrieves the rate and calculates the quantity. The accounts in a
+ * batch are handled in parallel, at most 8 at a time.<br>
+ * - gain: checks if the minimum gain is met.<br>
+ * - place: places the orders with the orderplacer.<br>
+ * <br>
+ * Ingesting never blocks. When the parse stage is full the new order lines are
+ * dropped. The other stages block, so a slow exchange slows down the stages in
+ * front of it instead of filling up memory.<br>
+ * <br>
+ * The place stage waits for the exchange itself, so placing doesn't wait
+ * behind the other jobs and they don't wait behind a slow exchange. Only the
+ * listeners of the orderplacer are signaled on the job executor.<br>
+ * <br>
+ * The alert of an order that is dropped after the parse stage, or that
+ * couldn't be placed, is forgotten by the deduplicator again, so a resent
+ * alert isn't ignored.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class OrderPipeline implements Closeable {
+	private static final int INGEST_CAPACITY = 1024;
+	private static final int STAGE_CAPACITY = 256;
+	private static final int ACCOUNT_THREADS = 8;
+
+	private OrderLineParser orderLineParser;
+	private AccountExpander accountExpander;
+	private AlertDeduplicator alertDeduplicator;
+	private AccountService accountService;
+	private OrderBuilder orderBuilder;
+	private GainChecker gainChecker;
+	private OrderPlacer orderPlacer;
+	private ScheduledExecutorService executorService;
+
+	// Runs the enrichment of the accounts in a batch side by side. A batch for
+	// more accounts than threads waits for a free thread.
+	private ExecutorService accountExecutor;
+
+	private PipelineStage<List<String>> parseStage;
+	private PipelineStage<List<MarketOrder>> enrichStage;
+	private PipelineStage<List<MarketOrder>> gainStage;
+	private PipelineStage<List<MarketOrder>> placeStage;
+
+	@Autowired
+	public OrderPipeline(OrderLineParser orderLineParser, AccountExpander accountExpander,
+			AlertDeduplicator alertDeduplicator, AccountService accountService, OrderBuilder orderBuilder,
+			GainChecker gainChecker, OrderPlacer orderPlacer, ScheduledExecutorService executorService) {
+		this.orderLineParser = orderLineParser;
+		this.accountExpander = accountExpander;
+		this.alertDeduplicator = alertDeduplicator;
+		this.accountService = accountService;
+		this.orderBuilder = orderBuilder;
+		this.gainChecker = gainChecker;
+		this.orderPlacer = orderPlacer;
+		this.executorService = executorService;
+
+		orderPlacer.addFailureListener(alertDeduplicator::forget);
+
+		parseStage = new PipelineStage<>("parse", INGEST_CAPACITY, OverloadPolicy.DROP_NEWEST, this::parse);
+		enrichStage = new PipelineStage<>("enrich", STAGE_CAPACITY, OverloadPolicy.BLOCK, this::enrich);
+		gainStage = new PipelineStage<>("gain", STAGE_CAPACITY, OverloadPolicy.BLOCK, this::checkGain);
+		placeStage = new PipelineStage<>("place", STAGE_CAPACITY, OverloadPolicy.BLOCK, this::place);
+
+		accountExecutor = Executors.newFixedThreadPool(ACCOUNT_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "pipeline-accounts");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Loads the recent alerts and starts the workers of all stages.<br>
+	 */
+	public void start() {
+		alertDeduplicator.start();
+		getStages().forEach(PipelineStage::start);
+	}
+
+	/**
+	 * Queues the order lines for processing as one batch.<br>
+	 * Returns immediately.<br>
+	 *
+	 * @return False if the lines were dropped because the pipeline is
+	 *         overloaded.
+	 */
+	public boolean ingest(List<String> orderLines) {
+		return parseStage.offer(new ArrayList<>(orderLines));
+	}
+
+	/**
+	 * Returns the stages in order, for monitoring.<br>
+	 */
+	public List<PipelineStage<?>> getStages() {
+		return Collections.unmodifiableList(Arrays.asList(parseStage, enrichStage, gainStage, placeStage));
+	}
+
+	private void parse(List<String> orderLines) {
+		List<MarketOrder> batch = new ArrayList<>();
+
+		for (String orderLine : orderLines) {
+			for (MarketOrder parsed : orderLineParser.parseOrderLines(orderLine)) {
+				for (MarketOrder order : accountExpander.expand(parsed)) {
+					if (batch.contains(order)) {
+						log.debug("Ignoring order that is already in the batch: {}", order);
+					} else if (alertDeduplicator.isDuplicate(order)) {
+						log.info("Ignoring repeated alert for {}: {}", order.getAccount(), orderLine);
+					} else {
+						batch.add(order);
+					}
+				}
+			}
+		}
+
+		offerBatch(enrichStage, batch);
+	}
+
+	/**
+	 * Determines the appropriate rate (bid price for sell orders, ask for buy.) and
+	 * calculates the needed quantity based on the account's buy limit.<br>
+	 * Orders that aren't valid afterwards will not be passed on.<br>
+	 * If the batch is for multiple accounts, every account is handled on its own
+	 * thread. A failure for one account doesn't affect the others.<br>
+	 *
+	 * @param batch
+	 *            The orders for which the quantity and rate should be set.
+	 */
+	private void enrich(List<MarketOrder> batch) {
+		Collection<List<MarketOrder>> accounts = batch.stream()
+				.collect(Collectors.groupingBy(order -> order.getExchange() + "_" + order.getAccount(),
+						LinkedHashMap::new, Collectors.toList()))
+				.values();
+
+		if (accounts.size() == 1) {
+			accounts.forEach(this::enrichAccount);
+		} else {
+			enrichInParallel(accounts);
+		}
+
+		List<MarketOrder> validOrders = new ArrayList<>(batch.size());
+
+		for (MarketOrder order : batch) {
+			if (validOrder(order)) {
+				validOrders.add(order);
+			} else {
+				logRemovalReason(order);
+				alertDeduplicator.forget(order);
+			}
+		}
+
+		offerBatch(gainStage, validOrders);
+	}
+
+	private void enrichInParallel(Collection<List<MarketOrder>> accounts) {
+		try {
+			CompletableFuture.allOf(accounts.stream()
+					.map(orders -> CompletableFuture.runAsync(() -> enrichAccount(orders), accountExecutor))
+					.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException | RejectedExecutionException e) {
+			log.debug("Exception: ", e);
+			log.error("Something went wrong while creating orders. Received the following message: {}",
+					e.getMessage());
+		}
+	}
+
+	private void enrichAccount(List<MarketOrder> orders) {
+		for (MarketOrder order : orders) {
+			try {
+				enrich(order);
+			} catch (RuntimeException e) {
+				log.debug("Exception: ", e);
+				log.error("Something went wrong while creating order for {}. Received the following message: {}",
+						order.getAccount(), e.getMessage());
+			}
+		}
+	}
+
+	private void enrich(MarketOrder order) {
+		try {
+			String mainCoin = accountService.getMainCurrency(order.getExchange(), order.getAccount());
+			order.setMainCoin(mainCoin);
+
+			double buylimit = accountService.getBuyLimit(order.getExchange(), order.getAccount());
+			orderBuilder.calculateQuantityAndRate(order, buylimit);
+		} catch (ExchangeException e) {
+			log.debug("Exception: ", e);
+			log.error("Something went wrong while creating order. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	private void checkGain(List<MarketOrder> batch) {
+		List<MarketOrder> profitableOrders = new ArrayList<>(batch.size());
+
+		for (MarketOrder order : batch) {
+			if (gainChecker.checkGain(order)) {
+				profitableOrders.add(order);
+			} else {
+				alertDeduplicator.forget(order);
+			}
+		}
+
+		offerBatch(placeStage, profitableOrders);
+	}
+
+	/**
+	 * Places the orders right away, on the worker of the place stage.<br>
+	 */
+	private void place(List<MarketOrder> batch) {
+		try {
+			orderPlacer.placeOrders(batch, executorService);
+		} catch (RejectedExecutionException e) {
+			log.debug("Exception: ", e);
+			log.error("Couldn't signal the placed orders. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	private <T> void offerBatch(PipelineStage<List<T>> stage, List<T> batch) {
+		if (!batch.isEmpty()) {
+			stage.offer(batch);
+		}
+	}
+
+	/**
+	 * Determines if an order is 'valid' by checking if the rate and quantity are
+	 * set.<br>
+	 *
+	 * @param order
+	 *            The order to check.
+	 * @return True if rate and quantity are > 0.
+	 */
+	private boolean validOrder(MarketOrder order) {
+		return order.getRate() > 0 && order.getQuantity() > 0;
+	}
+
+	/**
+	 * Determines the appropriate log message for removing the order.<br>
+	 *
+	 * @param order
+	 *            The order that gets removed.
+	 */
+	private void logRemovalReason(MarketOrder order) {
+		if (order.getOrderType() == OrderType.LIMIT_SELL) {
+			log.info("Removing order: No altcoin balance.");
+		} else if (order.getOrderType() == OrderType.LIMIT_BUY) {
+			log.info("Removing order: Already bought.");
+		}
+	}
+
+	/**
+	 * Stops the workers of all stages and closes the dedup file.<br>
+	 */
+	@Override
+	public void close() {
+		log.info("Stopping the order pipeline: {}", getStages());
+		getStages().forEach(PipelineStage::stop);
+		accountExecutor.shutdownNow();
+		alertDeduplicator.close();
+	}
+
+}
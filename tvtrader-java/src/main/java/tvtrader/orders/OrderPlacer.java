@@ -6,14 +6,32 @@ import org.springframework.stereotype.Component;
 import tvtrader.model.MarketOrder;
 import tvtrader.services.ExchangeService;
 import tvtrader.stoploss.StoplossListener;
+import tvtrader.utils.Futures;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Responsible for placing the orders at the exchange and, if successful,
- * signaling the stoploss protection.<br>
+ * signaling the stoploss protection. The failure listeners are told about the
+ * orders that couldn't be placed.<br>
+ * <br>
+ * The orders of an account are placed as one batch. The exchange sends the
+ * sells of a batch concurrently and the buys once the sells are done. The
+ * accounts don't wait for each other.<br>
+ * <br>
+ * The orders of the order pipeline are placed right away on its place stage.
+ * The stoploss and open orders watchers queue their orders with addOrder(),
+ * these are placed by the OrderPlacerJob. The listeners are always signaled on
+ * the job executor, so they don't have to be thread safe.<br>
  * 
  * @author Wouter
  *
@@ -22,39 +40,113 @@ import java.util.List;
 @Component
 public class OrderPlacer {
 
-	//TODO arraydeque
-	private static List<MarketOrder> orders = new ArrayList<>();
+	// Filled by the watchers, emptied on the job executor.
+	private final Queue<MarketOrder> orders = new ConcurrentLinkedQueue<>();
 	private List<StoplossListener> listeners;
+	private List<Consumer<MarketOrder>> failureListeners;
 	private ExchangeService exchangeService;
 
     @Autowired
 	public OrderPlacer(ExchangeService exchangeService) {
 	    this.exchangeService = exchangeService;
 		listeners = new ArrayList<>();
+		failureListeners = new ArrayList<>();
 	}
 
 	/**
-	 * Places the orders at the exchange and signals the stoploss protection for
-	 * each buy order.<br>
+	 * Places the queued orders at the exchange and signals the stoploss
+	 * protection for each buy order.<br>
+	 * Should be called on the job executor.<br>
 	 * 
 	 */
 	public void placeOrders() {
-		Iterator<MarketOrder> iterator = orders.iterator();
+		List<MarketOrder> pending = new ArrayList<>();
+		MarketOrder order;
 
-		while (iterator.hasNext()) {
-			MarketOrder order = iterator.next();
+		while ((order = orders.poll()) != null) {
+			pending.add(order);
+		}
+
+		placeOrders(pending, Runnable::run);
+	}
+
+	/**
+	 * Places the provided orders at the exchange right away. Blocks until the
+	 * exchange answered for all of them.<br>
+	 *
+	 * @param batch
+	 *            The orders to place.
+	 * @param listenerExecutor
+	 *            Signals the listeners once the orders are placed.
+	 */
+	public void placeOrders(List<MarketOrder> batch, Executor listenerExecutor) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		List<List<MarketOrder>> accounts = new ArrayList<>(batch.stream()
+				.collect(Collectors.groupingBy(o -> o.getExchange() + "_" + o.getAccount(), LinkedHashMap::new,
+						Collectors.toList()))
+				.values());
 
-			log.info("Placing order: {}", order);
-			boolean placed;
-			placed = exchangeService.placeOrder(order);
+		List<CompletableFuture<List<Boolean>>> futures = new ArrayList<>();
+		for (List<MarketOrder> accountOrders : accounts) {
+			futures.add(place(accountOrders));
+		}
+
+		List<List<Boolean>> placed = new ArrayList<>();
+		for (CompletableFuture<List<Boolean>> future : futures) {
+			placed.add(future.join());
+		}
+
+		listenerExecutor.execute(() -> notifyListeners(accounts, placed));
+	}
+
+	private void notifyListeners(List<List<MarketOrder>> accounts, List<List<Boolean>> placed) {
+		for (int i = 0; i < accounts.size(); i++) {
+			List<MarketOrder> accountOrders = accounts.get(i);
 
-			if (placed) {
-				log.info("Order placed!");
-				notifyListeners(order);
+			for (int j = 0; j < accountOrders.size(); j++) {
+				if (placed.get(i).get(j)) {
+					notifyListeners(accountOrders.get(j));
+				} else {
+					notifyFailureListeners(accountOrders.get(j));
+				}
 			}
+		}
+	}
 
-			iterator.remove();
+	/**
+	 * Places the orders of an account as one batch.<br>
+	 * 
+	 * @return For every order if it was placed. Never fails.
+	 */
+	private CompletableFuture<List<Boolean>> place(List<MarketOrder> accountOrders) {
+		accountOrders.forEach(order -> log.info("Placing order: {}", order));
+		CompletableFuture<List<Boolean>> results;
+
+		try {
+			results = exchangeService.placeOrdersAsync(accountOrders);
+		} catch (RuntimeException e) {
+			results = Futures.failed(e);
 		}
+
+		return results.handle((succeeded, e) -> {
+			if (e != null) {
+				log.debug("Exception: ", e);
+				log.error("Couldn't place the orders of an account. Received the following message: {}",
+						Futures.unwrap(e).getMessage());
+				return Collections.nCopies(accountOrders.size(), false);
+			}
+
+			for (boolean placed : succeeded) {
+				if (placed) {
+					log.info("Order placed!");
+				}
+			}
+
+			return succeeded;
+		});
 	}
 
 	public void addOrder(MarketOrder order) {
@@ -71,4 +163,18 @@ public class OrderPlacer {
 		listeners.add(newListener);
 	}
 
+	private void notifyFailureListeners(MarketOrder order) {
+		for (Consumer<MarketOrder> listener : failureListeners) {
+			listener.accept(order);
+		}
+	}
+
+	/**
+	 * Adds a listener that is told about every order that couldn't be
+	 * placed.<br>
+	 */
+	public void addFailureListener(Consumer<MarketOrder> newListener) {
+		failureListeners.add(newListener);
+	}
+
 }
@@ -0,0 +1,18 @@
+package tvtrader.orders;
+
+/**
+ * What a pipeline stage does with a new item when its queue is full.<br>
+ * 
+ * @author Wouter
+ *
+ */
+public enum OverloadPolicy {
+	/**
+	 * Waits until there is room in the queue. Slows down the previous stage.
+	 */
+	BLOCK,
+	/**
+	 * Rejects the new item.
+	 */
+	DROP_NEWEST
+}
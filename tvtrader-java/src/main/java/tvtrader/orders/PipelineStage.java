@@ -0,0 +1,163 @@
+package tvtrader.orders;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A stage of the order pipeline.<br>
+ * Items are queued in a bounded queue and handled one at a time by the worker
+ * thread of the stage. When the queue is full the overload policy decides
+ * what happens with new items.<br>
+ * 
+ * @author Wouter
+ *
+ */
+@Log4j2
+public class PipelineStage<T> {
+	// Logs a warning once the queue is filled beyond this fraction.
+	private static final double HIGH_WATERMARK = 0.75;
+
+	@Getter
+	private final String name;
+	@Getter
+	private final int capacity;
+	private final BlockingQueue<T> queue;
+	private final OverloadPolicy policy;
+	private final Consumer<T> handler;
+
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong processed = new AtomicLong();
+
+	private Thread worker;
+
+	public PipelineStage(String name, int capacity, OverloadPolicy policy, Consumer<T> handler) {
+		this.name = name;
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.policy = policy;
+		this.handler = handler;
+	}
+
+	/**
+	 * Starts the worker thread of this stage.<br>
+	 * Items offered before starting are handled once the stage is started.<br>
+	 */
+	public synchronized void start() {
+		if (worker == null) {
+			worker = new Thread(this::work, "pipeline-" + name);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Stops the worker thread. Items still in the queue are discarded.<br>
+	 */
+	public synchronized void stop() {
+		if (worker != null) {
+			worker.interrupt();
+			worker = null;
+		}
+	}
+
+	/**
+	 * Queues the item for this stage.<br>
+	 * 
+	 * @return False if the item was dropped because the queue is full.
+	 */
+	public boolean offer(T item) {
+		boolean queued;
+
+		switch (policy) {
+		case BLOCK:
+			queued = put(item);
+			break;
+		default:
+			queued = queue.offer(item);
+		}
+
+		if (queued) {
+			accepted.incrementAndGet();
+			checkWatermark();
+		} else {
+			log.error("The {} stage is overloaded. Dropped: {}", name, item);
+			dropped.incrementAndGet();
+		}
+
+		return queued;
+	}
+
+	private boolean put(T item) {
+		try {
+			queue.put(item);
+			return true;
+		} catch (InterruptedException e) {
+			log.debug("Interrupted while waiting for room in the {} stage.", name);
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void checkWatermark() {
+		int depth = queue.size();
+
+		if (depth > capacity * HIGH_WATERMARK) {
+			log.warn("The {} stage is filling up: {}/{} items queued.", name, depth, capacity);
+		}
+	}
+
+	private void work() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				T item = queue.take();
+				handle(item);
+			} catch (InterruptedException e) {
+				log.debug("The {} stage got interrupted. Stopping.", name);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void handle(T item) {
+		try {
+			handler.accept(item);
+		} catch (Exception e) {
+			log.debug("Exception: ", e);
+			log.error("Something went wrong in the {} stage:\n{}", name, e.getMessage());
+		} finally {
+			processed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the number of items waiting in the queue.<br>
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	@Override
+	public String toString() {
+		return name + " [queued=" + getQueueDepth() + "/" + capacity + ", accepted=" + getAccepted() + ", processed="
+				+ getProcessed() + ", dropped=" + getDropped() + "]";
+	}
+
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 import tvtrader.exceptionlogger.GameBreakerException;
 import tvtrader.exchange.ExchangeException;
 import tvtrader.model.Account;
+import tvtrader.model.HttpClientConfiguration;
 import tvtrader.model.MailConfiguration;
 import tvtrader.services.AccountService;
 import tvtrader.services.ConfigurationService;
@@ -56,10 +57,38 @@ public class PropertiesFileLoader {
 			configurationService.setInbox(mailConfig.getInbox());
 			configurationService.setUsername(mailConfig.getUsername());
 			configurationService.setPassword(mailConfig.getPassword());
+
+			for (MailConfiguration mailbox : parser.parseAdditionalMailConfigurations()) {
+				log.info("Loading mailbox: {}", mailbox.getName());
+				configurationService.addMailConfiguration(mailbox);
+			}
 			
+			for (Map.Entry<String, List<String>> group : parser.parseAccountGroups().entrySet()) {
+				log.info("Loading account group: {}", group.getKey());
+				configurationService.addAccountGroup(group.getKey(), group.getValue());
+			}
+
+			HttpClientConfiguration httpClientConfiguration = parser.parseHttpClientConfiguration();
+			configurationService.setHttpClientConfiguration(httpClientConfiguration);
+
 			String expectedSender = parser.getExpectedSender();
 			configurationService.setExpectedSender(expectedSender);
 
+			String webhookSecret = parser.getWebhookSecret();
+			configurationService.setWebhookSecret(webhookSecret);
+
+			int smtpPort = parser.getSmtpPort();
+			configurationService.setSmtpPort(smtpPort);
+
+			String smtpAddress = parser.getSmtpAddress();
+			configurationService.setSmtpAddress(smtpAddress);
+
+			int dedupWindow = parser.getDedupWindow();
+			configurationService.setDedupWindow(dedupWindow);
+
+			String dedupFile = parser.getDedupFile();
+			configurationService.setDedupFile(dedupFile);
+
 			int pollingInterval = parser.getPollingInterval();
 			configurationService.setMailPollingInterval(pollingInterval);
 
@@ -78,6 +107,9 @@ public class PropertiesFileLoader {
 			int tickerRefreshRate = parser.getTickerRefreshRate();
 			configurationService.setTickerRefreshRate(tickerRefreshRate);
 
+			boolean tickerFilter = parser.getTickerFilter();
+			configurationService.setTickerFilter(tickerFilter);
+
 			int assetRefreshRate = parser.getAssetRefreshRate();
 			configurationService.setAssetRefreshRate(assetRefreshRate);
 
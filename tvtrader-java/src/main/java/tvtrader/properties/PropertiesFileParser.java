@@ -8,6 +8,7 @@ import tvtrader.exchange.ExchangeException;
 import tvtrader.exchange.SupportedExchange;
 import tvtrader.mail.InvalidMailConfigException;
 import tvtrader.model.Account;
+import tvtrader.model.HttpClientConfiguration;
 import tvtrader.model.MailConfiguration;
 import tvtrader.utils.NumberParser;
 
@@ -30,6 +31,34 @@ public class PropertiesFileParser {
 	private static final String TICKER_REFRESH_RATE = "ticker_refresh_rate";
 	private static final String ASSET_REFRESH_RATE = "asset_refresh_rate";
 	private static final String RETRY_CANCELLED_ORDERS = "retry_cancelled_orders";
+	private static final String WEBHOOK_SECRET = "webhook_secret";
+	private static final String SMTP_PORT = "smtp_port";
+	private static final String SMTP_ADDRESS = "smtp_address";
+	private static final String DEDUP_WINDOW = "dedup_window";
+	private static final String DEDUP_FILE = "dedup_file";
+	private static final int DEFAULT_DEDUP_WINDOW = 0;
+	private static final String MAILBOXES = "mailboxes";
+	private static final String MAILBOX = "mailbox.";
+	private static final String ACCOUNT_GROUPS = "account_groups";
+	private static final String ACCOUNT_GROUP = "account_group.";
+	private static final String TICKER_FILTER = "ticker_filter";
+	private static final String HTTP_CONNECT_TIMEOUT = "http_connect_timeout";
+	private static final String HTTP_READ_TIMEOUT = "http_read_timeout";
+	private static final String HTTP_WRITE_TIMEOUT = "http_write_timeout";
+	private static final String HTTP_MAX_IDLE_CONNECTIONS = "http_max_idle_connections";
+	private static final String HTTP_KEEP_ALIVE = "http_keep_alive";
+	private static final String HTTP_MAX_REQUESTS = "http_max_requests";
+	private static final String HTTP_MAX_REQUESTS_PER_HOST = "http_max_requests_per_host";
+	private static final String HTTP_2 = "http_2";
+	private static final String RATE_LIMIT_PER_EXCHANGE = "rate_limit_per_exchange";
+	private static final String RATE_LIMIT_PER_KEY = "rate_limit_per_key";
+	private static final String HTTP_WARM_UP = "http_warm_up";
+	private static final String CIRCUIT_FAILURE_RATE = "circuit_failure_rate";
+	private static final String CIRCUIT_SLOW_CALL = "circuit_slow_call";
+	private static final String CIRCUIT_OPEN_TIME = "circuit_open_time";
+	private static final String HEDGE_READS = "hedge_reads";
+	private static final String RETRY_ATTEMPTS = "retry_attempts";
+	private static final String RETRY_DEADLINE = "retry_deadline";
 	private static final String IMAPS = "imaps";
 	private boolean loaded = false;
 	
@@ -53,14 +82,134 @@ public class PropertiesFileParser {
 	public MailConfiguration parseMailConfiguration() throws GameBreakerException {
 		checkLoaded();
 
-		MailConfiguration mailConfig = new MailConfiguration();
+		return parseMailConfiguration(new MailConfiguration(), "");
+	}
+
+	/**
+	 * Extracts the mailboxes that are checked next to the default mail
+	 * configuration.<br>
+	 * The names are listed under mailboxes, the settings of each mailbox are
+	 * prefixed with mailbox.[name].<br>
+	 * 
+	 * @throws GameBreakerException
+	 *             If the settings of a mailbox are missing or corrupt.
+	 */
+	public List<MailConfiguration> parseAdditionalMailConfigurations() throws GameBreakerException {
+		checkLoaded();
+
+		List<MailConfiguration> mailConfigs = new ArrayList<>();
+		String names = config.getProperty(MAILBOXES, "");
+
+		try (Scanner scanner = new Scanner(names)) {
+			while (scanner.hasNext()) {
+				String name = scanner.next();
+				log.debug("Processing mailbox: {}", name);
+
+				MailConfiguration mailConfig = new MailConfiguration();
+				mailConfig.setName(name);
+
+				mailConfigs.add(parseMailConfiguration(mailConfig, MAILBOX + name + "."));
+			}
+		}
+
+		return mailConfigs;
+	}
+
+	/**
+	 * Extracts the named groups of accounts.<br>
+	 * The names are listed under account_groups, the accounts of each group are
+	 * listed under account_group.[name].<br>
+	 * 
+	 * @throws GameBreakerException
+	 *             If a group has no accounts or a name that can't be used in an
+	 *             order line.
+	 */
+	public Map<String, List<String>> parseAccountGroups() throws GameBreakerException {
+		checkLoaded();
+
+		Map<String, List<String>> groups = new LinkedHashMap<>();
+		String names = config.getProperty(ACCOUNT_GROUPS, "");
+
+		try (Scanner scanner = new Scanner(names)) {
+			while (scanner.hasNext()) {
+				String name = scanner.next();
+				log.debug("Processing account group: {}", name);
+
+				if (name.contains("_") || name.contains("*")) {
+					throw new GameBreakerException("Account group " + name + " can't contain _ or *!");
+				}
+
+				List<String> accounts = Arrays.asList(config.getProperty(ACCOUNT_GROUP + name, "").trim().split("\\s+"));
+
+				if (accounts.get(0).isEmpty()) {
+					throw new GameBreakerException("Account group " + name + " has no accounts! Please check your config.");
+				}
+
+				groups.put(name, accounts);
+			}
+		}
+
+		return groups;
+	}
+
+	/**
+	 * Extracts the settings of the http client.<br>
+	 * Every setting is optional, missing settings keep their default. Timeouts,
+	 * circuit times and the retry deadline are in milliseconds, the keep alive
+	 * is in seconds and the rate limits are in requests per minute.<br>
+	 * 
+	 * @throws GameBreakerException
+	 *             If a setting isn't a number or is out of range.
+	 */
+	public HttpClientConfiguration parseHttpClientConfiguration() throws GameBreakerException {
+		checkLoaded();
+
+		HttpClientConfiguration http = new HttpClientConfiguration();
+
+		try {
+			http.setConnectTimeout(getInteger(HTTP_CONNECT_TIMEOUT, http.getConnectTimeout()));
+			http.setReadTimeout(getInteger(HTTP_READ_TIMEOUT, http.getReadTimeout()));
+			http.setWriteTimeout(getInteger(HTTP_WRITE_TIMEOUT, http.getWriteTimeout()));
+			http.setMaxIdleConnections(getInteger(HTTP_MAX_IDLE_CONNECTIONS, http.getMaxIdleConnections()));
+			http.setKeepAlive(getInteger(HTTP_KEEP_ALIVE, http.getKeepAlive()));
+			http.setMaxRequests(getInteger(HTTP_MAX_REQUESTS, http.getMaxRequests()));
+			http.setMaxRequestsPerHost(getInteger(HTTP_MAX_REQUESTS_PER_HOST, http.getMaxRequestsPerHost()));
+			http.setRateLimitPerExchange(getInteger(RATE_LIMIT_PER_EXCHANGE, http.getRateLimitPerExchange()));
+			http.setRateLimitPerKey(getInteger(RATE_LIMIT_PER_KEY, http.getRateLimitPerKey()));
+			http.setCircuitFailureRate(getInteger(CIRCUIT_FAILURE_RATE, http.getCircuitFailureRate()));
+			http.setCircuitSlowCall(getInteger(CIRCUIT_SLOW_CALL, http.getCircuitSlowCall()));
+			http.setCircuitOpenTime(getInteger(CIRCUIT_OPEN_TIME, http.getCircuitOpenTime()));
+			http.setRetryAttempts(getInteger(RETRY_ATTEMPTS, http.getRetryAttempts()));
+			http.setRetryDeadline(getInteger(RETRY_DEADLINE, http.getRetryDeadline()));
+		} catch (IllegalArgumentException e) {
+			throw new GameBreakerException("Invalid http client setting: " + e.getMessage(), e);
+		}
+
+		http.setHttp2(Boolean.parseBoolean(config.getProperty(HTTP_2, String.valueOf(http.isHttp2()))));
+		http.setWarmUp(Boolean.parseBoolean(config.getProperty(HTTP_WARM_UP, String.valueOf(http.isWarmUp()))));
+		http.setHedgeReads(Boolean.parseBoolean(config.getProperty(HEDGE_READS, String.valueOf(http.isHedgeReads()))));
+
+		return http;
+	}
+
+	private int getInteger(String property, int defaultValue) throws GameBreakerException {
+		String value = config.getProperty(property);
+
+		if (value == null) {
+			return defaultValue;
+		}
 
+		return NumberParser.parseInteger(value.trim());
+	}
+
+	private MailConfiguration parseMailConfiguration(MailConfiguration mailConfig, String prefix)
+			throws InvalidMailConfigException {
 		String protocol = IMAPS;
-		String host = config.getProperty("host");
-		String inbox = config.getProperty("inbox");
-		String password = config.getProperty("password");
-		String port = config.getProperty("port");
-		String username = config.getProperty("username");
+		String host = config.getProperty(prefix + "host");
+		String inbox = config.getProperty(prefix + "inbox");
+		String password = config.getProperty(prefix + "password");
+		String port = config.getProperty(prefix + "port");
+		String username = config.getProperty(prefix + "username");
 
 		if (fieldsNotNull(host, inbox, password, port, username)) {
 			int portNum = parsePortNumber(port);
@@ -96,6 +245,88 @@ public class PropertiesFileParser {
 		return config.getProperty(EXPECTED_SENDER);
 	}
 
+	/**
+	 * Returns the shared secret for the webhook.<br>
+	 * Null if the webhook shouldn't accept alerts.<br>
+	 */
+	public String getWebhookSecret() throws GameBreakerException {
+		checkLoaded();
+		return config.getProperty(WEBHOOK_SECRET);
+	}
+
+	/**
+	 * Returns the port for the embedded SMTP receiver.<br>
+	 * 0 if the receiver shouldn't be started.<br>
+	 * 
+	 * @throws GameBreakerException
+	 *             If the port isn't a number.
+	 */
+	public int getSmtpPort() throws GameBreakerException {
+		checkLoaded();
+
+		String port = config.getProperty(SMTP_PORT);
+
+		if (port == null) {
+			return 0;
+		}
+
+		return parsePortNumber(port);
+	}
+
+	/**
+	 * Returns the address the embedded SMTP receiver listens on.<br>
+	 * Null for the loopback address. The receiver doesn't authenticate
+	 * senders, so only bind it to an address that isn't reachable from
+	 * untrusted networks.<br>
+	 */
+	public String getSmtpAddress() throws GameBreakerException {
+		checkLoaded();
+
+		String address = config.getProperty(SMTP_ADDRESS);
+
+		return address == null ? null : address.trim();
+	}
+
+	/**
+	 * Returns the number of seconds in which a repeated alert is ignored.<br>
+	 * Defaults to 0, which disables the deduplication. Alerts are matched on
+	 * exchange, account, altcoin and order type, so a second buy of the same
+	 * altcoin within the window is ignored as well.<br>
+	 * 
+	 * @throws GameBreakerException
+	 *             If the window isn't a number or negative.
+	 */
+	public int getDedupWindow() throws GameBreakerException {
+		checkLoaded();
+
+		int window = getInteger(DEDUP_WINDOW, DEFAULT_DEDUP_WINDOW);
+
+		if (window < 0) {
+			throw new GameBreakerException("The dedup window can't be negative: " + window);
+		}
+
+		return window;
+	}
+
+	/**
+	 * Returns the file in which the recent alerts are kept across restarts.<br>
+	 * Null if they should only be kept in memory.<br>
+	 */
+	public String getDedupFile() throws GameBreakerException {
+		checkLoaded();
+		return config.getProperty(DEDUP_FILE);
+	}
+
+	/**
+	 * Returns if only the tickers of the markets we have positions or pending
+	 * orders in should be kept.<br>
+	 * Defaults to false.<br>
+	 */
+	public boolean getTickerFilter() throws GameBreakerException {
+		checkLoaded();
+		return Boolean.parseBoolean(config.getProperty(TICKER_FILTER));
+	}
+
 	public int getPollingInterval() throws GameBreakerException {
 		return getInterval(MAIL_POLLING_INTERVAL);
 	}
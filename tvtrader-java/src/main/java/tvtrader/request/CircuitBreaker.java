@@ -0,0 +1,229 @@
+package tvtrader.request;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending requests to an endpoint that keeps failing.<br>
+ * <br>
+ * Every endpoint has its own circuit. The circuit opens when enough of the
+ * last 20 calls failed or were slow. While it's open, requests fail right
+ * away. After the open time one request is let through as a probe: if it
+ * succeeds the circuit closes, otherwise it stays open for another open
+ * time.<br>
+ * <br>
+ * The latencies of the successful calls are kept as well, for the hedged
+ * reads.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class CircuitBreaker {
+	private static final int WINDOW = 20;
+	private static final int MINIMUM_CALLS = 10;
+	private static final int LATENCY_SAMPLES = 100;
+	private static final double PERCENTILE = 0.95;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final LongSupplier clock;
+	private final Map<String, Circuit> circuits = new LinkedHashMap<>();
+
+	private int failureRate = 50;
+	private long slowCallNanos = TimeUnit.SECONDS.toNanos(5);
+	private long openNanos = TimeUnit.SECONDS.toNanos(30);
+
+	public CircuitBreaker() {
+		this(System::nanoTime);
+	}
+
+	CircuitBreaker(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the percentage of failed or slow calls that opens a circuit, the
+	 * milliseconds after which a successful call counts as slow and the
+	 * milliseconds a circuit stays open.<br>
+	 * A failure rate of 0 disables the circuits, a slow call time of 0 doesn't
+	 * count slow calls.<br>
+	 */
+	public synchronized void configure(int failureRate, int slowCallMillis, int openMillis) {
+		log.info("Opening circuits at {}% failed calls, counting calls over {} ms as failed, for {} ms.",
+				failureRate, slowCallMillis, openMillis);
+		this.failureRate = failureRate;
+		this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+		circuits.clear();
+	}
+
+	/**
+	 * Checks if a request may be sent to the endpoint.<br>
+	 * Every acquired request must be followed by onSuccess or onFailure, also
+	 * when it couldn't be sent, or a probe keeps the circuit half open.<br>
+	 *
+	 * @return False if the circuit is open, or half open with the probe still
+	 *         running.
+	 */
+	public synchronized boolean tryAcquire(String endpoint) {
+		if (failureRate == 0) {
+			return true;
+		}
+
+		Circuit circuit = circuit(endpoint);
+
+		switch (circuit.state) {
+		case OPEN:
+			if (clock.getAsLong() - circuit.openedAt < openNanos) {
+				return false;
+			}
+
+			log.info("Probing {}.", endpoint);
+			circuit.state = State.HALF_OPEN;
+			return true;
+		case HALF_OPEN:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Records a call that got a response from the endpoint.<br>
+	 * A slow call counts as a failure.<br>
+	 */
+	public synchronized void onSuccess(String endpoint, long latencyNanos) {
+		Circuit circuit = circuit(endpoint);
+		circuit.addLatency(latencyNanos);
+
+		boolean slow = slowCallNanos > 0 && latencyNanos > slowCallNanos;
+		record(endpoint, circuit, slow);
+	}
+
+	/**
+	 * Records a call that didn't get a response, or got a server error.<br>
+	 */
+	public synchronized void onFailure(String endpoint) {
+		record(endpoint, circuit(endpoint), true);
+	}
+
+	/**
+	 * Returns the 95th percentile of the latencies of the last 100 successful
+	 * calls to the endpoint in nanoseconds.<br>
+	 *
+	 * @return -1 if there are less than 20 calls to go by.
+	 */
+	public synchronized long getP95Latency(String endpoint) {
+		Circuit circuit = circuits.get(endpoint);
+
+		if (circuit == null || circuit.latencyCount < WINDOW) {
+			return -1;
+		}
+
+		int samples = circuit.latencyCount;
+		long[] sorted = Arrays.copyOf(circuit.latencies, samples);
+		Arrays.sort(sorted);
+
+		return sorted[(int) Math.ceil(samples * PERCENTILE) - 1];
+	}
+
+	/**
+	 * Returns the state of the circuit of every endpoint, for monitoring.<br>
+	 */
+	public synchronized Map<String, State> getStates() {
+		Map<String, State> states = new LinkedHashMap<>();
+
+		circuits.forEach((endpoint, circuit) -> states.put(endpoint, circuit.state));
+
+		return states;
+	}
+
+	private void record(String endpoint, Circuit circuit, boolean failed) {
+		switch (circuit.state) {
+		case HALF_OPEN:
+			if (failed) {
+				log.warn("Probe of {} failed. Keeping the circuit open.", endpoint);
+				open(circuit);
+			} else {
+				log.info("Probe of {} succeeded. Closing the circuit.", endpoint);
+				circuit.close();
+			}
+			break;
+		case CLOSED:
+			circuit.addOutcome(failed);
+
+			if (failureRate > 0 && circuit.calls >= MINIMUM_CALLS
+					&& circuit.failures * 100 >= failureRate * circuit.calls) {
+				log.warn("Opening the circuit for {}. {} of the last {} calls failed or were slow.", endpoint,
+						circuit.failures, circuit.calls);
+				open(circuit);
+			}
+			break;
+		default:
+			// Calls that were sent before the circuit opened.
+		}
+	}
+
+	private void open(Circuit circuit) {
+		circuit.state = State.OPEN;
+		circuit.openedAt = clock.getAsLong();
+	}
+
+	private Circuit circuit(String endpoint) {
+		return circuits.computeIfAbsent(endpoint, key -> new Circuit());
+	}
+
+	private static final class Circuit {
+		private State state = State.CLOSED;
+		private long openedAt;
+
+		// The outcomes of the last calls, true if the call failed.
+		private final boolean[] outcomes = new boolean[WINDOW];
+		private int calls;
+		private int failures;
+		private int next;
+
+		private final long[] latencies = new long[LATENCY_SAMPLES];
+		private int latencyCount;
+		private int nextLatency;
+
+		private void addOutcome(boolean failed) {
+			if (calls == WINDOW && outcomes[next]) {
+				failures--;
+			}
+
+			outcomes[next] = failed;
+			next = (next + 1) % WINDOW;
+			calls = Math.min(calls + 1, WINDOW);
+
+			if (failed) {
+				failures++;
+			}
+		}
+
+		private void addLatency(long latency) {
+			latencies[nextLatency] = latency;
+			nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+			latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+		}
+
+		private void close() {
+			state = State.CLOSED;
+			Arrays.fill(outcomes, false);
+			calls = 0;
+			failures = 0;
+			next = 0;
+		}
+	}
+
+}
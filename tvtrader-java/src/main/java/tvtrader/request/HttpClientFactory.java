@@ -0,0 +1,49 @@
+package tvtrader.request;
+
+import lombok.extern.log4j.Log4j2;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.stereotype.Component;
+import tvtrader.model.HttpClientConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for creating the http clients from the configuration.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class HttpClientFactory {
+
+	public OkHttpClient create(HttpClientConfiguration configuration) {
+		log.debug("Creating http client: {}", configuration);
+
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequests(configuration.getMaxRequests());
+		dispatcher.setMaxRequestsPerHost(configuration.getMaxRequestsPerHost());
+
+		OkHttpClient.Builder builder = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(configuration.getMaxIdleConnections(), configuration.getKeepAlive(),
+						TimeUnit.SECONDS))
+				.dispatcher(dispatcher)
+				.connectTimeout(configuration.getConnectTimeout(), TimeUnit.MILLISECONDS)
+				.readTimeout(configuration.getReadTimeout(), TimeUnit.MILLISECONDS)
+				.writeTimeout(configuration.getWriteTimeout(), TimeUnit.MILLISECONDS);
+
+		if (configuration.isHttp2()) {
+			builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+		} else {
+			builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+		}
+
+		return builder.build();
+	}
+
+}
@@ -0,0 +1,300 @@
+package tvtrader.request;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import tvtrader.exchange.TransientExchangeException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the requests to the exchanges within their rate limits.<br>
+ * <br>
+ * Every exchange and every api key has its own token bucket. A request needs a
+ * token from the bucket of its exchange and, for private calls, from the
+ * bucket of its api key. The buckets hold the budget of 10 seconds, so short
+ * bursts are allowed.<br>
+ * <br>
+ * Orders always go first: waiting refreshes don't take tokens an order is
+ * waiting for, and refreshes leave 20% of every bucket for the orders.<br>
+ * <br>
+ * Requests that have to wait don't block a thread, they're completed by the
+ * scheduler of the rate limiter once the tokens are available. At most 1000
+ * requests wait at a time, beyond that the newest refresh is rejected. A
+ * request that is cancelled while waiting leaves the queue.<br>
+ * <br>
+ * The limits are off until they're configured.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class RateLimiter {
+	private static final int BURST_SECONDS = 10;
+	private static final double ORDER_RESERVE = 0.2;
+	private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+	private static final String SEPARATOR = "_";
+	private static final int MAX_WAITING = 1_000;
+
+	private final LongSupplier clock;
+	private final ScheduledExecutorService scheduler;
+
+	// Ordered by lane, then by arrival.
+	private final NavigableSet<Waiter> waiters = new TreeSet<>(Comparator
+			.comparing((Waiter waiter) -> waiter.budget.getPriority())
+			.thenComparingLong(waiter -> waiter.sequence));
+	private final Map<String, TokenBucket> buckets = new LinkedHashMap<>();
+
+	private int perExchange;
+	private int perKey;
+	private long sequence;
+	private ScheduledFuture<?> scheduledDrain;
+	private long scheduledAt;
+
+	public RateLimiter() {
+		this(System::nanoTime, Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "rate-limiter");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	RateLimiter(LongSupplier clock, ScheduledExecutorService scheduler) {
+		this.clock = clock;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets the number of requests per minute for every exchange and every api
+	 * key.<br>
+	 * 0 disables the limit.<br>
+	 */
+	public synchronized void configure(int perExchange, int perKey) {
+		log.info("Limiting the requests to {} per minute per exchange and {} per minute per api key.", perExchange,
+				perKey);
+		this.perExchange = perExchange;
+		this.perKey = perKey;
+		buckets.clear();
+	}
+
+	/**
+	 * Takes the tokens for a request.<br>
+	 * Cancelling the returned future gives up the place in the queue.<br>
+	 *
+	 * @return Completes once the request may be sent. Fails with a
+	 *         TransientExchangeException if too many requests are waiting.
+	 */
+	public CompletableFuture<Void> acquire(RequestBudget budget) {
+		Waiter waiter = new Waiter(budget);
+		Waiter rejected = null;
+
+		synchronized (this) {
+			waiter.sequence = sequence++;
+			waiters.add(waiter);
+
+			if (waiters.size() > MAX_WAITING) {
+				// The lowest lane and the latest arrival.
+				rejected = waiters.pollLast();
+			}
+		}
+
+		if (rejected != null) {
+			log.debug("Rejecting {}, {} requests are waiting already.", rejected.budget, MAX_WAITING);
+			rejected.future.completeExceptionally(new TransientExchangeException(
+					"Too many requests are waiting for " + rejected.budget.getExchange() + "."));
+		}
+
+		waiter.future.whenComplete((ignored, failure) -> {
+			if (failure != null) {
+				drain();
+			}
+		});
+
+		drain();
+
+		return waiter.future;
+	}
+
+	/**
+	 * Returns the tokens left in every bucket, by exchange or by exchange and api
+	 * key, for monitoring.<br>
+	 */
+	public synchronized Map<String, Double> getRemainingBudget() {
+		long now = clock.getAsLong();
+		Map<String, Double> remaining = new LinkedHashMap<>();
+
+		for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+			remaining.put(entry.getKey(), entry.getValue().available(now));
+		}
+
+		return remaining;
+	}
+
+	/**
+	 * Returns the number of requests waiting for tokens.<br>
+	 */
+	public synchronized int getWaiting() {
+		return waiters.size();
+	}
+
+	/**
+	 * Hands out tokens to the waiting requests in order and schedules the next
+	 * drain if any have to wait.<br>
+	 */
+	void drain() {
+		List<Waiter> granted = new ArrayList<>();
+
+		synchronized (this) {
+			long now = clock.getAsLong();
+			long wait = Long.MAX_VALUE;
+			Set<TokenBucket> blocked = new HashSet<>();
+			Iterator<Waiter> iterator = waiters.iterator();
+
+			while (iterator.hasNext()) {
+				Waiter waiter = iterator.next();
+
+				// Cancelled by the caller or rejected.
+				if (waiter.future.isDone()) {
+					iterator.remove();
+					continue;
+				}
+
+				List<TokenBucket> needed = bucketsFor(waiter.budget);
+				boolean order = waiter.budget.getPriority() == RequestPriority.ORDER;
+
+				if (needed.stream().anyMatch(blocked::contains)) {
+					continue;
+				}
+
+				List<TokenBucket> shortBuckets = new ArrayList<>();
+				for (TokenBucket bucket : needed) {
+					if (bucket.available(now) < bucket.required(order)) {
+						shortBuckets.add(bucket);
+						wait = Math.min(wait, bucket.nanosUntil(bucket.required(order), now));
+					}
+				}
+
+				if (shortBuckets.isEmpty()) {
+					needed.forEach(TokenBucket::take);
+					iterator.remove();
+					granted.add(waiter);
+				} else {
+					if (!waiter.throttled) {
+						waiter.throttled = true;
+						log.debug("Throttling {}. Remaining budget: {}", waiter.budget, getRemainingBudget());
+					}
+
+					// Later requests can't overtake this one for the same budget.
+					blocked.addAll(shortBuckets);
+				}
+			}
+
+			if (!waiters.isEmpty()) {
+				scheduleDrain(now, wait);
+			}
+		}
+
+		granted.forEach(waiter -> waiter.future.complete(null));
+	}
+
+	private void scheduleDrain(long now, long wait) {
+		long at = now + Math.max(wait, 1);
+
+		if (scheduledDrain != null && !scheduledDrain.isDone() && scheduledAt <= at) {
+			return;
+		}
+
+		if (scheduledDrain != null) {
+			scheduledDrain.cancel(false);
+		}
+
+		scheduledAt = at;
+		scheduledDrain = scheduler.schedule(this::drain, at - now, TimeUnit.NANOSECONDS);
+	}
+
+	private List<TokenBucket> bucketsFor(RequestBudget budget) {
+		List<TokenBucket> needed = new ArrayList<>(2);
+
+		if (perExchange > 0) {
+			needed.add(bucket(budget.getExchange(), perExchange));
+		}
+
+		if (perKey > 0 && budget.getApiKey() != null) {
+			needed.add(bucket(budget.getExchange() + SEPARATOR + budget.getApiKey(), perKey));
+		}
+
+		return needed;
+	}
+
+	private TokenBucket bucket(String name, int perMinute) {
+		return buckets.computeIfAbsent(name, key -> new TokenBucket(perMinute, clock.getAsLong()));
+	}
+
+	private static final class Waiter {
+		private final RequestBudget budget;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+		private long sequence;
+		private boolean throttled;
+
+		private Waiter(RequestBudget budget) {
+			this.budget = budget;
+		}
+	}
+
+	/**
+	 * Refills continuously at the rate per minute, up to the budget of
+	 * BURST_SECONDS.<br>
+	 */
+	private static final class TokenBucket {
+		private final double capacity;
+		private final double reserve;
+		private final double tokensPerNano;
+		private double tokens;
+		private long lastRefill;
+
+		private TokenBucket(int perMinute, long now) {
+			capacity = Math.max(1, perMinute * BURST_SECONDS / 60.0);
+			reserve = capacity >= 2 ? Math.max(1, Math.floor(capacity * ORDER_RESERVE)) : 0;
+			tokensPerNano = (double) perMinute / NANOS_PER_MINUTE;
+			tokens = capacity;
+			lastRefill = now;
+		}
+
+		private double available(long now) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+			lastRefill = now;
+			return tokens;
+		}
+
+		/**
+		 * Refreshes have to leave the reserve for the orders.<br>
+		 */
+		private double required(boolean order) {
+			return order ? 1 : 1 + reserve;
+		}
+
+		private long nanosUntil(double required, long now) {
+			return (long) Math.ceil((required - available(now)) / tokensPerNano);
+		}
+
+		private void take() {
+			tokens -= 1;
+		}
+	}
+
+}
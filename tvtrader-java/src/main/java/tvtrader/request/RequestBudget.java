@@ -0,0 +1,32 @@
+package tvtrader.request;
+
+import lombok.Value;
+
+/**
+ * Tells the rate limiter whose budget a request uses: that of the exchange
+ * and, for private calls, that of the api key.<br>
+ * 
+ * @author Wouter
+ *
+ */
+@Value
+public class RequestBudget {
+	private String exchange;
+
+	// Null for public calls.
+	private String apiKey;
+
+	private RequestPriority priority;
+
+	public static RequestBudget order(String exchange, String apiKey) {
+		return new RequestBudget(exchange, apiKey, RequestPriority.ORDER);
+	}
+
+	public static RequestBudget refresh(String exchange, String apiKey) {
+		return new RequestBudget(exchange, apiKey, RequestPriority.REFRESH);
+	}
+
+	public static RequestBudget refresh(String exchange) {
+		return new RequestBudget(exchange, null, RequestPriority.REFRESH);
+	}
+}
@@ -1,14 +1,22 @@
 package tvtrader.request;
 
 import lombok.extern.log4j.Log4j2;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import tvtrader.model.HttpClientConfiguration;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Handles the requests to the endpoint.<br>
@@ -21,7 +29,60 @@ import java.util.Map;
 @Log4j2
 @Component
 public class RequestHandler {
-	private static final OkHttpClient CLIENT = new OkHttpClient();
+	private static final String WARM_UP_METHOD = "HEAD";
+
+	private HttpClientFactory clientFactory;
+	private volatile OkHttpClient client;
+
+	public RequestHandler() {
+		this(new HttpClientFactory());
+	}
+
+	@Autowired
+	public RequestHandler(HttpClientFactory clientFactory) {
+		this.clientFactory = clientFactory;
+		this.client = clientFactory.create(new HttpClientConfiguration());
+	}
+
+	/**
+	 * Replaces the http client with one created from the configuration.<br>
+	 * Requests that are already sent are finished by the old client.<br>
+	 */
+	public void configure(HttpClientConfiguration configuration) {
+		OkHttpClient old = client;
+		client = clientFactory.create(configuration);
+		old.connectionPool().evictAll();
+	}
+
+	/**
+	 * Opens a connection to each of the hosts, so the first real request doesn't
+	 * have to wait for the DNS lookup and the TCP and TLS handshakes.<br>
+	 * The connections stay in the pool for the configured keep alive.<br>
+	 * 
+	 * @return Completes when all the hosts have answered or failed. Never fails.
+	 */
+	public CompletableFuture<Void> warmUp(Collection<String> hosts) {
+		List<CompletableFuture<Void>> warmUps = new ArrayList<>();
+
+		for (String host : hosts) {
+			Url url = new Url(host);
+			url.setMethod(WARM_UP_METHOD);
+
+			warmUps.add(sendRequestAsync(url).handle((response, e) -> {
+				if (e != null) {
+					log.info("Couldn't warm up the connection to {}. Received the following message: {}", host,
+							e.getMessage());
+				} else {
+					response.close();
+					log.info("Warmed up the connection to {}.", host);
+				}
+
+				return null;
+			}));
+		}
+
+		return CompletableFuture.allOf(warmUps.toArray(new CompletableFuture<?>[0]));
+	}
 
 	/**
 	 * Sends a requests to the url.
@@ -31,12 +92,55 @@ public class RequestHandler {
 	 *             If anything goes wrong while contacting the server.
 	 */
 	public Response sendRequest(Url endpoint) throws IOException {
+		return sendRequest(buildRequest(endpoint));
+	}
+
+	/**
+	 * Sends a request to the url without blocking.<br>
+	 * The future is completed on one of the threads of the http client, so
+	 * callbacks shouldn't block.<br>
+	 * 
+	 * Cancelling the future cancels the call.<br>
+	 * 
+	 * @return The response. Fails with an IOException if anything goes wrong
+	 *         while contacting the server.
+	 */
+	public CompletableFuture<Response> sendRequestAsync(Url endpoint) {
+		CompletableFuture<Response> future = new CompletableFuture<>();
+		Request request = buildRequest(endpoint);
+		Call newCall = client.newCall(request);
+
+		log.debug("Enqueueing request...");
+		newCall.enqueue(new Callback() {
+			@Override
+			public void onResponse(Call call, Response response) {
+				// Nobody reads the response of a cancelled call.
+				if (!future.complete(response)) {
+					response.close();
+				}
+			}
+
+			@Override
+			public void onFailure(Call call, IOException e) {
+				future.completeExceptionally(e);
+			}
+		});
+
+		future.whenComplete((response, failure) -> {
+			if (future.isCancelled()) {
+				newCall.cancel();
+			}
+		});
+
+		return future;
+	}
+
+	private Request buildRequest(Url endpoint) {
 		log.debug("Building request with endpoint: {}", endpoint.getUrl());
 		Builder builder = setupBuilder(endpoint.getUrl());
 		addHeaders(endpoint.getHeaders(), builder);
 		builder.method(endpoint.getMethod(), null);
-		Request request = builder.build();
-		return sendRequest(request);
+		return builder.build();
 	}
 
 	private Builder setupBuilder(String url) {
@@ -54,6 +158,6 @@ public class RequestHandler {
 
 	private Response sendRequest(Request request) throws IOException {
 		log.debug("Sending request...");
-		return CLIENT.newCall(request).execute();
+		return client.newCall(request).execute();
 	}
 }
@@ -0,0 +1,21 @@
+package tvtrader.request;
+
+/**
+ * The lanes of the rate limiter.<br>
+ * Orders always go ahead of refreshes and part of the budget is kept for
+ * them.<br>
+ * 
+ * @author Wouter
+ *
+ */
+public enum RequestPriority {
+	/**
+	 * Placing and cancelling orders.
+	 */
+	ORDER,
+
+	/**
+	 * Refreshing tickers, balances, open orders and the order history.
+	 */
+	REFRESH
+}
@@ -0,0 +1,166 @@
+package tvtrader.request;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import tvtrader.exchange.TransientExchangeException;
+import tvtrader.utils.Futures;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Sends reads again when they fail with a TransientExchangeException.<br>
+ * <br>
+ * The attempts are spread out with an exponential backoff with full jitter:
+ * a random wait of up to 250 ms after the first attempt, up to 500 ms after
+ * the second and so on, up to 4 seconds. No attempt is started that can't
+ * finish before the deadline, and the call fails at the deadline even if an
+ * attempt is still running. That attempt is cancelled, so it also leaves the
+ * queue of the rate limiter, and no attempt is started after it. The same goes
+ * for cancelling the call, with or without a deadline.<br>
+ * <br>
+ * Every attempt is built again, so signed requests get a fresh nonce and
+ * signature.<br>
+ *
+ * @author Wouter
+ *
+ */
+@Log4j2
+@Component
+public class RetryPolicy {
+	private static final long BASE_BACKOFF = TimeUnit.MILLISECONDS.toNanos(250);
+	private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(4);
+
+	private final LongSupplier clock;
+	private final ScheduledExecutorService scheduler;
+	private final DoubleSupplier jitter;
+
+	private volatile int attempts = 3;
+	private volatile long deadlineNanos = TimeUnit.SECONDS.toNanos(15);
+
+	public RetryPolicy() {
+		this(System::nanoTime, Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "retry");
+			thread.setDaemon(true);
+			return thread;
+		}), () -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	RetryPolicy(LongSupplier clock, ScheduledExecutorService scheduler, DoubleSupplier jitter) {
+		this.clock = clock;
+		this.scheduler = scheduler;
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Sets the maximum number of attempts per call and the milliseconds a call
+	 * may take in total.<br>
+	 * A deadline of 0 means the call can take as long as the attempts take.<br>
+	 */
+	public void configure(int attempts, int deadlineMillis) {
+		log.info("Trying reads up to {} times within {} ms.", attempts, deadlineMillis);
+		this.attempts = attempts;
+		this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+	}
+
+	/**
+	 * Makes the call, and makes it again while it fails with a
+	 * TransientExchangeException and there are attempts and time left.<br>
+	 *
+	 * @param call
+	 *            Builds and sends one attempt.
+	 * @return The result of the first successful attempt. Fails with the
+	 *         exception of the last attempt, or with a
+	 *         TransientExchangeException at the deadline.
+	 */
+	public <T> CompletableFuture<T> retry(Supplier<CompletableFuture<T>> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicReference<CompletableFuture<T>> running = new AtomicReference<>();
+		long deadline = deadlineNanos > 0 ? clock.getAsLong() + deadlineNanos : Long.MAX_VALUE;
+
+		// Cancelling the call, or failing it at the deadline, also cancels the running attempt.
+		result.whenComplete((value, failure) -> cancel(running.get()));
+
+		if (deadline != Long.MAX_VALUE) {
+			ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+				result.completeExceptionally(
+						new TransientExchangeException("The call didn't finish before its deadline."));
+			}, deadlineNanos, TimeUnit.NANOSECONDS);
+			result.whenComplete((value, failure) -> timeout.cancel(false));
+		}
+
+		attempt(call, 1, deadline, result, running);
+
+		return result;
+	}
+
+	private <T> void attempt(Supplier<CompletableFuture<T>> call, int attempt, long deadline,
+			CompletableFuture<T> result, AtomicReference<CompletableFuture<T>> running) {
+		if (result.isDone()) {
+			return;
+		}
+
+		CompletableFuture<T> future;
+
+		try {
+			future = call.get();
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return;
+		}
+
+		running.set(future);
+
+		// The deadline might have passed while the attempt was built.
+		if (result.isDone()) {
+			cancel(future);
+			return;
+		}
+
+		future.whenComplete((value, failure) -> {
+			if (result.isDone()) {
+				return;
+			}
+
+			if (failure == null) {
+				result.complete(value);
+				return;
+			}
+
+			Throwable cause = Futures.unwrap(failure);
+			long backoff = backoff(attempt);
+
+			if (!(cause instanceof TransientExchangeException) || attempt >= attempts
+					|| clock.getAsLong() + backoff >= deadline) {
+				result.completeExceptionally(cause);
+				return;
+			}
+
+			log.info("Attempt {} failed, trying again in {} ms. Received the following message: {}", attempt,
+					TimeUnit.NANOSECONDS.toMillis(backoff), cause.getMessage());
+			scheduler.schedule(() -> attempt(call, attempt + 1, deadline, result, running), backoff,
+					TimeUnit.NANOSECONDS);
+		});
+	}
+
+	private void cancel(CompletableFuture<?> attempt) {
+		if (attempt != null) {
+			attempt.cancel(false);
+		}
+	}
+
+	private long backoff(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(attempt - 1, 16));
+
+		return (long) (jitter.getAsDouble() * ceiling);
+	}
+
+}
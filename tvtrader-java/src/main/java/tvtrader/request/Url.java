@@ -51,6 +51,16 @@ public class Url {
         return url.toString();
     }
 
+    /**
+     * Returns the url without the query, the same for every call to the
+     * endpoint.
+     */
+    public String getEndpoint() {
+        int query = baseUrl.indexOf('?');
+
+        return query < 0 ? baseUrl : baseUrl.substring(0, query);
+    }
+
 	public void addHeader(String header, String value) {
 		headers.put(header, value);
 	}
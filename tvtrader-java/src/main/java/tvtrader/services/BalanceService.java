@@ -4,15 +4,16 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import tvtrader.caches.BalanceCache;
+import tvtrader.caches.SingleFlight;
 import tvtrader.exchange.Exchange;
 import tvtrader.exchange.ExchangeException;
 import tvtrader.exchange.ExchangeFactory;
 import tvtrader.model.ApiCredentials;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Log4j2
 @Service
@@ -24,12 +25,16 @@ public class BalanceService {
 	
 	private Map<String, BalanceCache> caches;
 
+	// One refresh per account at a time.
+	private SingleFlight<BalanceCache> refreshes;
+
 	@Autowired
 	public BalanceService(AccountService accountService, ExchangeFactory factory, ConfigurationService configurationService) {
 		this.accountService = accountService;
 		this.factory = factory;
 		this.configurationService = configurationService;
-		caches = new HashMap<>();
+		caches = new ConcurrentHashMap<>();
+		refreshes = new SingleFlight<>();
 	}
 
 
@@ -68,12 +73,14 @@ public class BalanceService {
 		Exchange exchange = factory.getExchange(exchangeName);
 		BalanceCache cache = caches.computeIfAbsent(accountName, value -> new BalanceCache());
 
-		long currentTimeMilli = System.currentTimeMillis();
-		if (refreshNeeded(cache, currentTimeMilli)) {
-			ApiCredentials credentials = accountService.getCredentials(exchangeName, accountName);
-			Map<String, Double> balances = exchange.getBalances(credentials);
-			cache.refreshCache(balances);
-		}
+		refreshes.refreshIfNeeded(exchangeName + "_" + accountName,
+				() -> refreshNeeded(cache, System.currentTimeMillis()), () -> {
+					ApiCredentials credentials = accountService.getCredentials(exchangeName, accountName);
+					Map<String, Double> balances = exchange.getBalances(credentials);
+					cache.refreshCache(balances);
+
+					return cache;
+				});
 		return cache;
 	}
 
@@ -1,12 +1,19 @@
 package tvtrader.services;
 
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import tvtrader.model.Configuration;
+import tvtrader.model.HttpClientConfiguration;
 import tvtrader.model.MailConfiguration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -24,10 +31,55 @@ public class ConfigurationService {
 	@Setter @NonNull
 	private MailConfiguration mailConfiguration;
 
+	private List<MailConfiguration> additionalMailConfigurations = new ArrayList<>();
+
+	// Not persisted, account names by group name.
+	private Map<String, List<String>> accountGroups = new HashMap<>();
+
+	// Not persisted, read from the properties file on every start. A feature is
+	// off while its setting is 0, null or false.
+	@Getter @Setter private String webhookSecret;
+	@Getter @Setter private int smtpPort;
+	@Getter @Setter private String smtpAddress;
+	@Getter @Setter private int dedupWindow;
+	@Getter @Setter private String dedupFile;
+	@Getter @Setter private boolean tickerFilter;
+	@Getter @Setter @NonNull private HttpClientConfiguration httpClientConfiguration = new HttpClientConfiguration();
+
 	public Properties getMailConfigurationAsProperties() {
 		return mailConfiguration.getProperties();
 	}
 
+	/**
+	 * Adds a mailbox that is checked for alerts next to the default mail
+	 * configuration.<br>
+	 * Replaces an earlier additional mailbox with the same name.<br>
+	 */
+	public void addMailConfiguration(@NonNull MailConfiguration configuration) {
+		additionalMailConfigurations.removeIf(existing -> existing.getName().equals(configuration.getName()));
+		additionalMailConfigurations.add(configuration);
+	}
+
+	public List<MailConfiguration> getAdditionalMailConfigurations() {
+		return Collections.unmodifiableList(additionalMailConfigurations);
+	}
+
+	/**
+	 * Adds a named group of accounts that alerts can address as a whole.<br>
+	 * Replaces an earlier group with the same name.<br>
+	 */
+	public void addAccountGroup(@NonNull String name, @NonNull List<String> accounts) {
+		accountGroups.put(name, new ArrayList<>(accounts));
+	}
+
+	/**
+	 * Returns the accounts in the group or an empty list if the group is
+	 * unknown.<br>
+	 */
+	public List<String> getAccountGroup(String name) {
+		return Collections.unmodifiableList(accountGroups.getOrDefault(name, Collections.emptyList()));
+	}
+
 	public void setUnfilledOrdersReplaceFlag(boolean flag) {
 		configuration.setRetryOrderFlag(flag);
 	}
@@ -8,10 +8,13 @@ import tvtrader.exchange.apidata.Order;
 import tvtrader.model.Account;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.utils.Futures;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 
 @Log4j2
 @Component
@@ -139,6 +142,52 @@ public class ExchangeService {
 		}
 	}
 
+	/**
+	 * Places the provided order at the exchange without blocking.<br>
+	 * 
+	 * @param order
+	 *            The order to place.
+	 * @return True if the order succeeded. Never fails, completes with false if
+	 *         anything goes wrong.
+	 */
+	public CompletableFuture<Boolean> placeOrderAsync(MarketOrder order) {
+		Account account = accountService.getAccount(order.getExchange(), order.getAccount());
+		ApiCredentials credentials = account.getCredentials();
+
+		return orderService.placeOrderAsync(order, credentials).exceptionally(e -> {
+			log.debug("Exception: ", e);
+			log.error("Couldn't place order at exchange. Received the following message: {}",
+					Futures.unwrap(e).getMessage());
+			return false;
+		});
+	}
+
+	/**
+	 * Places the provided orders of one account at the exchange without
+	 * blocking.<br>
+	 * 
+	 * @param orders
+	 *            The orders to place, all for the same exchange and account.
+	 * @return For every order, in the same order: True if the order succeeded.
+	 *         Never fails, all orders are false if the exchange is unknown.
+	 */
+	public CompletableFuture<List<Boolean>> placeOrdersAsync(List<MarketOrder> orders) {
+		if (orders.isEmpty()) {
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+
+		MarketOrder first = orders.get(0);
+		Account account = accountService.getAccount(first.getExchange(), first.getAccount());
+		ApiCredentials credentials = account.getCredentials();
+
+		return orderService.placeOrdersAsync(first.getExchange(), orders, credentials).exceptionally(e -> {
+			log.debug("Exception: ", e);
+			log.error("Couldn't place orders at exchange. Received the following message: {}",
+					Futures.unwrap(e).getMessage());
+			return Collections.nCopies(orders.size(), false);
+		});
+	}
+
 	/**
 	 * Calculates the bought price for the given balance and altcoin.<br>
 	 * If the bought price can't be determined returns 0.<br>
@@ -198,4 +247,44 @@ public class ExchangeService {
 
 		return orderService.cancelOrder(exchangeName, credentials, orderId);
 	}
+
+	/**
+	 * Fetches all the open orders for the account without blocking.<br>
+	 * 
+	 * @return List of all the open orders. Fails with an ExchangeException if
+	 *         anything goes wrong.
+	 */
+	public CompletableFuture<List<Order>> getOpenOrdersAsync(String exchangeName, String accountName) {
+		Account account = accountService.getAccount(exchangeName, accountName);
+		ApiCredentials credentials = account.getCredentials();
+
+		return orderService.getOpenOrdersAsync(exchangeName, credentials);
+	}
+
+	/**
+	 * Cancels the order without blocking.<br>
+	 * 
+	 * @return True if successful. Fails with an ExchangeException if the exchange
+	 *         is unknown.
+	 */
+	public CompletableFuture<Boolean> cancelOrderAsync(String exchangeName, String accountName, String orderId) {
+		Account account = accountService.getAccount(exchangeName, accountName);
+		ApiCredentials credentials = account.getCredentials();
+
+		return orderService.cancelOrderAsync(exchangeName, credentials, orderId);
+	}
+
+	/**
+	 * Cancels the orders without blocking.<br>
+	 * 
+	 * @return For every order, in the same order: True if successful. Fails with
+	 *         an ExchangeException if the exchange is unknown.
+	 */
+	public CompletableFuture<List<Boolean>> cancelOrdersAsync(String exchangeName, String accountName,
+			List<String> orderIds) {
+		Account account = accountService.getAccount(exchangeName, accountName);
+		ApiCredentials credentials = account.getCredentials();
+
+		return orderService.cancelOrdersAsync(exchangeName, credentials, orderIds);
+	}
 }
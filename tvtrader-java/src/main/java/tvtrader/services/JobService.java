@@ -4,11 +4,22 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import tvtrader.jobs.MailFetchJob;
+import tvtrader.jobs.MailIdleJob;
 import tvtrader.jobs.OpenOrdersJob;
 import tvtrader.jobs.OrderPlacerJob;
 import tvtrader.jobs.StoplossCheckJob;
+import tvtrader.mail.MailClient;
+import tvtrader.mail.MailClientException;
+import tvtrader.mail.SmtpReceiver;
+import tvtrader.model.MailConfiguration;
+import tvtrader.orders.OrderPipeline;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -21,27 +32,51 @@ public class JobService implements Closeable {
 	private int stoplossInterval;
 	private int openOrdersInterval;
 	private boolean running;
+	private boolean pushMode;
 
-	private ScheduledFuture<?> orderCheckerFuture;
+	private Future<?> orderCheckerFuture;
 	private ScheduledFuture<?> stoplossCheckerFuture;
 	private ScheduledFuture<?> openOrdersCheckerFuture;
 
 	private MailFetchJob mailFetchJob;
+	private MailIdleJob mailIdleJob;
 	private StoplossCheckJob stoplossCheckJob;
 	private OpenOrdersJob openOrdersJob;
 	private OrderPlacerJob orderPlacerJob;
 	private ConfigurationService configurationService;
 	private ScheduledExecutorService executorService;
+	private ExecutorService mailIdleExecutor;
+
+	// Fetches and keepalives of the default mailbox in push mode, so they don't
+	// wait behind the other jobs.
+	private ScheduledExecutorService defaultMailboxExecutor;
+
+	// Additional mailboxes, each checked on its own thread.
+	private ScheduledExecutorService mailboxExecutor;
+	private List<MailIdleJob> mailboxIdleJobs = new ArrayList<>();
+	private List<MailClient> mailboxClients = new ArrayList<>();
+	private List<MailFetchJob> polledMailboxes = new ArrayList<>();
+	private List<ScheduledFuture<?>> mailboxFutures = new ArrayList<>();
+
+	private SmtpReceiver smtpReceiver;
+	private OrderPipeline orderPipeline;
 
 	@Autowired
-	public JobService(MailFetchJob mailFetchJob, StoplossCheckJob stoplossCheckJob, OpenOrdersJob openOrdersJob, OrderPlacerJob orderPlacerJob, ConfigurationService configurationService,
-	                  ScheduledExecutorService executorService) {
+	public JobService(MailClient mailClient, MailFetchJob mailFetchJob, StoplossCheckJob stoplossCheckJob, OpenOrdersJob openOrdersJob, OrderPlacerJob orderPlacerJob, ConfigurationService configurationService,
+	                  ScheduledExecutorService executorService, SmtpReceiver smtpReceiver, OrderPipeline orderPipeline) {
+		this.smtpReceiver = smtpReceiver;
+		this.orderPipeline = orderPipeline;
 		this.mailFetchJob = mailFetchJob;
+		// One thread for fetching and one for the keepalives.
+		this.defaultMailboxExecutor = Executors.newScheduledThreadPool(2);
+		this.mailIdleJob = new MailIdleJob(mailClient, mailFetchJob, defaultMailboxExecutor,
+				this::pollDefaultMailbox);
 		this.stoplossCheckJob = stoplossCheckJob;
 		this.openOrdersJob = openOrdersJob;
 		this.orderPlacerJob = orderPlacerJob;
 		this.configurationService = configurationService;
 		this.executorService = executorService;
+		this.mailIdleExecutor = Executors.newCachedThreadPool();
 	}
 	
 	public void startJobs() {
@@ -49,15 +84,19 @@ public class JobService implements Closeable {
 			running = true;
 
 			stoplossCheckJob.startStoplossProtection();
+			orderPipeline.start();
 
-			orderCheckerFuture = executorService.scheduleAtFixedRate(mailFetchJob, 0, configurationService.getMailPollingInterval(),
-			                                                         TimeUnit.SECONDS);
+			orderCheckerFuture = startMailJob();
+			startAdditionalMailboxes();
 			stoplossCheckerFuture = executorService.scheduleAtFixedRate(stoplossCheckJob, 0, configurationService.getStoplossInterval(),
 					TimeUnit.SECONDS);
 			openOrdersCheckerFuture = executorService.scheduleAtFixedRate(openOrdersJob, 0, configurationService.getOpenOrdersInterval(),
 					TimeUnit.SECONDS);
+			// Places the sells of the stoploss protection and the orders replaced by the
+			// open orders job. Alerts are placed right away by the order pipeline.
 			ScheduledFuture<?>  orderPlacerFuture = executorService.scheduleAtFixedRate(orderPlacerJob, 0, ORDER_PLACER_INTERVAL,
 					TimeUnit.SECONDS);
+			startSmtpReceiver();
 
 			// Checkers don't actually return anything. All exceptions get caught by the
 			// checkers.
@@ -74,14 +113,131 @@ public class JobService implements Closeable {
 	}
 
 	/**
-	 * Sets the polling interval.
+	 * Starts listening for new mails with IMAP IDLE if the mail server supports
+	 * it.<br>
+	 * Falls back to polling the mail server otherwise.<br>
+	 */
+	private Future<?> startMailJob() {
+		if (mailIdleJob.isSupported()) {
+			log.info("Mail server supports IDLE. Listening for new mails.");
+			pushMode = true;
+
+			return mailIdleExecutor.submit(mailIdleJob);
+		} else {
+			log.info("Mail server doesn't support IDLE. Polling for new mails.");
+			pushMode = false;
+
+			return executorService.scheduleAtFixedRate(mailFetchJob, 0, configurationService.getMailPollingInterval(),
+			                                           TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Polls the default mailbox once listening with IMAP IDLE keeps failing.<br>
+	 */
+	private synchronized void pollDefaultMailbox() {
+		if (!running) {
+			return;
+		}
+
+		pushMode = false;
+		orderCheckerFuture = executorService.scheduleAtFixedRate(mailFetchJob, 0,
+				configurationService.getMailPollingInterval(), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Polls an additional mailbox once listening with IMAP IDLE keeps
+	 * failing.<br>
+	 */
+	private synchronized void pollMailbox(MailFetchJob mailboxJob) {
+		if (!running) {
+			return;
+		}
+
+		polledMailboxes.add(mailboxJob);
+		mailboxFutures.add(mailboxExecutor.scheduleAtFixedRate(mailboxJob, 0,
+				configurationService.getMailPollingInterval(), TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Starts checking the additional mailboxes, if any.<br>
+	 * Every mailbox gets its own connection and is checked on its own thread, with
+	 * IMAP IDLE if the mail server supports it.<br>
+	 */
+	private void startAdditionalMailboxes() {
+		List<MailConfiguration> mailboxes = configurationService.getAdditionalMailConfigurations();
+
+		if (mailboxes.isEmpty()) {
+			return;
+		}
+
+		// One thread per mailbox for polling or fetching and one for the keepalives.
+		mailboxExecutor = Executors.newScheduledThreadPool(mailboxes.size() + 1);
+
+		for (MailConfiguration mailbox : mailboxes) {
+			MailClient client = new MailClient(configurationService, mailbox);
+			MailFetchJob mailboxJob = new MailFetchJob(client, orderPipeline);
+			mailboxClients.add(client);
+
+			if (client.supportsIdle()) {
+				log.info("Mailbox {} supports IDLE. Listening for new mails.", mailbox.getName());
+				MailIdleJob idleJob = new MailIdleJob(client, mailboxJob, mailboxExecutor,
+						() -> pollMailbox(mailboxJob));
+
+				mailboxIdleJobs.add(idleJob);
+				mailIdleExecutor.submit(idleJob);
+			} else {
+				log.info("Mailbox {} doesn't support IDLE. Polling for new mails.", mailbox.getName());
+				polledMailboxes.add(mailboxJob);
+			}
+		}
+
+		schedulePolledMailboxes(configurationService.getMailPollingInterval());
+	}
+
+	/**
+	 * Starts the embedded SMTP receiver if a port is configured.<br>
+	 * The order lines of every received mail are handed to the order pipeline as
+	 * one batch.<br>
+	 * If the receiver can't be started the other jobs keep running, the alerts
+	 * only come in through the mailboxes and the webhook then.<br>
+	 */
+	private void startSmtpReceiver() {
+		int port = configurationService.getSmtpPort();
+
+		if (port <= 0) {
+			return;
+		}
+
+		try {
+			smtpReceiver.start(configurationService.getSmtpAddress(), port, orderPipeline::ingest);
+		} catch (MailClientException e) {
+			log.debug("Exception: ", e);
+			log.error("Couldn't start the SMTP receiver. Received the following message: {}", e.getMessage());
+		}
+	}
+
+	private void schedulePolledMailboxes(int interval) {
+		for (ScheduledFuture<?> future : mailboxFutures) {
+			future.cancel(true);
+		}
+		mailboxFutures.clear();
+
+		for (MailFetchJob mailboxJob : polledMailboxes) {
+			mailboxFutures.add(mailboxExecutor.scheduleAtFixedRate(mailboxJob, 0, interval, TimeUnit.SECONDS));
+		}
+	}
+
+	/**
+	 * Sets the polling interval.<br>
+	 * Has no effect on mailboxes that are listened to with IMAP IDLE.<br>
 	 * 
 	 */
-	public void setPollingInterval(int interval) {
+	public synchronized void setPollingInterval(int interval) {
 		log.info("Setting the polling interval for mails to {} seconds.", interval);
 		pollingInterval = interval;
 
-		if (running) {
+		if (running && !pushMode) {
 			if (orderCheckerFuture != null) {
 				orderCheckerFuture.cancel(true);
 			}
@@ -89,6 +245,10 @@ public class JobService implements Closeable {
 			orderCheckerFuture = executorService.scheduleAtFixedRate(mailFetchJob, 0, pollingInterval,
 			                                                         TimeUnit.SECONDS);
 		}
+
+		if (running && !polledMailboxes.isEmpty()) {
+			schedulePolledMailboxes(pollingInterval);
+		}
 	}
 
 	/**
@@ -132,6 +292,18 @@ public class JobService implements Closeable {
 	@Override
 	public void close() {
 		log.info("Shutting down the application.");
+		smtpReceiver.close();
+		mailIdleJob.stop();
+		mailboxIdleJobs.forEach(MailIdleJob::stop);
+		mailIdleExecutor.shutdownNow();
+		defaultMailboxExecutor.shutdownNow();
+
+		if (mailboxExecutor != null) {
+			mailboxExecutor.shutdownNow();
+		}
+		mailboxClients.forEach(MailClient::closeConnection);
+		orderPipeline.close();
+
 		executorService.shutdownNow();
 		running = false;
 	}
@@ -8,8 +8,10 @@ import tvtrader.exchange.ExchangeFactory;
 import tvtrader.exchange.apidata.Order;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.utils.Futures;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class OrderService {
@@ -27,6 +29,27 @@ public class OrderService {
 		return exchange.placeOrder(order, credentials);
 	}
 
+	public CompletableFuture<Boolean> placeOrderAsync(MarketOrder order, ApiCredentials credentials) {
+		try {
+			Exchange exchange = factory.getExchange(order.getExchange());
+
+			return exchange.placeOrderAsync(order, credentials);
+		} catch (ExchangeException e) {
+			return Futures.failed(e);
+		}
+	}
+
+	public CompletableFuture<List<Boolean>> placeOrdersAsync(String exchangeName, List<MarketOrder> orders,
+			ApiCredentials credentials) {
+		try {
+			Exchange exchange = factory.getExchange(exchangeName);
+
+			return exchange.placeOrdersAsync(orders, credentials);
+		} catch (ExchangeException e) {
+			return Futures.failed(e);
+		}
+	}
+
 	public double getMinimumOrderAmount(String exchangeName) throws ExchangeException {
 		Exchange exchange = factory.getExchange(exchangeName);
 
@@ -45,10 +68,42 @@ public class OrderService {
 		return exchange.getOpenOrders(credentials);
 	}
 
+	public CompletableFuture<List<Order>> getOpenOrdersAsync(String exchangeName, ApiCredentials credentials) {
+		try {
+			Exchange exchange = factory.getExchange(exchangeName);
+
+			return exchange.getOpenOrdersAsync(credentials);
+		} catch (ExchangeException e) {
+			return Futures.failed(e);
+		}
+	}
+
 	public boolean cancelOrder(String exchangeName, ApiCredentials credentials, String orderId) throws ExchangeException {
 		Exchange exchange = factory.getExchange(exchangeName);
 		
 		return exchange.cancelOrder(orderId, credentials);
 	}
 
+	public CompletableFuture<Boolean> cancelOrderAsync(String exchangeName, ApiCredentials credentials,
+			String orderId) {
+		try {
+			Exchange exchange = factory.getExchange(exchangeName);
+
+			return exchange.cancelOrderAsync(orderId, credentials);
+		} catch (ExchangeException e) {
+			return Futures.failed(e);
+		}
+	}
+
+	public CompletableFuture<List<Boolean>> cancelOrdersAsync(String exchangeName, ApiCredentials credentials,
+			List<String> orderIds) {
+		try {
+			Exchange exchange = factory.getExchange(exchangeName);
+
+			return exchange.cancelOrdersAsync(orderIds, credentials);
+		} catch (ExchangeException e) {
+			return Futures.failed(e);
+		}
+	}
+
 }
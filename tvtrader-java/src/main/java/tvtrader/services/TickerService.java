@@ -1,31 +1,59 @@
 package tvtrader.services;
 
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import tvtrader.caches.SingleFlight;
 import tvtrader.caches.TickerCache;
 import tvtrader.exchange.Exchange;
 import tvtrader.exchange.ExchangeException;
 import tvtrader.exchange.ExchangeFactory;
 import tvtrader.exchange.apidata.Ticker;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 @Log4j2
 @Service
 public class TickerService {
 	private static final String BID = "BID";
 	private static final String ASK = "ASK";
+	private static final long WATCH_EXPIRY_IN_MS = TimeUnit.HOURS.toMillis(1);
 	private Map<String, TickerCache> caches;
 
+	// Markets that were asked for per exchange, with the time they were last asked
+	// for: the markets we have positions or pending orders in. Markets that
+	// weren't asked for within the expiry are dropped on the next refresh.
+	private Map<String, Map<String, Long>> watchedMarkets;
+
+	// Markets that weren't in the response per exchange, with the time they were
+	// found missing. They aren't watched and only trigger a refresh again once
+	// the ticker refresh rate passed.
+	private Map<String, Map<String, Long>> unknownMarkets;
+
+	// One refresh per exchange at a time.
+	private SingleFlight<TickerCache> refreshes;
+
 	private ExchangeFactory factory;
 	private ConfigurationService configurationService;
+	private LongSupplier clock;
 
+	@Autowired
 	public TickerService(ExchangeFactory factory, ConfigurationService configurationService) {
+		this(factory, configurationService, System::currentTimeMillis);
+	}
+
+	TickerService(ExchangeFactory factory, ConfigurationService configurationService, LongSupplier clock) {
 		this.factory = factory;
 		this.configurationService = configurationService;
+		this.clock = clock;
 
-		caches = new HashMap<>();
+		caches = new ConcurrentHashMap<>();
+		watchedMarkets = new ConcurrentHashMap<>();
+		unknownMarkets = new ConcurrentHashMap<>();
+		refreshes = new SingleFlight<>();
 	}
 
 	/**
@@ -74,24 +102,97 @@ public class TickerService {
 		// cache.
 		TickerCache cache = caches.computeIfAbsent(exchangeName, value -> new TickerCache());
 
-		if (refreshNeeded(cache)) {
-			log.debug("Refreshing ticker cache for {}.", exchangeName);
-			cache.refreshCache(exchange.getTickers());
+		String market = exchange.createMarket(mainCoin, altCoin);
 
-		}
+		// A market that isn't watched yet isn't in the cache when filtering.
+		boolean newMarket = configurationService.isTickerFilter() && !recentlyUnknown(exchangeName, market)
+				&& watch(exchangeName, market);
+
+		refreshCache(exchange, exchangeName, cache, newMarket);
 
-		String market = exchange.createMarket(mainCoin, altCoin);
 		log.debug("Getting ticker for: {}", market);
 
 		Ticker current = cache.getTicker(market);
 
+		// The shared refresh could have started before the market was watched.
+		if (current == null && newMarket) {
+			refreshCache(exchange, exchangeName, cache, true);
+			current = cache.getTicker(market);
+		}
+
 		if (current == null) {
+			if (newMarket) {
+				unwatch(exchangeName, market);
+			}
+
 			throw new ExchangeException(market + " isn't a valid market on " + exchangeName);
 		} else {
 			return determinePriceType(type, current);
 		}
 	}
 
+	/**
+	 * Watches the market from now on.<br>
+	 * 
+	 * @return True if the market wasn't watched yet.
+	 */
+	private boolean watch(String exchangeName, String market) {
+		return markets(watchedMarkets, exchangeName).put(market, clock.getAsLong()) == null;
+	}
+
+	/**
+	 * Stops watching a market that wasn't in the response and remembers it as
+	 * unknown.<br>
+	 */
+	private void unwatch(String exchangeName, String market) {
+		markets(watchedMarkets, exchangeName).remove(market);
+		markets(unknownMarkets, exchangeName).put(market, clock.getAsLong());
+	}
+
+	private boolean recentlyUnknown(String exchangeName, String market) {
+		Long missing = markets(unknownMarkets, exchangeName).get(market);
+
+		return missing != null && clock.getAsLong() < missing + configurationService.getTickerRefreshRate() * 1_000L;
+	}
+
+	private Map<String, Long> markets(Map<String, Map<String, Long>> markets, String exchangeName) {
+		return markets.computeIfAbsent(exchangeName, value -> new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * Refreshes the cache if it's outdated or forced, or waits for the refresh of
+	 * the exchange that's already in flight.<br>
+	 */
+	private void refreshCache(Exchange exchange, String exchangeName, TickerCache cache, boolean force)
+			throws ExchangeException {
+		refreshes.refreshIfNeeded(exchangeName, () -> force || refreshNeeded(cache), () -> {
+			log.debug("Refreshing ticker cache for {}.", exchangeName);
+			cache.refreshCache(fetchTickers(exchange, exchangeName));
+
+			return cache;
+		});
+	}
+
+	/**
+	 * Fetches all the tickers, or only those of the watched markets if the ticker
+	 * filter is enabled.<br>
+	 * The markets that weren't asked for within the expiry are no longer watched
+	 * from then on.<br>
+	 */
+	private Map<String, Ticker> fetchTickers(Exchange exchange, String exchangeName) throws ExchangeException {
+		if (configurationService.isTickerFilter()) {
+			long now = clock.getAsLong();
+			Map<String, Long> markets = markets(watchedMarkets, exchangeName);
+			markets.values().removeIf(lastAsked -> lastAsked < now - WATCH_EXPIRY_IN_MS);
+			markets(unknownMarkets, exchangeName).values()
+					.removeIf(missing -> missing < now - configurationService.getTickerRefreshRate() * 1_000L);
+
+			return exchange.getTickers(markets::containsKey);
+		} else {
+			return exchange.getTickers();
+		}
+	}
+
 	/**
 	 * Checks if the cache needs to be refreshed.<br>
 	 */
@@ -2,6 +2,7 @@ package tvtrader.services;
 
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
+import tvtrader.caches.SingleFlight;
 import tvtrader.caches.TransactionCache;
 import tvtrader.exchange.Exchange;
 import tvtrader.exchange.ExchangeException;
@@ -10,9 +11,9 @@ import tvtrader.exchange.apidata.Order;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.OrderType;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Log4j2
 @Service
@@ -22,12 +23,16 @@ public class TransactionHistoryService {
 	private ConfigurationService configurationService;
 	private Map<String, TransactionCache> accounts;
 
+	// One refresh per account at a time.
+	private SingleFlight<TransactionCache> refreshes;
+
 	public TransactionHistoryService(ExchangeFactory factory, AccountService accountService, ConfigurationService configurationService) {
 		this.factory = factory;
 		this.accountService = accountService;
 		this.configurationService = configurationService;
 
-		accounts = new HashMap<>();
+		accounts = new ConcurrentHashMap<>();
+		refreshes = new SingleFlight<>();
 	}
 
 	public double getBoughtPrice(String exchangeName, String accountName, String altCoin, double balance)
@@ -81,11 +86,13 @@ public class TransactionHistoryService {
 
 	private void checkCacheForRefresh(String exchangeName, String accountName, Exchange exchange,
 			TransactionCache cache) throws ExchangeException {
-		long currentTimeMilli = System.currentTimeMillis();
-		if (refreshNeeded(cache, currentTimeMilli)) {
-			ApiCredentials credentials = accountService.getCredentials(exchangeName, accountName);
-			cache.refreshCache(exchange.getOrderHistory(credentials));
-		}
+		refreshes.refreshIfNeeded(exchangeName + "_" + accountName,
+				() -> refreshNeeded(cache, System.currentTimeMillis()), () -> {
+					ApiCredentials credentials = accountService.getCredentials(exchangeName, accountName);
+					cache.refreshCache(exchange.getOrderHistory(credentials));
+
+					return cache;
+				});
 	}
 
 	private boolean expectedOrder(String exchangeName, String accountName, String altCoin, Order order)
@@ -1,41 +1,395 @@
 package tvtrader.services;
 
+import lombok.extern.log4j.Log4j2;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import tvtrader.exchange.CircuitOpenException;
 import tvtrader.exchange.ExchangeException;
+import tvtrader.exchange.SupportedExchange;
+import tvtrader.exchange.TransientExchangeException;
+import tvtrader.model.HttpClientConfiguration;
+import tvtrader.request.CircuitBreaker;
+import tvtrader.request.RateLimiter;
+import tvtrader.request.RequestBudget;
 import tvtrader.request.RequestHandler;
+import tvtrader.request.RequestPriority;
+import tvtrader.request.RetryPolicy;
 import tvtrader.request.Url;
+import tvtrader.utils.Futures;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
+@Log4j2
 @Component
 public class WebService {
+	private static final String REQUEST_FAILED = "Something went wrong while sending a request.";
+	private static final int SERVER_ERROR = 500;
+	private static final int TOO_MANY_REQUESTS = 429;
 
 	@Autowired 
 	private RequestHandler requestHandler;
-	
-	public String sendRequest(Url url) throws ExchangeException {
+
+	@Autowired
+	private RateLimiter rateLimiter;
+
+	@Autowired
+	private CircuitBreaker circuitBreaker;
+
+	@Autowired
+	private RetryPolicy retryPolicy;
+
+	private final ScheduledExecutorService hedger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "hedger");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile boolean hedgeReads;
+
+	/**
+	 * Sends the request once the rate limiter allows it and waits for the
+	 * response.<br>
+	 * 
+	 * @return The body of the response.
+	 * @throws ExchangeException
+	 *             If anything goes wrong.
+	 */
+	public String sendRequest(Url url, RequestBudget budget) throws ExchangeException {
+		return Futures.await(sendRequestAsync(() -> url, budget));
+	}
+
+	/**
+	 * Sends the request without blocking, past the rate limiter.<br>
+	 * Only for the tests, the exchanges send their requests with a budget.<br>
+	 * 
+	 * @return The body of the response. Fails with an ExchangeException if
+	 *         anything goes wrong.
+	 */
+	CompletableFuture<String> sendRequestAsync(Url url) {
+		return sendRequestAsync(url, ResponseBody::string);
+	}
+
+	/**
+	 * Sends the request without blocking once the rate limiter allows it.<br>
+	 * The url is only built then, so the nonces of an api key are created in the
+	 * order the requests are sent, whichever lane they waited in.<br>
+	 * Public reads are hedged if enabled.<br>
+	 * 
+	 * @return The body of the response. Fails with an ExchangeException if
+	 *         anything goes wrong.
+	 */
+	public CompletableFuture<String> sendRequestAsync(Supplier<Url> url, RequestBudget budget) {
+		return sendRequestAsync(url, budget, ResponseBody::string);
+	}
+
+	/**
+	 * Sends the request without blocking once the rate limiter allows it and
+	 * hands the body to the reader as it comes in, instead of reading it into a
+	 * String first.<br>
+	 * The reader is called on one of the threads of the http client.<br>
+	 * 
+	 * @return The result of the reader. Fails with an ExchangeException if
+	 *         anything goes wrong.
+	 */
+	public <T> CompletableFuture<T> streamRequestAsync(Url url, RequestBudget budget, BodyReader<T> reader) {
+		return sendRequestAsync(() -> url, budget, body -> reader.read(body.charStream()));
+	}
+
+	private <T> CompletableFuture<T> sendRequestAsync(Supplier<Url> url, RequestBudget budget,
+			ResponseReader<T> reader) {
+		// Signed reads aren't hedged, the copy would reuse the nonce.
+		if (hedgeReads && budget.getPriority() == RequestPriority.REFRESH && budget.getApiKey() == null) {
+			return hedge(url.get(), budget, reader);
+		} else {
+			return sendLimited(url, budget, reader);
+		}
+	}
+
+	/**
+	 * Builds and sends the request once the rate limiter allows it.<br>
+	 * If the request is given up on while it waits, it leaves the queue of the
+	 * rate limiter. If it's given up on after it was sent, the call is
+	 * cancelled.<br>
+	 */
+	private <T> CompletableFuture<T> sendLimited(Supplier<Url> url, RequestBudget budget, ResponseReader<T> reader) {
+		CompletableFuture<Void> acquired = rateLimiter.acquire(budget);
+		CompletableFuture<T> request = new CompletableFuture<>();
+
+		acquired.whenComplete((ignored, waitFailure) -> {
+			if (waitFailure != null) {
+				request.completeExceptionally(Futures.unwrap(waitFailure));
+				return;
+			}
+
+			// Given up on right as the tokens came in.
+			if (request.isDone()) {
+				return;
+			}
+
+			CompletableFuture<T> sent;
+
+			try {
+				sent = sendRequestAsync(url.get(), reader);
+			} catch (RuntimeException e) {
+				request.completeExceptionally(e);
+				return;
+			}
+
+			sent.whenComplete((value, failure) -> {
+				if (failure == null) {
+					request.complete(value);
+				} else {
+					request.completeExceptionally(Futures.unwrap(failure));
+				}
+			});
+			request.whenComplete((value, failure) -> sent.cancel(false));
+		});
+
+		request.whenComplete((value, failure) -> acquired.cancel(false));
+
+		return request;
+	}
+
+	/**
+	 * Sends a copy of the request if it takes longer than 95% of the recent
+	 * calls to the endpoint. The first successful response wins, the request
+	 * only fails if both fail.<br>
+	 * Once the result is known, the other request is cancelled, so a copy that
+	 * is still waiting for the rate limiter doesn't take a token.<br>
+	 */
+	private <T> CompletableFuture<T> hedge(Url url, RequestBudget budget, ResponseReader<T> reader) {
+		CompletableFuture<T> request = sendLimited(() -> url, budget, reader);
+		String endpoint = url.getEndpoint();
+		long delay = circuitBreaker.getP95Latency(endpoint);
+
+		if (delay < 0) {
+			return request;
+		}
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicInteger running = new AtomicInteger(1);
+		BiConsumer<T, Throwable> complete = (value, failure) -> {
+			if (failure == null) {
+				result.complete(value);
+			} else if (running.decrementAndGet() == 0) {
+				result.completeExceptionally(Futures.unwrap(failure));
+			}
+		};
+
+		request.whenComplete(complete);
+		result.whenComplete((value, failure) -> request.cancel(false));
+
+		hedger.schedule(() -> {
+			if (!startHedge(running)) {
+				return;
+			}
+
+			log.debug("Hedging the request to {} after {} ms.", endpoint, TimeUnit.NANOSECONDS.toMillis(delay));
+			CompletableFuture<T> hedged = sendLimited(() -> url, budget, reader);
+
+			hedged.whenComplete(complete);
+			result.whenComplete((value, failure) -> hedged.cancel(false));
+		}, delay, TimeUnit.NANOSECONDS);
+
+		return result;
+	}
+
+	/**
+	 * Counts the hedge as running, unless the result is already known.<br>
+	 */
+	private boolean startHedge(AtomicInteger running) {
+		int current;
+
+		do {
+			current = running.get();
+
+			if (current == 0) {
+				return false;
+			}
+		} while (!running.compareAndSet(current, current + 1));
+
+		return true;
+	}
+
+	private <T> CompletableFuture<T> sendRequestAsync(Url url, ResponseReader<T> reader) {
+		String endpoint = url.getEndpoint();
+
+		try {
+			checkCircuit(endpoint);
+		} catch (CircuitOpenException e) {
+			return Futures.failed(e);
+		}
+
+		long start = System.nanoTime();
+		CompletableFuture<T> body = new CompletableFuture<>();
+		CompletableFuture<Response> request;
+
+		// Every acquired circuit must hear back, or a probe keeps it half open.
 		try {
-			Response response = requestHandler.sendRequest(url);
-			
+			request = requestHandler.sendRequestAsync(url);
+		} catch (RuntimeException e) {
+			circuitBreaker.onFailure(endpoint);
+			return Futures.failed(e);
+		}
+
+		request.whenComplete((response, failure) -> {
+			if (failure != null) {
+				circuitBreaker.onFailure(endpoint);
+				body.completeExceptionally(new TransientExchangeException(REQUEST_FAILED, toException(failure)));
+				return;
+			}
+
+			try {
+				body.complete(readBody(endpoint, start, response, reader));
+			} catch (IOException e) {
+				circuitBreaker.onFailure(endpoint);
+				body.completeExceptionally(new TransientExchangeException(REQUEST_FAILED, e));
+			} catch (ExchangeException e) {
+				body.completeExceptionally(e);
+			} catch (RuntimeException e) {
+				circuitBreaker.onFailure(endpoint);
+				body.completeExceptionally(e);
+			}
+		});
+
+		body.whenComplete((value, failure) -> {
+			if (body.isCancelled()) {
+				request.cancel(false);
+			}
+		});
+
+		return body;
+	}
+
+	private Exception toException(Throwable failure) {
+		Throwable cause = Futures.unwrap(failure);
+
+		if (cause instanceof Exception) {
+			return (Exception) cause;
+		} else {
+			return new ExecutionException(cause);
+		}
+	}
+
+	private void checkCircuit(String endpoint) throws CircuitOpenException {
+		if (!circuitBreaker.tryAcquire(endpoint)) {
+			throw new CircuitOpenException("The circuit for " + endpoint + " is open. Not sending the request.");
+		}
+	}
+
+	/**
+	 * Sets up the http client, the rate limits, the circuits and the retries
+	 * with the configuration and, if enabled, warms up the connections to the
+	 * supported exchanges.<br>
+	 * Doesn't wait for the warm up.<br>
+	 */
+	public void setUpClient(HttpClientConfiguration configuration) {
+		requestHandler.configure(configuration);
+		rateLimiter.configure(configuration.getRateLimitPerExchange(), configuration.getRateLimitPerKey());
+		circuitBreaker.configure(configuration.getCircuitFailureRate(), configuration.getCircuitSlowCall(),
+				configuration.getCircuitOpenTime());
+		hedgeReads = configuration.isHedgeReads();
+		retryPolicy.configure(configuration.getRetryAttempts(), configuration.getRetryDeadline());
+
+		if (configuration.isWarmUp()) {
+			List<String> hosts = new ArrayList<>();
+
+			for (SupportedExchange exchange : SupportedExchange.values()) {
+				hosts.add(exchange.getHost());
+			}
+
+			requestHandler.warmUp(hosts);
+		}
+	}
+
+	/**
+	 * Returns the number of requests that can be sent right away under every
+	 * rate limit, by exchange or by exchange and api key, for monitoring.<br>
+	 */
+	public Map<String, Double> getRemainingBudget() {
+		return rateLimiter.getRemainingBudget();
+	}
+
+	/**
+	 * Returns the state of the circuit of every endpoint, for monitoring.<br>
+	 */
+	public Map<String, CircuitBreaker.State> getCircuitStates() {
+		return circuitBreaker.getStates();
+	}
+
+	/**
+	 * Reads the body and records the call with the circuit breaker. Server
+	 * errors count as failed calls, any other response as a successful
+	 * one.<br>
+	 */
+	private <T> T readBody(String endpoint, long start, Response response, ResponseReader<T> reader)
+			throws IOException, ExchangeException {
+		try (ResponseBody body = response.body()) {
 			if (response.isSuccessful()) {
-				return response.body().string();
-			}  else {
+				T result;
+
+				try {
+					result = reader.read(body);
+				} catch (ExchangeException e) {
+					// The exchange answered, only with an error.
+					circuitBreaker.onSuccess(endpoint, System.nanoTime() - start);
+					throw e;
+				}
+
+				circuitBreaker.onSuccess(endpoint, System.nanoTime() - start);
+				return result;
+			} else {
+				if (response.code() >= SERVER_ERROR) {
+					circuitBreaker.onFailure(endpoint);
+				} else {
+					circuitBreaker.onSuccess(endpoint, System.nanoTime() - start);
+				}
+
 				throw checkError(response);
 			}
-			
-		} catch (IOException e) {
-			throw new ExchangeException("Something went wrong while sending a request.", e);
 		}
-		
 	}
 
-	private ExchangeException checkError(Response response) throws ExchangeException {
+	/**
+	 * Server errors and rate limit responses might not happen again.<br>
+	 */
+	private ExchangeException checkError(Response response) {
 		int httpCode = response.code();
 		String message = response.message();
+		String error = "Something went wrong while sending a request. Received the following error code " + httpCode + " with message: " + message;
 		
-		throw new ExchangeException("Something went wrong while sending a request. Received the following error code " + httpCode + " with message: " + message);
+		if (httpCode >= SERVER_ERROR || httpCode == TOO_MANY_REQUESTS) {
+			return new TransientExchangeException(error);
+		} else {
+			return new ExchangeException(error);
+		}
 	}
-	
+
+	/**
+	 * Reads the body of a successful response.<br>
+	 */
+	@FunctionalInterface
+	public interface BodyReader<T> {
+		T read(Reader body) throws IOException, ExchangeException;
+	}
+
+	@FunctionalInterface
+	private interface ResponseReader<T> {
+		T read(ResponseBody body) throws IOException, ExchangeException;
+	}
+
 }
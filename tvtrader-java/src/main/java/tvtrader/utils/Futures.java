@@ -0,0 +1,130 @@
+package tvtrader.utils;
+
+import lombok.experimental.UtilityClass;
+import tvtrader.exchange.ExchangeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Helper class for the asynchronous exchange calls.<br>
+ *
+ * @author Wouter
+ *
+ */
+@UtilityClass
+public class Futures {
+
+	/**
+	 * Waits for the future and returns its result.<br>
+	 * Used by the blocking counterparts of the asynchronous calls.<br>
+	 *
+	 * @throws ExchangeException
+	 *             The exception the future failed with, or an ExchangeException
+	 *             wrapping it if it isn't one.
+	 */
+	public <T> T await(CompletableFuture<T> future) throws ExchangeException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExchangeException("Interrupted while waiting for the exchange.", e);
+		} catch (ExecutionException e) {
+			throw toExchangeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns a future that already failed with the provided exception.<br>
+	 *
+	 */
+	public <T> CompletableFuture<T> failed(Throwable exception) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(exception);
+		return future;
+	}
+
+	/**
+	 * Makes the call for every item, with at most parallelism calls running at
+	 * the same time. The next item is started as soon as a call completes.<br>
+	 *
+	 * @return The results in the order of the items. Fails with the exception of
+	 *         a failed call once the running calls completed.
+	 */
+	public <T, R> CompletableFuture<List<R>> allBounded(List<T> items, int parallelism,
+			Function<T, CompletableFuture<R>> call) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+
+		List<R> results = new ArrayList<>(items.size());
+		items.forEach(item -> results.add(null));
+
+		AtomicInteger next = new AtomicInteger();
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, items.size())];
+
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = callNext(items, call, results, next);
+		}
+
+		return CompletableFuture.allOf(workers).thenApply(done -> results);
+	}
+
+	private <T, R> CompletableFuture<Void> callNext(List<T> items, Function<T, CompletableFuture<R>> call,
+			List<R> results, AtomicInteger next) {
+		int index = next.getAndIncrement();
+
+		if (index >= items.size()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		CompletableFuture<R> future;
+
+		try {
+			future = call.apply(items.get(index));
+		} catch (RuntimeException e) {
+			return failed(e);
+		}
+
+		return future.thenCompose(result -> {
+			results.set(index, result);
+			return callNext(items, call, results, next);
+		});
+	}
+
+	/**
+	 * Unwraps the exception a future failed with.<br>
+	 * Runtime exceptions and errors are rethrown as is.<br>
+	 */
+	public ExchangeException toExchangeException(Throwable exception) {
+		Throwable cause = unwrap(exception);
+
+		if (cause instanceof ExchangeException) {
+			return (ExchangeException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else {
+			return new ExchangeException(cause.getMessage(), (Exception) cause);
+		}
+	}
+
+	/**
+	 * Strips the CompletionExceptions that wrap the actual exception.<br>
+	 */
+	public Throwable unwrap(Throwable exception) {
+		Throwable cause = exception;
+
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+
+		return cause;
+	}
+}
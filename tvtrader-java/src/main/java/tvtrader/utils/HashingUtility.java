@@ -5,40 +5,70 @@ import lombok.SneakyThrows;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.util.Formatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Responsible for calculating the hash signature required for account specific
  * communication with the exchanges. <br>
  * When instantiating this class also call setEncoding(String)!<br>
- * 
+ * <br>
+ * Every thread keeps its own initialized Mac per key, as a Mac can't be shared
+ * between threads and looking it up and initializing it costs more than the
+ * signing itself. The least recently used keys are dropped once a thread holds
+ * more than 256 of them.<br>
+ *
  * @author Wouter
  *
  */
 public class HashingUtility {
+	private static final int MAX_KEYS_PER_THREAD = 256;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
 	private String encoding;
+	private final ThreadLocal<Map<String, Mac>> macs = ThreadLocal.withInitial(MacCache::new);
 
 	public HashingUtility(Encoding encoding) {
 		this.encoding = encoding.getEncoding();
 	}
 
-	@SneakyThrows
 	public String calculateSignature(@NonNull String data, @NonNull String key) {
+		Mac mac = macs.get().computeIfAbsent(key, this::createMac);
+
+		return toHexString(mac.doFinal(data.getBytes()));
+	}
+
+	@SneakyThrows
+	private Mac createMac(String key) {
 		SecretKeySpec signingKey = new SecretKeySpec(key.getBytes(), encoding);
 
 		Mac mac = Mac.getInstance(encoding);
 		mac.init(signingKey);
 
-		return toHexString(mac.doFinal(data.getBytes()));
+		return mac;
 	}
 
 	private String toHexString(byte[] bytes) {
-		try (Formatter formatter = new Formatter();) {
-			for (byte b : bytes) {
-				formatter.format("%02x", b);
-			}
+		char[] hex = new char[bytes.length * 2];
+
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+
+		return new String(hex);
+	}
+
+	private static class MacCache extends LinkedHashMap<String, Mac> {
+		private static final long serialVersionUID = 1L;
+
+		private MacCache() {
+			super(16, 0.75f, true);
+		}
 
-			return formatter.toString();
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Mac> eldest) {
+			return size() > MAX_KEYS_PER_THREAD;
 		}
 	}
 }
@@ -1,7 +1,11 @@
 package tvtrader.utils;
 
+import lombok.NonNull;
 import lombok.experimental.UtilityClass;
-import lombok.extern.log4j.Log4j2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Nonce = Number only once.<br>
@@ -10,38 +14,43 @@ import lombok.extern.log4j.Log4j2;
  * each request.<br>
  * This number needs to increment with each request.<br>
  * <br>
- * 
+ * The exchanges only require this per api key, so every key has its own
+ * sequence and signed requests for different accounts don't wait on each
+ * other.<br>
+ *
  * @author Wouter
  *
  */
-@Log4j2
 @UtilityClass
 public class NonceCreator {
-	private long lastNonce = 0;
+	private final AtomicLong lastNonce = new AtomicLong();
+	private final Map<String, AtomicLong> lastNonces = new ConcurrentHashMap<>();
 
 	/**
 	 * This method creates a nonce with a unique number based off the time since
 	 * epoch in milliseconds to ensure an incremental sequence.<br>
-	 * If the current nonce is somehow the same as the last the method will
-	 * wait for 1 ms and generate a new nonce.<br>
+	 * If the current time isn't past the last nonce the last nonce plus one is
+	 * used instead, so it never waits.<br>
 	 *
 	 * @return Nonce as a long.
 	 */
 	public long getNonce() {
-		long nonce = System.currentTimeMillis();
+		return next(lastNonce);
+	}
 
-		if (nonce <= lastNonce) {
-			try {
-				Thread.sleep(1);
-				nonce = getNonce();
-			} catch (InterruptedException e) {
-				log.debug("NonceCreator got interrupted while sleeping. Interrupting thread.");
-				Thread.currentThread().interrupt();
-			}
-		}
+	/**
+	 * Creates a nonce like getNonce(), that only increments with each request
+	 * for the same api key.<br>
+	 *
+	 * @return Nonce as a long.
+	 */
+	public long getNonce(@NonNull String apiKey) {
+		return next(lastNonces.computeIfAbsent(apiKey, key -> new AtomicLong()));
+	}
 
-		lastNonce = nonce;
+	private long next(AtomicLong last) {
+		long now = System.currentTimeMillis();
 
-		return nonce;
+		return last.updateAndGet(previous -> Math.max(now, previous + 1));
 	}
 }
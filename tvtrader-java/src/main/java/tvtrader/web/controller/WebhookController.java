@@ -0,0 +1,110 @@
+package tvtrader.web.controller;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import tvtrader.orders.OrderPipeline;
+import tvtrader.services.ConfigurationService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Accepts alerts posted by a Trading View webhook.<br>
+ * The body contains one or more order lines
+ * (ORDERTYPE_EXCHANGE_ACCOUNT_ALTCOIN), separated by whitespace, commas or
+ * semicolons. The request has to provide the shared secret, either as the
+ * secret parameter or the X-Webhook-Secret header.<br>
+ * <br>
+ * The order lines are handed to the order pipeline as one batch, like the
+ * subject lines of the mails. The request returns as soon as the batch is
+ * queued.<br>
+ *
+ * @author Wouter
+ */
+@Log4j2
+@Controller
+public class WebhookController {
+	private static final String SECRET_HEADER = "X-Webhook-Secret";
+	private static final Pattern SEPARATORS = Pattern.compile("[\\s,;]+");
+
+	private ConfigurationService configService;
+	private OrderPipeline orderPipeline;
+
+	@Autowired
+	public WebhookController(ConfigurationService configService, OrderPipeline orderPipeline) {
+		this.configService = configService;
+		this.orderPipeline = orderPipeline;
+	}
+
+	@PostMapping(value = "/webhook")
+	public ResponseEntity<String> receiveAlert(@RequestBody(required = false) String body,
+			@RequestParam(value = "secret", required = false) String secretParameter,
+			@RequestHeader(value = SECRET_HEADER, required = false) String secretHeader) {
+		String secret = secretHeader != null ? secretHeader : secretParameter;
+
+		if (!validSecret(secret)) {
+			log.info("Rejected a webhook request without a valid secret.");
+			return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+		}
+
+		List<String> orderLines = splitOrderLines(body);
+
+		if (orderLines.isEmpty()) {
+			return new ResponseEntity<>("No order lines found.", HttpStatus.BAD_REQUEST);
+		}
+
+		if (!orderPipeline.ingest(orderLines)) {
+			log.error("Couldn't queue all order lines from the webhook.");
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		log.info("Received {} order lines from the webhook.", orderLines.size());
+		return new ResponseEntity<>(HttpStatus.ACCEPTED);
+	}
+
+	/**
+	 * Compares the provided secret with the configured one in constant time.<br>
+	 * Always false if no secret is configured.<br>
+	 */
+	private boolean validSecret(String secret) {
+		String expected = configService.getWebhookSecret();
+
+		if (expected == null || expected.isEmpty() || secret == null) {
+			return false;
+		}
+
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+				secret.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Splits the body into order lines on whitespace, commas and semicolons.<br>
+	 * Duplicate lines will be ignored.<br>
+	 */
+	private List<String> splitOrderLines(String body) {
+		Set<String> orderLines = new LinkedHashSet<>();
+
+		if (body != null) {
+			for (String line : SEPARATORS.split(body)) {
+				if (!line.isEmpty()) {
+					orderLines.add(line);
+				}
+			}
+		}
+
+		return new ArrayList<>(orderLines);
+	}
+
+}
@@ -8,8 +8,11 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import tvtrader.application.ConsoleRunner;
+import tvtrader.model.HttpClientConfiguration;
 import tvtrader.properties.PropertiesFileLoader;
+import tvtrader.services.ConfigurationService;
 import tvtrader.services.JobService;
+import tvtrader.services.WebService;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.verify;
@@ -25,6 +28,8 @@ public class ConsoleRunnerTest {
 	
 	@Mock private PropertiesFileLoader propertiesLoader;
 	@Mock private JobService service;
+	@Mock private ConfigurationService configurationService;
+	@Mock private WebService webService;
 	
 	@InjectMocks ConsoleRunner runner;
 	
@@ -63,6 +68,17 @@ public class ConsoleRunnerTest {
 		verify(service, Mockito.times(1)).startJobs();
 	}
 	
+	@Test
+	void run_whenPropertiesFlagIsUsedAndFileIsPresent_shouldSetUpHttpClient() {
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+		when(propertiesLoader.autoload(PROPERTIES_FILE_PATH)).thenReturn(true);
+		when(configurationService.getHttpClientConfiguration()).thenReturn(configuration);
+		
+		runner.run(PROPERTIES_FLAG, PROPERTIES_FILE_PATH);
+		
+		verify(webService).setUpClient(configuration);
+	}
+	
 	@Test
 	void run_whenPropertiesFlagIsUsedAndFileIsNotPresent_shouldNotCallCheckerService() {
 		when(propertiesLoader.autoload(PROPERTIES_FILE_PATH)).thenReturn(false);
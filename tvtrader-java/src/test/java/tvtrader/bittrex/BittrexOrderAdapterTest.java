@@ -0,0 +1,94 @@
+package tvtrader.bittrex;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tvtrader.model.OrderType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BittrexOrderAdapterTest {
+	private static final String FILLED_ORDER = "{\"OrderUuid\":\"1\",\"Exchange\":\"BTC-ETH\",\"TimeStamp\":\"2000-01-01T00:00:00.08\","
+			+ "\"OrderType\":\"LIMIT_SELL\",\"Limit\":1.0,\"Quantity\":1.0,\"QuantityRemaining\":0.0,"
+			+ "\"Commission\":0.25,\"Price\":1.0,\"PricePerUnit\":1.25,\"IsConditional\":false,\"Condition\":null}";
+	private static final String UNFILLED_ORDER = "{\"OrderUuid\":\"10\",\"Exchange\":\"BTC-NEO\",\"Opened\":\"1999-12-01T00:00:00\","
+			+ "\"OrderType\":\"limit_buy\",\"Quantity\":2.0,\"QuantityRemaining\":1.0,\"CommissionPaid\":0.5,"
+			+ "\"Price\":0.0,\"PricePerUnit\":null}";
+
+	private Gson gson;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		gson = new GsonBuilder()
+				.registerTypeAdapter(BittrexFilledOrder.class, new BittrexOrderAdapter.FilledOrderAdapter())
+				.registerTypeAdapter(BittrexUnfilledOrder.class, new BittrexOrderAdapter.UnfilledOrderAdapter())
+				.create();
+	}
+
+	@Test
+	void read_whenProvidedWithFilledOrder_shouldDecodeAllFields() {
+		BittrexFilledOrder order = gson.fromJson(FILLED_ORDER, BittrexFilledOrder.class);
+
+		assertAll("order", () -> assertEquals("1", order.getOrderId()),
+				() -> assertEquals("BTC", order.getMainCoin()),
+				() -> assertEquals("ETH", order.getAltCoin()),
+				() -> assertEquals(OrderType.LIMIT_SELL, order.getOrderType()),
+				() -> assertEquals(1.0, order.getQuantity()),
+				() -> assertEquals(0.0, order.getQuantityRemaining()),
+				() -> assertEquals(1.0, order.getPrice()),
+				() -> assertEquals(1.25, order.getRate()),
+				() -> assertEquals(0.25, order.getCommission()),
+				() -> assertEquals(LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+						order.getTimeStamp()));
+	}
+
+	@Test
+	void read_whenProvidedWithUnfilledOrder_shouldUseOpenedAndCommissionPaid() {
+		BittrexUnfilledOrder order = gson.fromJson(UNFILLED_ORDER, BittrexUnfilledOrder.class);
+
+		assertAll("order", () -> assertEquals(OrderType.LIMIT_BUY, order.getOrderType()),
+				() -> assertEquals(0.5, order.getCommission()),
+				() -> assertEquals(0.0, order.getRate()),
+				() -> assertEquals(LocalDateTime.of(1999, 12, 1, 0, 0).toEpochSecond(ZoneOffset.UTC),
+						order.getTimeStamp()));
+	}
+
+	@Test
+	void read_whenMarketHasNoDelimiter_shouldOnlySetAltCoin() {
+		BittrexFilledOrder order = gson.fromJson(FILLED_ORDER.replace("BTC-ETH", "ETH"), BittrexFilledOrder.class);
+
+		assertNull(order.getMainCoin());
+		assertEquals("ETH", order.getAltCoin());
+	}
+
+	@Test
+	void read_whenTimeStampIsInvalid_shouldThrowJsonParseException() {
+		String invalid = FILLED_ORDER.replace("2000-01-01T00:00:00.08", "01-01-2000");
+
+		assertThrows(JsonParseException.class, () -> gson.fromJson(invalid, BittrexFilledOrder.class));
+	}
+
+	@Test
+	void write_whenOrderIsRead_shouldWriteTheSameOrder() {
+		BittrexFilledOrder order = gson.fromJson(FILLED_ORDER, BittrexFilledOrder.class);
+
+		BittrexFilledOrder copy = gson.fromJson(gson.toJson(order), BittrexFilledOrder.class);
+
+		assertEquals(order.toString(), copy.toString());
+	}
+
+}
@@ -18,6 +18,8 @@ import tvtrader.stubs.bittrex.BittrexMarketSummaryStub;
 import tvtrader.stubs.bittrex.BittrexResponseStub;
 import tvtrader.stubs.bittrex.JsonOrderHistoryStubs;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.HashMap;
@@ -92,6 +94,22 @@ class BittrexParserTest {
 		assertThrows(ExchangeException.class, () -> parser.parseMarketSummaries(unsuccessfulResponse));
 	}
 
+	@Test
+	void parseMarketSummaries_whenFilterIsProvided_shouldOnlyBuildTickersForAcceptedMarkets() throws Exception {
+		Reader validMarketSummary = new StringReader(BittrexMarketSummaryStub.getValidJsonMarketSummary());
+		Map<String, Ticker> tickers = parser.parseMarketSummaries(validMarketSummary, BTCETH::equals);
+
+		assertEquals(1, tickers.size());
+		assertEquals(TickerStubs.getBtcEthTicker(), tickers.get(BTCETH));
+	}
+
+	@Test
+	void parseMarketSummaries_whenJsonIsMalformed_shouldThrowExchangeException() {
+		Reader malformed = new StringReader("{\"success\":true,\"result\":[{\"MarketName\":");
+
+		assertThrows(ExchangeException.class, () -> parser.parseMarketSummaries(malformed, market -> true));
+	}
+
 	@Test
 	void parseBalances_whenProvidedWithValidJson_shouldReturnBalances() throws Exception {
 		Map<String, Double> expected = new HashMap<>();
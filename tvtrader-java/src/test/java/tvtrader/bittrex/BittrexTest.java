@@ -8,26 +8,49 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import tvtrader.exchange.Exchange;
 import tvtrader.exchange.ExchangeException;
+import tvtrader.exchange.TransientExchangeException;
 import tvtrader.exchange.UnsupportedOrderTypeException;
 import tvtrader.exchange.apidata.Order;
 import tvtrader.exchange.apidata.Ticker;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
 import tvtrader.model.OrderType;
+import tvtrader.request.RateLimiter;
+import tvtrader.request.RequestBudget;
+import tvtrader.request.RetryPolicy;
+import tvtrader.request.Url;
 import tvtrader.services.WebService;
 import tvtrader.stubs.BalanceStubs;
 import tvtrader.stubs.TickerStubs;
 import tvtrader.stubs.bittrex.BittrexResponseStub;
+import tvtrader.utils.Futures;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
@@ -51,6 +74,8 @@ class BittrexTest {
 	private BittrexApi api;
 	@Mock
 	private BittrexParser parser;
+	@Spy
+	private RetryPolicy retryPolicy = new RetryPolicy();
 
 	@InjectMocks
 	private Bittrex bittrex;
@@ -71,8 +96,8 @@ class BittrexTest {
 	void getTickers_whenProvidedWithMarket_shouldReturnTickerForThatMarket() throws Exception {
 		Map<String, Ticker> tickers = TickerStubs.getAllTickers();
 
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulTickerResponse());
-		when(parser.parseMarketSummaries(ArgumentMatchers.any())).thenReturn(tickers);
+		streamResponse(BittrexResponseStub.getSuccessfulTickerResponse());
+		when(parser.parseMarketSummaries(ArgumentMatchers.any(Reader.class), ArgumentMatchers.any())).thenReturn(tickers);
 
 		Ticker expected = TickerStubs.getBtcEthTicker();
 		
@@ -83,20 +108,31 @@ class BittrexTest {
 
 	@Test
 	void getTickers_whenJsonIsMalformed_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulTickerResponse());
-		when(parser.parseMarketSummaries(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		streamResponse(BittrexResponseStub.getSuccessfulTickerResponse());
+		when(parser.parseMarketSummaries(ArgumentMatchers.any(Reader.class), ArgumentMatchers.any())).thenThrow(ExchangeException.class);
 
 		assertThrows(ExchangeException.class, () -> bittrex.getTickers());
 	}
 
 	@Test
 	void getTickers_whenResponseIsUnsuccessful_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getUnsuccessfulResponse());
-		when(parser.parseMarketSummaries(BittrexResponseStub.getUnsuccessfulResponse())).thenThrow(ExchangeException.class);
+		when(webService.streamRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(Futures.failed(new ExchangeException("Failed")));
 
 		assertThrows(ExchangeException.class, () -> bittrex.getTickers());
 	}
 
+	@Test
+	void getTickers_whenFilterIsProvided_shouldPassFilterToParser() throws Exception {
+		Predicate<String> filter = BITTREX_BTC_ETH_MARKET::equals;
+
+		streamResponse(BittrexResponseStub.getSuccessfulTickerResponse());
+		when(parser.parseMarketSummaries(ArgumentMatchers.any(Reader.class), ArgumentMatchers.eq(filter)))
+				.thenReturn(TickerStubs.getAllTickers());
+
+		assertEquals(TickerStubs.getAllTickers(), bittrex.getTickers(filter));
+	}
+
 	@Test
 	void getBalances_whenAccountIsRegistered_shouldReturnAllBalances() throws Exception {
 		Map<String, Double> expected = new HashMap<>();
@@ -104,8 +140,8 @@ class BittrexTest {
 		expected.put(ETH, 1.0);
 
 		when(parser.parseBalances(ArgumentMatchers.any())).thenReturn(BalanceStubs.getValidBalances());
-		when(webService.sendRequest(ArgumentMatchers.any()))
-				.thenReturn(BittrexResponseStub.getSuccessfulBalancesResponse());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(completedFuture(BittrexResponseStub.getSuccessfulBalancesResponse()));
 
 		Map<String, Double> actual = bittrex.getBalances(credentials);
 
@@ -119,7 +155,7 @@ class BittrexTest {
 		expected.put(ETH, 0.0);
 
 		when(parser.parseBalances(ArgumentMatchers.any())).thenReturn(BalanceStubs.getNullBalances());
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getNullBalancesResponse());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getNullBalancesResponse()));
 
 		Map<String, Double> actual = bittrex.getBalances(credentials);
 
@@ -128,15 +164,69 @@ class BittrexTest {
 
 	@Test
 	void getBalances_whenRequestFails_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Futures.failed(new ExchangeException("Failed")));
+
+		assertThrows(ExchangeException.class, () -> bittrex.getBalances(credentials));
+	}
+
+	@Test
+	void getBalances_whenRequestFailsOnce_shouldSendItAgainWithNewUrl() throws Exception {
+		Map<String, Double> expected = new HashMap<>();
+		expected.put(BTC, 1.0);
+		Url first = new Url("first");
+		Url second = new Url("second");
+
+		when(api.getBalances(credentials)).thenReturn(first).thenReturn(second);
+		respond(url -> url == first ? Futures.failed(new TransientExchangeException("Failed"))
+				: completedFuture(BittrexResponseStub.getSuccessfulResponse()));
+		when(parser.parseBalances(ArgumentMatchers.notNull())).thenReturn(expected);
+
+		assertEquals(expected, bittrex.getBalances(credentials));
+		verify(api, times(2)).getBalances(credentials);
+	}
+
+	@Test
+	void getBalances_whenResponseIsUnsuccessful_shouldNotSendItAgain() throws Exception {
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(completedFuture(BittrexResponseStub.getUnsuccessfulResponse()));
+		when(parser.parseBalances(ArgumentMatchers.notNull())).thenThrow(new ExchangeException("Invalid api key"));
 
 		assertThrows(ExchangeException.class, () -> bittrex.getBalances(credentials));
+		verify(webService, times(1)).sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+
+	@Test
+	void getBalancesAsync_whenDeadlinePassesWhileThrottled_shouldLeaveTheRateLimiter() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter();
+		rateLimiter.configure(0, 1);
+		// Takes the only token of the api key.
+		rateLimiter.acquire(RequestBudget.refresh(EXCHANGENAME, KEY)).get();
+
+		WebService limitedService = new WebService();
+		ReflectionTestUtils.setField(limitedService, "rateLimiter", rateLimiter);
+		RetryPolicy retries = new RetryPolicy();
+		retries.configure(3, 100);
+		Bittrex limited = new Bittrex(api, parser, limitedService, retries);
+
+		CompletableFuture<Map<String, Double>> balances = limited.getBalancesAsync(credentials);
+
+		assertEquals(1, rateLimiter.getWaiting());
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> balances.get(1, TimeUnit.SECONDS));
+		assertTrue(exception.getCause() instanceof ExchangeException);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (rateLimiter.getWaiting() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(0, rateLimiter.getWaiting());
+		verify(api, never()).getBalances(credentials);
 	}
 
 	@Test
 	void getOrderHistory_whenResponseIsSuccessful_shouldReturnListOfOrders() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulResponse());
-		List<Order> expected = Arrays.asList(new BittrexFilledOrder());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()));
+		List<Order> expected = Arrays.asList(new BittrexFilledOrder("1", "BTC", "ETH", OrderType.LIMIT_BUY, 1, 0, 1, 1, 0, 0));
 		when(parser.parseOrderHistory(ArgumentMatchers.notNull())).thenReturn(expected);
 
 		List<Order> actual = bittrex.getOrderHistory(credentials);
@@ -147,7 +237,7 @@ class BittrexTest {
 	@Test
 	void getOrderHistory_whenResponseIsUnsuccessful_shouldThrowExchangeException()
 			throws ExchangeException, IOException {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getUnsuccessfulResponse());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getUnsuccessfulResponse()));
 		when(parser.parseOrderHistory(BittrexResponseStub.getUnsuccessfulResponse())).thenThrow(ExchangeException.class);
 
 		assertThrows(ExchangeException.class, () -> bittrex.getOrderHistory(credentials));
@@ -155,15 +245,15 @@ class BittrexTest {
 
 	@Test
 	void getOrderHistory_whenRequestFails_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Futures.failed(new ExchangeException("Failed")));
 
 		assertThrows(ExchangeException.class, () -> bittrex.getOrderHistory(credentials));
 	}
 
 	@Test
 	void getOpenOrders_whenResponseIsSuccessful_shouldReturnListOfOrders() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulResponse());
-		List<Order> expected = Arrays.asList(new BittrexFilledOrder());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()));
+		List<Order> expected = Arrays.asList(new BittrexFilledOrder("1", "BTC", "ETH", OrderType.LIMIT_BUY, 1, 0, 1, 1, 0, 0));
 		when(parser.parseOpenOrders(ArgumentMatchers.notNull())).thenReturn(expected);
 
 		List<Order> actual = bittrex.getOpenOrders(credentials);
@@ -173,14 +263,14 @@ class BittrexTest {
 
 	@Test
 	void getOpenOrders_whenRequestFails_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Futures.failed(new ExchangeException("Failed")));
 
 		assertThrows(ExchangeException.class, () -> bittrex.getOpenOrders(credentials));
 	}
 
 	@Test
 	void cancelOrder_whenResponseIsSuccessful_shouldReturnTrue() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulResponse());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()));
 		when(parser.checkResponse(BittrexResponseStub.getSuccessfulResponse())).thenReturn(true);
 
 		boolean actual = bittrex.cancelOrder(ORDERUUID, credentials);
@@ -190,14 +280,90 @@ class BittrexTest {
 
 	@Test
 	void cancelOrder_whenRequestFails_shouldThrowExchangeException() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Futures.failed(new ExchangeException("Failed")));
 
 		assertFalse(bittrex.cancelOrder(ORDERUUID, credentials));
 	}
 
+	@Test
+	void cancelOrders_whenOneRequestFails_shouldReturnResultPerOrder() throws Exception {
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()))
+				.thenReturn(Futures.failed(new ExchangeException("Failed")))
+				.thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()));
+		when(parser.checkResponse(BittrexResponseStub.getSuccessfulResponse())).thenReturn(true);
+
+		List<Boolean> actual = bittrex.cancelOrders(Arrays.asList("1", "2", "3"), credentials);
+
+		assertEquals(Arrays.asList(true, false, true), actual);
+	}
+
+	@Test
+	void cancelOrdersAsync_whenManyOrders_shouldSendAtMostBatchParallelismAtOnce() throws Exception {
+		List<CompletableFuture<String>> pending = new ArrayList<>();
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+			CompletableFuture<String> response = new CompletableFuture<>();
+			pending.add(response);
+			return response;
+		});
+		when(parser.checkResponse(BittrexResponseStub.getSuccessfulResponse())).thenReturn(true);
+
+		CompletableFuture<List<Boolean>> actual = bittrex
+				.cancelOrdersAsync(Arrays.asList("1", "2", "3", "4", "5", "6", "7"), credentials);
+
+		assertEquals(Exchange.BATCH_PARALLELISM, pending.size());
+
+		pending.get(0).complete(BittrexResponseStub.getSuccessfulResponse());
+		assertEquals(Exchange.BATCH_PARALLELISM + 1, pending.size());
+
+		for (int i = 1; i < pending.size(); i++) {
+			pending.get(i).complete(BittrexResponseStub.getSuccessfulResponse());
+		}
+
+		assertEquals(Collections.nCopies(7, true), actual.get());
+	}
+
+	@Test
+	void placeOrdersAsync_whenManySells_shouldSendThemConcurrently() throws Exception {
+		List<CompletableFuture<String>> pending = pendingResponses();
+
+		CompletableFuture<List<Boolean>> actual = bittrex.placeOrdersAsync(
+				Arrays.asList(order(OrderType.LIMIT_SELL), order(OrderType.LIMIT_SELL), order(OrderType.LIMIT_SELL)),
+				credentials);
+
+		assertEquals(3, pending.size());
+
+		pending.get(0).complete(BittrexResponseStub.getSuccessfulResponse());
+		pending.get(1).completeExceptionally(new ExchangeException("Failed"));
+		pending.get(2).complete(BittrexResponseStub.getSuccessfulResponse());
+
+		assertEquals(Arrays.asList(true, false, true), actual.get());
+	}
+
+	@Test
+	void placeOrdersAsync_whenBuysFollowSells_shouldSendBuysOnceTheSellsAreDone() throws Exception {
+		List<CompletableFuture<String>> pending = pendingResponses();
+
+		CompletableFuture<List<Boolean>> actual = bittrex.placeOrdersAsync(
+				Arrays.asList(order(OrderType.LIMIT_BUY), order(OrderType.LIMIT_SELL), order(OrderType.LIMIT_SELL)),
+				credentials);
+
+		assertEquals(2, pending.size());
+
+		pending.get(0).complete(BittrexResponseStub.getSuccessfulResponse());
+		assertEquals(2, pending.size());
+
+		pending.get(1).complete(BittrexResponseStub.getSuccessfulResponse());
+		assertEquals(3, pending.size());
+
+		pending.get(2).completeExceptionally(new ExchangeException("Failed"));
+
+		assertEquals(Arrays.asList(false, true, true), actual.get());
+	}
+
 	@Test
 	void placeOrder_whenRequestFails_shouldReturnFalse() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenThrow(ExchangeException.class);
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Futures.failed(new ExchangeException("Failed")));
 		MarketOrder order = new MarketOrder();
 		order.setAccount(ACCOUNTNAME);
 		order.setExchange(EXCHANGENAME);
@@ -209,7 +375,7 @@ class BittrexTest {
 
 	@Test
 	void placeOrder_whenRequestSucceeds_shouldReturnTrue() throws Exception {
-		when(webService.sendRequest(ArgumentMatchers.any())).thenReturn(BittrexResponseStub.getSuccessfulResponse());
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(completedFuture(BittrexResponseStub.getSuccessfulResponse()));
 		when(parser.checkResponse(BittrexResponseStub.getSuccessfulResponse())).thenReturn(true);
 		
 		MarketOrder order = new MarketOrder();
@@ -225,6 +391,7 @@ class BittrexTest {
 	void placeOrder_whenUnsupportedOrder_shouldReturnFalse() throws Exception {
 		when(api.placeOrder(ArgumentMatchers.notNull(), ArgumentMatchers.notNull()))
 				.thenThrow(UnsupportedOrderTypeException.class);
+		respond(url -> completedFuture(BittrexResponseStub.getSuccessfulResponse()));
 		MarketOrder order = new MarketOrder();
 		order.setAccount(ACCOUNTNAME);
 		order.setExchange(EXCHANGENAME);
@@ -243,4 +410,64 @@ class BittrexTest {
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	void placeOrder_whenRequestIsSent_shouldBuildUrlOnlyThen() throws Exception {
+		CompletableFuture<Supplier<Url>> sent = new CompletableFuture<>();
+		when(webService.sendRequestAsync(ArgumentMatchers.<Supplier<Url>>any(), ArgumentMatchers.any()))
+				.thenAnswer(invocation -> {
+					sent.complete(invocation.getArgument(0));
+					return new CompletableFuture<>();
+				});
+
+		bittrex.placeOrderAsync(new MarketOrder(), credentials);
+
+		verify(api, never()).placeOrder(ArgumentMatchers.any(), ArgumentMatchers.any());
+		sent.get().get();
+		verify(api).placeOrder(ArgumentMatchers.any(), ArgumentMatchers.any());
+	}
+
+	/**
+	 * Keeps the responses of the requests open until the test completes
+	 * them.<br>
+	 */
+	private List<CompletableFuture<String>> pendingResponses() {
+		List<CompletableFuture<String>> pending = new ArrayList<>();
+		when(webService.sendRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+			CompletableFuture<String> response = new CompletableFuture<>();
+			pending.add(response);
+			return response;
+		});
+		when(parser.checkResponse(BittrexResponseStub.getSuccessfulResponse())).thenReturn(true);
+
+		return pending;
+	}
+
+	private MarketOrder order(OrderType type) {
+		MarketOrder order = new MarketOrder();
+		order.setOrderType(type);
+		return order;
+	}
+
+	/**
+	 * Lets the webservice build the url once it may be sent and answer with the
+	 * response for it.<br>
+	 */
+	private void respond(Function<Url, CompletableFuture<String>> responses) {
+		when(webService.sendRequestAsync(ArgumentMatchers.<Supplier<Url>>any(), ArgumentMatchers.any()))
+				.thenAnswer(invocation -> {
+					Supplier<Url> url = invocation.getArgument(0);
+					return completedFuture(null).thenCompose(ignored -> responses.apply(url.get()));
+				});
+	}
+
+	/**
+	 * Lets the webservice hand the json to the body reader.<br>
+	 */
+	private void streamResponse(String json) {
+		when(webService.streamRequestAsync(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> {
+			WebService.BodyReader<?> reader = invocation.getArgument(2);
+			return completedFuture(reader.read(new StringReader(json)));
+		});
+	}
+
 }
@@ -0,0 +1,131 @@
+package tvtrader.caches;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tvtrader.exchange.ExchangeException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+	private static final String KEY = "BITTREX_ACCOUNT";
+
+	private SingleFlight<String> singleFlight;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		singleFlight = new SingleFlight<>();
+	}
+
+	@Test
+	void refresh_whenNothingIsInFlight_shouldRunRefresh() throws Exception {
+		assertEquals("result", singleFlight.refresh(KEY, () -> "result"));
+		assertEquals(0, singleFlight.getInFlight());
+	}
+
+	@Test
+	void refresh_whenRefreshIsInFlight_shouldShareItsResult() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<String> first = executor.submit(() -> singleFlight.refresh(KEY, () -> {
+				calls.incrementAndGet();
+				awaitRelease(release);
+				return "first";
+			}));
+
+			while (calls.get() == 0) {
+				Thread.sleep(1);
+			}
+
+			Future<String> second = executor.submit(() -> singleFlight.refresh(KEY, () -> {
+				calls.incrementAndGet();
+				return "second";
+			}));
+
+			// Give the second caller the time to join the refresh in flight.
+			Thread.sleep(100);
+			release.countDown();
+
+			assertEquals("first", first.get());
+			assertEquals("first", second.get());
+			assertEquals(1, calls.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void refresh_whenKeysDiffer_shouldRunBothRefreshes() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		singleFlight.refresh(KEY, () -> singleFlight.refresh("OTHER", () -> "nested" + calls.incrementAndGet()));
+
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void refresh_whenRefreshFails_shouldThrowAndAllowNextRefresh() throws Exception {
+		assertThrows(ExchangeException.class, () -> singleFlight.refresh(KEY, () -> {
+			throw new ExchangeException("Failed");
+		}));
+
+		assertEquals(0, singleFlight.getInFlight());
+		assertEquals("retry", singleFlight.refresh(KEY, () -> "retry"));
+	}
+
+	@Test
+	void refreshIfNeeded_whenNotNeeded_shouldNotRunRefresh() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		singleFlight.refreshIfNeeded(KEY, () -> false, () -> "refreshed" + calls.incrementAndGet());
+
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	void refreshIfNeeded_whenRefreshedInTheMeantime_shouldNotRunRefresh() throws Exception {
+		AtomicInteger checks = new AtomicInteger();
+		AtomicInteger calls = new AtomicInteger();
+
+		singleFlight.refreshIfNeeded(KEY, () -> checks.incrementAndGet() == 1,
+				() -> "refreshed" + calls.incrementAndGet());
+
+		assertEquals(2, checks.get());
+		assertEquals(0, calls.get());
+		assertEquals(0, singleFlight.getInFlight());
+	}
+
+	@Test
+	void refreshIfNeeded_whenNeeded_shouldRunRefresh() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		singleFlight.refreshIfNeeded(KEY, () -> true, () -> "refreshed" + calls.incrementAndGet());
+
+		assertEquals(1, calls.get());
+	}
+
+	private void awaitRelease(CountDownLatch release) throws ExchangeException {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExchangeException("Interrupted", e);
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package tvtrader.checkers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.jobs.MailIdleJob;
+import tvtrader.mail.MailClient;
+import tvtrader.mail.MailClientException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MailIdleJobTest {
+
+	@Mock
+	private MailClient client;
+	@Mock
+	private Runnable fetchJob;
+	@Mock
+	private Runnable fallback;
+
+	private ScheduledExecutorService executorService;
+	private MailIdleJob idleJob;
+
+	@BeforeEach
+	void setup() {
+		MockitoAnnotations.initMocks(this);
+		executorService = Executors.newSingleThreadScheduledExecutor();
+		idleJob = new MailIdleJob(client, fetchJob, executorService, fallback);
+	}
+
+	@Test
+	void run_whenIdleKeepsFailing_shouldFallBackToPolling() throws Exception {
+		when(client.idle()).thenThrow(new MailClientException("Connection lost"));
+
+		idleJob.run();
+
+		verify(client, Mockito.times(5)).idle();
+		verify(fallback).run();
+	}
+
+	@Test
+	void run_whenStopped_shouldNotFallBackToPolling() throws Exception {
+		when(client.idle()).thenAnswer(invocation -> {
+			idleJob.stop();
+			throw new MailClientException("Connection closed");
+		});
+
+		idleJob.run();
+
+		verify(client, Mockito.times(1)).idle();
+		verify(fallback, Mockito.never()).run();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		executorService.shutdownNow();
+	}
+
+}
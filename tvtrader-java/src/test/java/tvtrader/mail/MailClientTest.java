@@ -1,5 +1,7 @@
 package tvtrader.mail;
 
+import com.icegreen.greenmail.store.StoredMessage;
+import com.icegreen.greenmail.user.GreenMailUser;
 import com.icegreen.greenmail.util.DummySSLSocketFactory;
 import com.icegreen.greenmail.util.GreenMail;
 import com.icegreen.greenmail.util.GreenMailUtil;
@@ -17,13 +19,27 @@ import tvtrader.model.MailConfiguration;
 import tvtrader.services.ConfigurationService;
 import tvtrader.stubs.MailConfigurationStub;
 
+import javax.mail.Flags.Flag;
+import javax.mail.internet.MimeMessage;
+import javax.mail.search.AndTerm;
+import javax.mail.search.ComparisonTerm;
+import javax.mail.search.FlagTerm;
+import javax.mail.search.FromStringTerm;
+import javax.mail.search.SearchTerm;
+import javax.mail.search.SentDateTerm;
 import java.security.Security;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class MailClientTest {
 	private static final String FIRST_MAIL_SUBJECT = "firstMail";
+	private static final String SECOND_MAIL_SUBJECT = "secondMail";
 	private static final String MAIL_BODY = "body";
 	private static final String EXPECTED_SENDER = "testsender@localhost.com";
 	private static final String UNEXPECTED_SENDER = "notExpected@localhost.com";
@@ -32,8 +48,10 @@ class MailClientTest {
 	private static final String PASSWORD = "testpw";
 	private static final int ZERO = 0;
 	private static final int FIVE_MINUTES = 300;
+	private static final long RECONNECT_DELAY = 1_100;
 	
 	private GreenMail greenMail;
+	private GreenMailUser user;
 	
 	@Mock
 	private ConfigurationService service;
@@ -53,7 +71,7 @@ class MailClientTest {
 	    greenMail = new GreenMail(ServerSetupTest.ALL);
 	    Security.setProperty("ssl.SocketFactory.provider",
 	    	      DummySSLSocketFactory.class.getName());
-	    greenMail.setUser(USER_MAIL_ADDRESS, USERNAME, PASSWORD);
+	    user = greenMail.setUser(USER_MAIL_ADDRESS, USERNAME, PASSWORD);
 	    greenMail.start();
 		
 	    client.setTimeLimit(FIVE_MINUTES);
@@ -105,10 +123,9 @@ class MailClientTest {
 		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
 		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
 	    
-	    List<String> actual = client.fetchSubjectLines();
+	    List<String> actual = client.fetchOrderLines();
 	    
-	    assertEquals(1, actual.size());
-	    assertTrue(actual.contains(FIRST_MAIL_SUBJECT), "Fetched mails should've contained the first mail subjectline!");
+	    assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, MAIL_BODY), actual);
 	}
 	
 	@Test
@@ -126,7 +143,7 @@ class MailClientTest {
 	    
 	    client.setTimeLimit(ZERO);
 
-	    List<String> actual = client.fetchSubjectLines();
+	    List<String> actual = client.fetchOrderLines();
 	    
 	    assertTrue(actual.isEmpty());
 	}
@@ -144,7 +161,7 @@ class MailClientTest {
 		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
 		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
 
-	    List<String> actual = client.fetchSubjectLines();
+	    List<String> actual = client.fetchOrderLines();
 	    
 	    assertTrue(actual.isEmpty());
 	}
@@ -158,7 +175,7 @@ class MailClientTest {
 		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
 		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
 
-	    List<String> actual = client.fetchSubjectLines();
+	    List<String> actual = client.fetchOrderLines();
 	    
 	    assertTrue(actual.isEmpty());
 	}
@@ -178,10 +195,302 @@ class MailClientTest {
 		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
 		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
 	    
-	    List<String> actual = client.fetchSubjectLines();
+	    List<String> actual = client.fetchOrderLines();
 	    
-	    assertEquals(1, actual.size());
-	    assertTrue(actual.contains(FIRST_MAIL_SUBJECT), "Fetched mails should've contained the first mail subjectline!");
+	    assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, MAIL_BODY), actual);
+	}
+
+	@Test
+	void supportsIdle_whenServerDoesNotSupportIdle_shouldReturnFalse() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+
+		assertFalse(client.supportsIdle());
+	}
+
+	@Test
+	void supportsIdle_whenServerIsOffline_shouldReturnFalse() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+
+		greenMail.stop();
+
+		assertFalse(client.supportsIdle());
+	}
+
+	@Test
+	void idle_whenServerHasMail_shouldReturnTrueWithoutWaiting() throws Exception {
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+
+		assertTrue(client.idle());
+	}
+
+	@Test
+	void idle_whenOnlyScannedMailIsLeft_shouldWaitForNewMail() throws Exception {
+		mockGreenmailConfiguration();
+		deliver(UNEXPECTED_SENDER, FIRST_MAIL_SUBJECT, LocalDateTime.now());
+		client.fetchOrderLines();
+		// Keep the scanned mail around, like a server that didn't expunge it.
+		storedMessage(FIRST_MAIL_SUBJECT).setFlag(Flag.DELETED, false);
+
+		// GreenMail doesn't support IDLE, so waiting fails instead of returning right away.
+		assertThrows(MailClientException.class, () -> client.idle());
+		assertEquals(1, greenMail.getReceivedMessages().length);
+	}
+
+	@Test
+	void idle_whenServerDoesNotSupportIdle_shouldThrowMailClientException() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+
+		assertThrows(MailClientException.class, () -> client.idle());
+	}
+
+	@Test
+	void fetchOrderLines_whenCalledTwice_shouldKeepConnectionOpen() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		client.fetchOrderLines();
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertEquals(MailClient.ConnectionState.CONNECTED, client.getConnectionState());
+		assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, MAIL_BODY), subjectLines);
+	}
+
+	@Test
+	void fetchOrderLines_whenServerRestarts_shouldReconnect() throws Exception {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		client.fetchOrderLines();
+		greenMail.stop();
+		client.fetchOrderLines();
+
+		assertEquals(MailClient.ConnectionState.RECONNECTING, client.getConnectionState());
+
+		greenMail = new GreenMail(ServerSetupTest.ALL);
+		greenMail.setUser(USER_MAIL_ADDRESS, USERNAME, PASSWORD);
+		greenMail.start();
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		Thread.sleep(RECONNECT_DELAY);
+
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertEquals(MailClient.ConnectionState.CONNECTED, client.getConnectionState());
+		assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, MAIL_BODY), subjectLines);
+	}
+
+	@Test
+	void fetchOrderLines_whenConnectionFailed_shouldBackOff() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailInvalidImapConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+
+		client.fetchOrderLines();
+		client.fetchOrderLines();
+
+		assertEquals(MailClient.ConnectionState.RECONNECTING, client.getConnectionState());
+		Mockito.verify(service, Mockito.times(1)).getUsername();
+	}
+
+	@Test
+	void fetchOrderLines_whenNewMailArrivesAfterFetch_shouldOnlyReturnNewMail() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		client.fetchOrderLines();
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				SECOND_MAIL_SUBJECT, MAIL_BODY);
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertEquals(Arrays.asList(SECOND_MAIL_SUBJECT, MAIL_BODY), subjectLines);
+	}
+
+	@Test
+	void fetchOrderLines_whenExpungeIsDeferred_shouldKeepMailsUntilExpunged() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		client.setDeferExpunge(true);
+		client.fetchOrderLines();
+
+		assertEquals(1, greenMail.getReceivedMessages().length);
+
+		client.expungeDeleted();
+
+		assertEquals(0, greenMail.getReceivedMessages().length);
+	}
+
+	@Test
+	void fetchOrderLines_whenExpungeIsNotDeferred_shouldExpungeMails() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		client.setDeferExpunge(false);
+		client.fetchOrderLines();
+
+		assertEquals(0, greenMail.getReceivedMessages().length);
+	}
+
+	@Test
+	void fetchOrderLines_whenCreatedWithMailConfiguration_shouldUseThatMailbox() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		config.setName("SECOND");
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER,
+				FIRST_MAIL_SUBJECT, MAIL_BODY);
+		MailClient mailbox = new MailClient(service, config);
+		List<String> subjectLines = mailbox.fetchOrderLines();
+		mailbox.closeConnection();
+
+		assertEquals("SECOND", mailbox.getName());
+		assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, MAIL_BODY), subjectLines);
+		Mockito.verify(service, Mockito.never()).getMailConfigurationAsProperties();
+	}
+
+	@Test
+	void fetchOrderLines_whenMailIsFromOtherSender_shouldNotSelectItOnServer() throws Exception {
+		mockGreenmailConfiguration();
+		deliver(UNEXPECTED_SENDER, FIRST_MAIL_SUBJECT, LocalDateTime.now());
+		deliver(EXPECTED_SENDER, SECOND_MAIL_SUBJECT, LocalDateTime.now());
+
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertEquals(Arrays.asList(SECOND_MAIL_SUBJECT, MAIL_BODY), subjectLines);
+		// Only the messages the search selected are read and marked as seen.
+		assertFalse(storedMessage(FIRST_MAIL_SUBJECT).isSet(Flag.SEEN));
+		assertTrue(storedMessage(SECOND_MAIL_SUBJECT).isSet(Flag.SEEN));
+	}
+
+	@Test
+	void fetchOrderLines_whenBodyHasOrderLines_shouldReturnSubjectAndBodyLines() {
+		mockGreenmailConfiguration();
+		GreenMailUtil.sendTextEmailTest(USER_MAIL_ADDRESS, EXPECTED_SENDER, FIRST_MAIL_SUBJECT,
+				"BUY_BITTREX_ACCOUNT_ETH\r\n\r\nBUY_BITTREX_ACCOUNT_NEO, SELL_BITTREX_ACCOUNT_XRP\r\n");
+
+		List<String> orderLines = client.fetchOrderLines();
+
+		assertEquals(Arrays.asList(FIRST_MAIL_SUBJECT, "BUY_BITTREX_ACCOUNT_ETH",
+				"BUY_BITTREX_ACCOUNT_NEO, SELL_BITTREX_ACCOUNT_XRP"), orderLines);
+	}
+
+	@Test
+	void fetchOrderLines_whenMailIsAlreadyRead_shouldNotSelectItOnServer() throws Exception {
+		mockGreenmailConfiguration();
+		deliver(EXPECTED_SENDER, FIRST_MAIL_SUBJECT, LocalDateTime.now());
+		storedMessage(FIRST_MAIL_SUBJECT).setFlag(Flag.SEEN, true);
+
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertTrue(subjectLines.isEmpty());
+		assertTrue(storedMessage(FIRST_MAIL_SUBJECT).isSet(Flag.DELETED));
+	}
+
+	@Test
+	void fetchOrderLines_whenMailIsFromEarlierTodayButOlderThanTimeLimit_shouldIgnoreIt() throws Exception {
+		mockGreenmailConfiguration();
+		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime midnight = now.toLocalDate().atStartOfDay();
+		// SENTSINCE only compares dates, so the server selects every mail sent
+		// today. The exact time limit is checked after fetching.
+		client.setTimeLimit((int) Duration.between(midnight, now).getSeconds() / 2);
+		deliver(EXPECTED_SENDER, FIRST_MAIL_SUBJECT, midnight);
+		deliver(EXPECTED_SENDER, SECOND_MAIL_SUBJECT, midnight.minusHours(1));
+
+		List<String> subjectLines = client.fetchOrderLines();
+
+		assertTrue(subjectLines.isEmpty());
+	}
+
+	@Test
+	void searchTerm_whenCalled_shouldSelectUnreadMailFromExpectedSenderWithinTimeLimit() {
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+		LocalDateTime now = LocalDateTime.of(2018, 6, 1, 0, 2);
+
+		SearchTerm[] terms = ((AndTerm) client.searchTerm(now)).getTerms();
+
+		FlagTerm unread = (FlagTerm) terms[0];
+		assertTrue(unread.getFlags().contains(Flag.SEEN));
+		assertFalse(unread.getTestSet());
+		assertEquals(EXPECTED_SENDER, ((FromStringTerm) terms[1]).getPattern());
+		SentDateTerm since = (SentDateTerm) terms[2];
+		assertEquals(ComparisonTerm.GE, since.getComparison());
+		// Five minutes back crosses midnight: the server will compare against the previous day.
+		assertEquals(Date.from(LocalDateTime.of(2018, 5, 31, 23, 57).atZone(ZoneId.systemDefault()).toInstant()),
+				since.getDate());
+	}
+
+	private void mockGreenmailConfiguration() {
+		MailConfiguration config = MailConfigurationStub.getGreenmailImapMailConfiguration();
+		Mockito.when(service.getMailConfigurationAsProperties()).thenReturn(config.getProperties());
+		Mockito.when(service.getUsername()).thenReturn(config.getUsername());
+		Mockito.when(service.getPassword()).thenReturn(config.getPassword());
+		Mockito.when(service.getInbox()).thenReturn(config.getInbox());
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+	}
+
+	private void deliver(String from, String subject, LocalDateTime sent) throws Exception {
+		MimeMessage message = GreenMailUtil.createTextEmail(USER_MAIL_ADDRESS, from, subject, MAIL_BODY,
+				ServerSetupTest.SMTP);
+		message.setSentDate(Date.from(sent.atZone(ZoneId.systemDefault()).toInstant()));
+		user.deliver(message);
+	}
+
+	private StoredMessage storedMessage(String subject) throws Exception {
+		for (StoredMessage message : greenMail.getManagers().getImapHostManager().getInbox(user).getMessages()) {
+			if (subject.equals(message.getMimeMessage().getSubject())) {
+				return message;
+			}
+		}
+
+		throw new IllegalStateException("No message with subject " + subject);
 	}
 
 	@AfterEach
@@ -0,0 +1,211 @@
+package tvtrader.mail;
+
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.services.ConfigurationService;
+
+import javax.mail.internet.MailDateFormat;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpReceiverTest {
+	private static final String SUBJECT = "BUY_BITTREX_ACCOUNT_ETH";
+	private static final String MAIL_BODY = "body";
+	private static final String EXPECTED_SENDER = "testsender@localhost.com";
+	private static final String UNEXPECTED_SENDER = "notExpected@localhost.com";
+	private static final String RECIPIENT = "tvtrader@localhost.com";
+	private static final int FIVE_MINUTES = 300;
+	private static final int ZERO = 0;
+	private static final long WAIT_IN_MS = 2_000;
+	private static final int MAX_CONNECTIONS = 4;
+	private static final int TOO_LONG = 2_000;
+
+	private List<String> subjects;
+
+	@Mock
+	private ConfigurationService service;
+
+	@InjectMocks
+	private SmtpReceiver receiver;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(service.getExpectedSender()).thenReturn(EXPECTED_SENDER);
+
+		subjects = new CopyOnWriteArrayList<>();
+		receiver.setTimeLimit(FIVE_MINUTES);
+		receiver.start(0, subjects::addAll);
+	}
+
+	@Test
+	void start_whenAlreadyRunning_shouldThrowMailClientException() {
+		assertThrows(MailClientException.class, () -> receiver.start(0, subjects::addAll));
+	}
+
+	@Test
+	void start_whenNoAddressIsProvided_shouldOnlyListenOnLoopback() {
+		assertTrue(receiver.getAddress().isLoopbackAddress());
+	}
+
+	@Test
+	void receive_whenMailIsFromExpectedSender_shouldPassSubject() throws Exception {
+		send(EXPECTED_SENDER);
+
+		waitForSubjects();
+
+		assertEquals(Arrays.asList(SUBJECT, MAIL_BODY), subjects);
+	}
+
+	@Test
+	void receive_whenMailIsFromUnexpectedSender_shouldIgnoreMail() throws Exception {
+		send(UNEXPECTED_SENDER);
+
+		waitForSubjects();
+
+		assertTrue(subjects.isEmpty());
+	}
+
+	@Test
+	void receive_whenMailIsOutsideTimeLimit_shouldIgnoreMail() throws Exception {
+		receiver.setTimeLimit(ZERO);
+		send(EXPECTED_SENDER);
+
+		waitForSubjects();
+
+		assertTrue(subjects.isEmpty());
+	}
+
+	@Test
+	void receive_whenLineIsTooLong_shouldRejectLine() throws Exception {
+		char[] padding = new char[TOO_LONG];
+		Arrays.fill(padding, 'x');
+
+		try (Socket socket = connect()) {
+			BufferedReader reader = readerFor(socket);
+			reader.readLine();
+
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+			writer.write("HELO " + new String(padding) + "\r\n");
+			writer.flush();
+
+			assertTrue(reader.readLine().startsWith("500"));
+		}
+	}
+
+	@Test
+	void receive_whenClientDisconnectsBeforeEndOfData_shouldIgnoreMail() throws Exception {
+		try (Socket socket = connect()) {
+			BufferedReader reader = readerFor(socket);
+			reader.readLine();
+
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+			writer.write("HELO localhost\r\n");
+			writer.write("MAIL FROM:<" + EXPECTED_SENDER + ">\r\n");
+			writer.write("RCPT TO:<" + RECIPIENT + ">\r\n");
+			writer.write("DATA\r\n");
+			writer.flush();
+
+			for (int i = 0; i < 3; i++) {
+				assertTrue(reader.readLine().startsWith("250"));
+			}
+			assertTrue(reader.readLine().startsWith("354"));
+
+			writer.write("Date: " + new MailDateFormat().format(new Date()) + "\r\n");
+			writer.write("From: " + EXPECTED_SENDER + "\r\n");
+			writer.write("Subject: " + SUBJECT + "\r\n");
+			writer.write("\r\n");
+			writer.write(MAIL_BODY + "\r\n");
+			writer.flush();
+			socket.shutdownOutput();
+
+			assertNull(reader.readLine());
+		}
+
+		waitForSubjects();
+
+		assertTrue(subjects.isEmpty());
+	}
+
+	@Test
+	void receive_whenTooManyClientsAreConnected_shouldRefuseConnection() throws Exception {
+		List<Socket> sockets = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < MAX_CONNECTIONS; i++) {
+				Socket socket = connect();
+				sockets.add(socket);
+				assertTrue(readerFor(socket).readLine().startsWith("220"));
+			}
+
+			Socket refused = connect();
+			sockets.add(refused);
+			assertTrue(readerFor(refused).readLine().startsWith("421"));
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	@Test
+	void close_whenRunning_shouldStopListening() {
+		receiver.close();
+
+		assertEquals(-1, receiver.getPort());
+	}
+
+	private void send(String sender) {
+		ServerSetup setup = new ServerSetup(receiver.getPort(), "localhost", ServerSetup.PROTOCOL_SMTP);
+		GreenMailUtil.sendTextEmail(RECIPIENT, sender, SUBJECT, MAIL_BODY, setup);
+	}
+
+	private Socket connect() throws Exception {
+		Socket socket = new Socket(receiver.getAddress(), receiver.getPort());
+		socket.setSoTimeout((int) WAIT_IN_MS);
+
+		return socket;
+	}
+
+	private BufferedReader readerFor(Socket socket) throws Exception {
+		return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+	}
+
+	private void waitForSubjects() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_IN_MS;
+
+		while (subjects.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+	}
+
+	@AfterEach
+	void cleanUp() {
+		receiver.close();
+	}
+
+}
@@ -0,0 +1,104 @@
+package tvtrader.orders;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.model.Account;
+import tvtrader.model.ApiCredentials;
+import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.services.AccountService;
+import tvtrader.services.ConfigurationService;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountExpanderTest {
+	private static final String EXCHANGE = "BITTREX";
+	private static final String FIRST = "FIRST";
+	private static final String SECOND = "SECOND";
+	private static final String GROUP = "GROUP";
+
+	@Mock private AccountService accountService;
+	@Mock private ConfigurationService configurationService;
+
+	@InjectMocks private AccountExpander expander;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		MockitoAnnotations.initMocks(this);
+
+		Mockito.when(accountService.hasAccount(EXCHANGE, FIRST)).thenReturn(true);
+		Mockito.when(accountService.hasAccount(EXCHANGE, SECOND)).thenReturn(true);
+	}
+
+	@Test
+	void expand_whenAccountIsWildcard_shouldCreateOrderForEveryAccount() {
+		Mockito.when(accountService.getAccounts(EXCHANGE))
+				.thenReturn(Arrays.asList(account(FIRST), account(SECOND)).iterator());
+
+		List<MarketOrder> actual = expander.expand(order("*"));
+
+		assertAll("actual",
+				() -> assertEquals(2, actual.size()),
+				() -> assertEquals(FIRST, actual.get(0).getAccount()),
+				() -> assertEquals(SECOND, actual.get(1).getAccount()),
+				() -> assertEquals(OrderType.LIMIT_BUY, actual.get(1).getOrderType()),
+				() -> assertEquals("ETH", actual.get(1).getAltCoin()));
+	}
+
+	@Test
+	void expand_whenAccountIsGroup_shouldCreateOrderForEveryKnownAccountInGroup() {
+		Mockito.when(configurationService.getAccountGroup(GROUP)).thenReturn(Arrays.asList(FIRST, "UNKNOWN"));
+
+		List<MarketOrder> actual = expander.expand(order(GROUP));
+
+		assertEquals(1, actual.size());
+		assertEquals(FIRST, actual.get(0).getAccount());
+	}
+
+	@Test
+	void expand_whenAccountIsSingleAccount_shouldReturnOrder() {
+		MarketOrder order = order(FIRST);
+
+		List<MarketOrder> actual = expander.expand(order);
+
+		assertSame(order, actual.get(0));
+		assertEquals(1, actual.size());
+	}
+
+	@Test
+	void expand_whenAccountIsUnknown_shouldReturnOrder() {
+		MarketOrder order = order("UNKNOWN");
+
+		List<MarketOrder> actual = expander.expand(order);
+
+		assertSame(order, actual.get(0));
+	}
+
+	private Account account(String name) {
+		return new Account(EXCHANGE, name, "BTC", 0, 0, 0, 0, new ApiCredentials(name, name));
+	}
+
+	private MarketOrder order(String account) {
+		MarketOrder order = new MarketOrder();
+		order.setExchange(EXCHANGE);
+		order.setAccount(account);
+		order.setAltCoin("ETH");
+		order.setOrderType(OrderType.LIMIT_BUY);
+
+		return order;
+	}
+
+}
@@ -0,0 +1,173 @@
+package tvtrader.orders;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.services.ConfigurationService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertDeduplicatorTest {
+	private static final int WINDOW_IN_SECONDS = 60;
+	private static final long NOW = 1_000_000_000L;
+	private static final long WITHIN_WINDOW = NOW + 59_000;
+	private static final long AFTER_WINDOW = NOW + 61_000;
+
+	@Mock private ConfigurationService configurationService;
+
+	private AlertDeduplicator deduplicator;
+	private Path file;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(configurationService.getDedupWindow()).thenReturn(WINDOW_IN_SECONDS);
+
+		deduplicator = new AlertDeduplicator(configurationService);
+		file = Files.createTempFile("dedup", ".txt");
+	}
+
+	@Test
+	void isDuplicate_whenAlertIsNew_shouldReturnFalse() {
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW));
+	}
+
+	@Test
+	void isDuplicate_whenAlertIsRepeatedWithinWindow_shouldReturnTrue() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		assertTrue(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "eth"), WITHIN_WINDOW));
+	}
+
+	@Test
+	void isDuplicate_whenAlertIsRepeatedAfterWindow_shouldReturnFalse() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), AFTER_WINDOW));
+		assertEquals(1, deduplicator.size());
+	}
+
+	@Test
+	void isDuplicate_whenOppositeAlertWasReceivedInBetween_shouldReturnFalse() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+		deduplicator.isDuplicate(order(OrderType.LIMIT_SELL, "ETH"), NOW + 1);
+
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW + 2));
+	}
+
+	@Test
+	void isDuplicate_whenAccountDiffersInCase_shouldReturnTrue() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		MarketOrder order = order(OrderType.LIMIT_BUY, "ETH");
+		order.setAccount("account");
+
+		assertTrue(deduplicator.isDuplicate(order, WITHIN_WINDOW));
+	}
+
+	@Test
+	void isDuplicate_whenOtherAltcoin_shouldReturnFalse() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "NEO"), NOW));
+	}
+
+	@Test
+	void forget_whenOrderWasNotPlaced_shouldNotIgnoreResentAlert() {
+		MarketOrder order = order(OrderType.LIMIT_BUY, "ETH");
+		deduplicator.isDuplicate(order, NOW);
+
+		deduplicator.forget(order);
+
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), WITHIN_WINDOW));
+	}
+
+	@Test
+	void forget_whenOrderIsNotTheRememberedAlert_shouldKeepAlert() {
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		deduplicator.forget(order(OrderType.LIMIT_BUY, "ETH"));
+
+		assertTrue(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), WITHIN_WINDOW));
+	}
+
+	@Test
+	void isDuplicate_whenWindowIsZero_shouldReturnFalse() {
+		Mockito.when(configurationService.getDedupWindow()).thenReturn(0);
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW);
+
+		assertFalse(deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"), NOW));
+		assertEquals(0, deduplicator.size());
+	}
+
+	@Test
+	void start_whenDedupFileContainsRecentAlerts_shouldRecognizeDuplicates() {
+		Mockito.when(configurationService.getDedupFile()).thenReturn(file.toString());
+		deduplicator.start();
+		deduplicator.isDuplicate(order(OrderType.LIMIT_BUY, "ETH"));
+		deduplicator.close();
+
+		AlertDeduplicator restarted = new AlertDeduplicator(configurationService);
+		restarted.start();
+
+		assertTrue(restarted.isDuplicate(order(OrderType.LIMIT_BUY, "ETH")));
+		restarted.close();
+	}
+
+	@Test
+	void start_whenAlertWasForgotten_shouldNotRecognizeItAfterRestart() {
+		Mockito.when(configurationService.getDedupFile()).thenReturn(file.toString());
+		deduplicator.start();
+		MarketOrder order = order(OrderType.LIMIT_BUY, "ETH");
+		deduplicator.isDuplicate(order);
+		deduplicator.forget(order);
+		deduplicator.close();
+
+		AlertDeduplicator restarted = new AlertDeduplicator(configurationService);
+		restarted.start();
+
+		assertFalse(restarted.isDuplicate(order(OrderType.LIMIT_BUY, "ETH")));
+		restarted.close();
+	}
+
+	@Test
+	void start_whenDedupFileIsCorrupt_shouldSkipCorruptLines() throws Exception {
+		Files.write(file, "corrupt\nNaN LIMIT_BUY BITTREX_ACCOUNT_ETH\n".getBytes());
+		Mockito.when(configurationService.getDedupFile()).thenReturn(file.toString());
+
+		deduplicator.start();
+
+		assertEquals(0, deduplicator.size());
+	}
+
+	private MarketOrder order(OrderType orderType, String altCoin) {
+		MarketOrder order = new MarketOrder();
+		order.setOrderType(orderType);
+		order.setExchange("BITTREX");
+		order.setAccount("ACCOUNT");
+		order.setAltCoin(altCoin);
+
+		return order;
+	}
+
+	@AfterEach
+	void cleanUp() throws Exception {
+		deduplicator.close();
+		Files.deleteIfExists(file);
+	}
+
+}
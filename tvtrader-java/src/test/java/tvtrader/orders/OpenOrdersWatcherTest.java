@@ -19,8 +19,10 @@ import tvtrader.services.ExchangeService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
@@ -29,6 +31,7 @@ class OpenOrdersWatcherTest {
 	private static final String SUPPORTED_EXCHANGE = "BITTREX";
 	private static final int ONE_MINUTE = 60;
 	private static final String ORDER_ID = "1";
+	private static final List<String> ORDER_IDS = Collections.singletonList(ORDER_ID);
 	
 	private static final String MAINCOIN = "MAINCOIN";
 	private static final String ALTCOIN = "ALTCOIN";
@@ -86,7 +89,7 @@ class OpenOrdersWatcherTest {
 		
 		orderWatcher.checkOrders();
 		
-		verify(exchangeService, never()).cancelOrder(SUPPORTED_EXCHANGE, ACCOUNT, ORDER_ID);
+		verify(exchangeService, never()).cancelOrdersAsync(anyString(), anyString(), anyList());
 	}
 	
 	@Test
@@ -96,10 +99,13 @@ class OpenOrdersWatcherTest {
 		
 		when(accountService.getAccounts(SUPPORTED_EXCHANGE)).thenReturn(accounts.iterator());
 		when(exchangeService.getOpenOrders(SUPPORTED_EXCHANGE, ACCOUNT)).thenReturn(orders);
+		when(exchangeService.cancelOrdersAsync(SUPPORTED_EXCHANGE, ACCOUNT, ORDER_IDS))
+				.thenReturn(completedFuture(Collections.singletonList(true)));
 		
 		orderWatcher.checkOrders();
 		
-		verify(exchangeService, times(1)).cancelOrder(SUPPORTED_EXCHANGE, ACCOUNT, ORDER_ID);
+		verify(exchangeService, times(1)).cancelOrdersAsync(SUPPORTED_EXCHANGE, ACCOUNT, ORDER_IDS);
+		verify(orderPlacer, times(1)).addOrder(any());
 	}
 	
 	@Test
@@ -130,10 +136,27 @@ class OpenOrdersWatcherTest {
 		when(accountService.getAccounts(SUPPORTED_EXCHANGE)).thenReturn(accounts.iterator());
 		when(exchangeService.getOpenOrders(SUPPORTED_EXCHANGE, ACCOUNT)).thenThrow(ExchangeException.class);
 		when(exchangeService.getOpenOrders(SUPPORTED_EXCHANGE, ACCOUNT_2)).thenReturn(orders);
+		when(exchangeService.cancelOrdersAsync(SUPPORTED_EXCHANGE, ACCOUNT_2, ORDER_IDS))
+				.thenReturn(completedFuture(Collections.singletonList(true)));
 		
 		orderWatcher.checkOrders();
 		
-		verify(exchangeService, times(1)).cancelOrder(SUPPORTED_EXCHANGE, ACCOUNT_2, ORDER_ID);
+		verify(exchangeService, times(1)).cancelOrdersAsync(SUPPORTED_EXCHANGE, ACCOUNT_2, ORDER_IDS);
+	}
+
+	@Test
+	void checkOrders_whenCancelFails_shouldNotReplaceOrder() throws Exception {
+		when(order.getTimeStamp())
+		.thenReturn(System.currentTimeMillis() - ONE_DAY);
+		
+		when(accountService.getAccounts(SUPPORTED_EXCHANGE)).thenReturn(accounts.iterator());
+		when(exchangeService.getOpenOrders(SUPPORTED_EXCHANGE, ACCOUNT)).thenReturn(orders);
+		when(exchangeService.cancelOrdersAsync(SUPPORTED_EXCHANGE, ACCOUNT, ORDER_IDS))
+				.thenReturn(completedFuture(Collections.singletonList(false)));
+		
+		orderWatcher.checkOrders();
+		
+		verify(orderPlacer, never()).addOrder(any());
 	}
 
 }
@@ -10,6 +10,7 @@ import tvtrader.exchange.ExchangeException;
 import tvtrader.model.MarketOrder;
 import tvtrader.model.OrderType;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +24,14 @@ class OrderLineParserTest {
 	private static final String VALID_SELL_ORDER_LINE = "TradingView Alert: SELL_EXCHANGE_DEFAULTBTC_ETH";
 	private static final String INVALID_ORDERTYPE = "TradingView Alert: INVALID_EXCHANGE_DEFAULTBTC_ETH";
 	private static final String INVALID_ORDER_LINE = "TradingView Alert: INVALID_PATTERN";
+	private static final String LOWERCASE_ORDER_LINE = "TradingView Alert: buy_EXCHANGE_DEFAULTBTC_ETH";
+	private static final String TERMINATED_ORDER_LINE = "TradingView Alert: SELL_EXCHANGE_DEFAULTBTC_ETH\r\n";
+	private static final String TRAILING_TEXT_ORDER_LINE = "TradingView Alert: SELL_EXCHANGE_DEFAULTBTC_ETH now";
+	private static final String EXTRA_FIELD_ORDER_LINE = "TradingView Alert: SELL_EXCHANGE_DEFAULTBTC_ETH_EXTRA";
+	private static final String MULTIPLE_ORDER_LINE = "Rebalance: BUY_EXCHANGE_DEFAULTBTC_ETH, SELL_EXCHANGE_DEFAULTBTC_NEO;BUY_EXCHANGE_DEFAULTBTC_XRP";
+	private static final String MULTIPLE_ORDER_BODY = "BUY_EXCHANGE_DEFAULTBTC_ETH\r\nSELL_EXCHANGE_DEFAULTBTC_NEO\r\n";
+	private static final String WILDCARD_ORDER_LINE = "TradingView Alert: BUY_EXCHANGE_*_ETH";
+	private static final String MISSING_ALTCOIN_ORDER_LINE = "TradingView Alert: SELL_EXCHANGE_DEFAULTBTC_";
 	private static final String ETH = "ETH";
 	private static final double NOT_SET = 0.0;
 	
@@ -91,4 +100,86 @@ class OrderLineParserTest {
 		
 		assertFalse(actual.isPresent());
 	}
+	
+	@Test
+	void parseOrderLine_whenOrderTypeIsLowercase_shouldIgnoreCase() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(LOWERCASE_ORDER_LINE);
+		
+		assertEquals(OrderType.LIMIT_BUY, actual.get().getOrderType());
+	}
+	
+	@Test
+	void parseOrderLine_whenSubjectEndsWithLineTerminator_shouldIgnoreTerminator() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(TERMINATED_ORDER_LINE);
+		
+		assertAll("actual", 
+				() -> assertEquals(OrderType.LIMIT_SELL, actual.get().getOrderType()),
+				() -> assertEquals(ETH, actual.get().getAltCoin()));
+	}
+	
+	@Test
+	void parseOrderLine_whenOrderLineIsNotAtTheEnd_shouldIgnoreSubject() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(TRAILING_TEXT_ORDER_LINE);
+		
+		assertFalse(actual.isPresent());
+	}
+	
+	@Test
+	void parseOrderLine_whenOrderLineHasExtraFields_shouldIgnoreExtraFields() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(EXTRA_FIELD_ORDER_LINE);
+		
+		assertAll("actual", 
+				() -> assertEquals(EXCHANGE_NAME, actual.get().getExchange()),
+				() -> assertEquals(BTC_ACCOUNT_NAME, actual.get().getAccount()),
+				() -> assertEquals(ETH, actual.get().getAltCoin()));
+	}
+	
+	@Test
+	void parseOrderLine_whenAltcoinIsMissing_shouldIgnoreSubject() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(MISSING_ALTCOIN_ORDER_LINE);
+		
+		assertFalse(actual.isPresent());
+	}
+	
+	@Test
+	void parseOrderLines_whenSubjectHasMultipleOrderLines_shouldCreateOrdersInOrder() {
+		List<MarketOrder> actual = orderBuilder.parseOrderLines(MULTIPLE_ORDER_LINE);
+		
+		assertAll("actual", 
+				() -> assertEquals(3, actual.size()),
+				() -> assertEquals(OrderType.LIMIT_BUY, actual.get(0).getOrderType()),
+				() -> assertEquals(ETH, actual.get(0).getAltCoin()),
+				() -> assertEquals(OrderType.LIMIT_SELL, actual.get(1).getOrderType()),
+				() -> assertEquals("NEO", actual.get(1).getAltCoin()),
+				() -> assertEquals("XRP", actual.get(2).getAltCoin()));
+	}
+	
+	@Test
+	void parseOrderLines_whenBodyHasAnOrderLinePerLine_shouldCreateAllOrders() {
+		List<MarketOrder> actual = orderBuilder.parseOrderLines(MULTIPLE_ORDER_BODY);
+		
+		assertEquals(2, actual.size());
+	}
+	
+	@Test
+	void parseOrderLines_whenSubjectHasSingleOrderLine_shouldMatchParseOrderLine() {
+		List<MarketOrder> actual = orderBuilder.parseOrderLines(VALID_BUY_ORDER_LINE);
+		
+		assertEquals(orderBuilder.parseOrderLine(VALID_BUY_ORDER_LINE).get(), actual.get(0));
+		assertEquals(1, actual.size());
+	}
+	
+	@Test
+	void parseOrderLines_whenSubjectHasNoOrderLine_shouldReturnEmptyList() {
+		List<MarketOrder> actual = orderBuilder.parseOrderLines(INVALID_ORDER_LINE);
+		
+		assertTrue(actual.isEmpty());
+	}
+	
+	@Test
+	void parseOrderLine_whenAccountIsWildcard_shouldKeepWildcard() {
+		Optional<MarketOrder> actual = orderBuilder.parseOrderLine(WILDCARD_ORDER_LINE);
+		
+		assertEquals("*", actual.get().getAccount());
+	}
 }
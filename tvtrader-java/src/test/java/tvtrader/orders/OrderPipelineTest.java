@@ -0,0 +1,226 @@
+package tvtrader.orders;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.exchange.ExchangeException;
+import tvtrader.model.Account;
+import tvtrader.model.ApiCredentials;
+import tvtrader.model.MarketOrder;
+import tvtrader.services.AccountService;
+import tvtrader.services.ConfigurationService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderPipelineTest {
+	private static final String BUY_LINE = "BUY_BITTREX_ACCOUNT_ETH";
+	private static final String MULTIPLE_ORDER_LINE = "BUY_BITTREX_ACCOUNT_ETH,BUY_BITTREX_ACCOUNT_NEO";
+	private static final String WILDCARD_LINE = "BUY_BITTREX_*_ETH";
+	private static final String INVALID_LINE = "INVALID";
+	private static final String MAIN_COIN = "BTC";
+	private static final double BUY_LIMIT = 1.0;
+	private static final long TIMEOUT_IN_MS = 2_000;
+
+	@Mock private ConfigurationService configurationService;
+	@Mock private AlertDeduplicator alertDeduplicator;
+	@Mock private AccountService accountService;
+	@Mock private OrderBuilder orderBuilder;
+	@Mock private GainChecker gainChecker;
+	@Mock private OrderPlacer orderPlacer;
+	@Mock private ScheduledExecutorService executorService;
+
+	private OrderPipeline pipeline;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() throws Exception {
+		MockitoAnnotations.initMocks(this);
+
+		Mockito.when(accountService.getMainCurrency("BITTREX", "ACCOUNT")).thenReturn(MAIN_COIN);
+		Mockito.when(accountService.getBuyLimit("BITTREX", "ACCOUNT")).thenReturn(BUY_LIMIT);
+		Mockito.doAnswer(invocation -> {
+			MarketOrder order = invocation.getArgument(0);
+			order.setRate(1.0);
+			order.setQuantity(1.0);
+			return null;
+		}).when(orderBuilder).calculateQuantityAndRate(Mockito.any(MarketOrder.class), Mockito.eq(BUY_LIMIT));
+
+		pipeline = new OrderPipeline(new OrderLineParser(),
+				new AccountExpander(accountService, configurationService), alertDeduplicator, accountService,
+				orderBuilder, gainChecker, orderPlacer, executorService);
+		pipeline.start();
+	}
+
+	@Test
+	void ingest_whenOrderLineIsValid_shouldAddOrderToOrderPlacer() {
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(orderPlacer, Mockito.timeout(TIMEOUT_IN_MS)).placeOrders(Mockito.anyList(),
+				Mockito.eq(executorService));
+	}
+
+	@Test
+	void ingest_whenLineHasMultipleOrders_shouldPlaceThemAsOneBatch() {
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Arrays.asList(MULTIPLE_ORDER_LINE, BUY_LINE.replace("ETH", "XRP")));
+
+		ArgumentCaptor<List<MarketOrder>> captor = batchCaptor();
+		Mockito.verify(orderPlacer, Mockito.timeout(TIMEOUT_IN_MS)).placeOrders(captor.capture(), Mockito.any());
+		Mockito.verify(orderPlacer, Mockito.after(100).times(1)).placeOrders(Mockito.anyList(), Mockito.any());
+		assertEquals(3, captor.getValue().size());
+		assertEquals(1, pipeline.getStages().get(1).getProcessed());
+	}
+
+	@Test
+	void ingest_whenOrderIsInSubjectAndBody_shouldPlaceItOnce() {
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Arrays.asList("Alert: " + BUY_LINE, BUY_LINE));
+
+		ArgumentCaptor<List<MarketOrder>> captor = batchCaptor();
+		Mockito.verify(orderPlacer, Mockito.timeout(TIMEOUT_IN_MS)).placeOrders(captor.capture(), Mockito.any());
+		assertEquals(1, captor.getValue().size());
+	}
+
+	@Test
+	void ingest_whenAccountIsWildcard_shouldAddOrderForEveryAccount() throws Exception {
+		Mockito.when(accountService.getAccounts("BITTREX")).thenReturn(Arrays.asList(
+				new Account("BITTREX", "ACCOUNT", MAIN_COIN, 0, 0, 0, 0, new ApiCredentials("1", "1")),
+				new Account("BITTREX", "OTHER", MAIN_COIN, 0, 0, 0, 0, new ApiCredentials("2", "2"))).iterator());
+		Mockito.when(accountService.getMainCurrency("BITTREX", "OTHER")).thenThrow(new ExchangeException("Failed"));
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Collections.singletonList(WILDCARD_LINE));
+
+		ArgumentCaptor<List<MarketOrder>> captor = batchCaptor();
+		Mockito.verify(orderPlacer, Mockito.timeout(TIMEOUT_IN_MS)).placeOrders(captor.capture(), Mockito.any());
+		assertEquals(1, captor.getValue().size());
+		assertEquals("ACCOUNT", captor.getValue().get(0).getAccount());
+	}
+
+	@Test
+	void ingest_whenGainIsNotMet_shouldNotAddOrder() {
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(false);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(gainChecker, Mockito.timeout(TIMEOUT_IN_MS)).checkGain(Mockito.any());
+		Mockito.verify(orderPlacer, Mockito.after(100).never()).placeOrders(Mockito.anyList(), Mockito.any());
+	}
+
+	@Test
+	void ingest_whenGainIsNotMet_shouldForgetAlert() {
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(false);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(alertDeduplicator, Mockito.timeout(TIMEOUT_IN_MS)).forget(Mockito.any(MarketOrder.class));
+	}
+
+	@Test
+	void ingest_whenRateCouldNotBeFetched_shouldForgetAlert() throws Exception {
+		Mockito.doThrow(new ExchangeException("Failed")).when(orderBuilder)
+				.calculateQuantityAndRate(Mockito.any(MarketOrder.class), Mockito.eq(BUY_LIMIT));
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(alertDeduplicator, Mockito.timeout(TIMEOUT_IN_MS)).forget(Mockito.any(MarketOrder.class));
+	}
+
+	@Test
+	void constructor_shouldForgetAlertsOfOrdersThatWereNotPlaced() {
+		Mockito.verify(orderPlacer).addFailureListener(Mockito.any());
+	}
+
+	@Test
+	void ingest_whenRateCouldNotBeFetched_shouldNotCheckGain() throws Exception {
+		Mockito.doThrow(new ExchangeException("Failed")).when(orderBuilder)
+				.calculateQuantityAndRate(Mockito.any(MarketOrder.class), Mockito.eq(BUY_LIMIT));
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(orderBuilder, Mockito.timeout(TIMEOUT_IN_MS)).calculateQuantityAndRate(Mockito.any(),
+				Mockito.eq(BUY_LIMIT));
+		Mockito.verify(gainChecker, Mockito.after(100).never()).checkGain(Mockito.any());
+	}
+
+	@Test
+	void ingest_whenRateNotSet_shouldNotAddOrder() throws Exception {
+		enrichWith(0, 1.0);
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(alertDeduplicator, Mockito.timeout(TIMEOUT_IN_MS)).forget(Mockito.any(MarketOrder.class));
+		Mockito.verify(orderPlacer, Mockito.after(100).never()).placeOrders(Mockito.anyList(), Mockito.any());
+	}
+
+	@Test
+	void ingest_whenQuantityNotSet_shouldNotAddOrder() throws Exception {
+		enrichWith(1.0, 0);
+		Mockito.when(gainChecker.checkGain(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(alertDeduplicator, Mockito.timeout(TIMEOUT_IN_MS)).forget(Mockito.any(MarketOrder.class));
+		Mockito.verify(orderPlacer, Mockito.after(100).never()).placeOrders(Mockito.anyList(), Mockito.any());
+	}
+
+	@Test
+	void ingest_whenOrderLineIsInvalid_shouldNotEnrich() throws Exception {
+		pipeline.ingest(Collections.singletonList(INVALID_LINE));
+
+		Mockito.verify(accountService, Mockito.after(100).never()).getMainCurrency(Mockito.any(), Mockito.any());
+		assertEquals(1, pipeline.getStages().get(0).getProcessed());
+	}
+
+	@Test
+	void ingest_whenAlertIsRepeated_shouldNotEnrich() throws Exception {
+		Mockito.when(alertDeduplicator.isDuplicate(Mockito.any())).thenReturn(true);
+
+		pipeline.ingest(Collections.singletonList(BUY_LINE));
+
+		Mockito.verify(alertDeduplicator, Mockito.timeout(TIMEOUT_IN_MS)).isDuplicate(Mockito.any());
+		Mockito.verify(accountService, Mockito.after(100).never()).getMainCurrency(Mockito.any(), Mockito.any());
+	}
+
+	@SuppressWarnings("unchecked")
+	private ArgumentCaptor<List<MarketOrder>> batchCaptor() {
+		return ArgumentCaptor.forClass(List.class);
+	}
+
+	/**
+	 * Lets the order builder set the provided rate and quantity.<br>
+	 */
+	private void enrichWith(double rate, double quantity) throws Exception {
+		Mockito.doAnswer(invocation -> {
+			MarketOrder order = invocation.getArgument(0);
+			order.setRate(rate);
+			order.setQuantity(quantity);
+			return null;
+		}).when(orderBuilder).calculateQuantityAndRate(Mockito.any(MarketOrder.class), Mockito.eq(BUY_LIMIT));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		pipeline.close();
+	}
+
+}
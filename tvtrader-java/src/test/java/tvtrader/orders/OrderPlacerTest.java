@@ -11,7 +11,15 @@ import org.mockito.MockitoAnnotations;
 import tvtrader.model.MarketOrder;
 import tvtrader.services.ExchangeService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OrderPlacerTest {
@@ -19,6 +27,7 @@ class OrderPlacerTest {
 	@InjectMocks private OrderPlacer orderPlacer;
 	
 	private TestStoplossListener listener;
+	private List<MarketOrder> failed;
 	
 	@BeforeAll
 	synchronized static void startup() {
@@ -31,6 +40,9 @@ class OrderPlacerTest {
 		
 		listener = new TestStoplossListener();
 		orderPlacer.addChangeListener(listener);
+
+		failed = new ArrayList<>();
+		orderPlacer.addFailureListener(failed::add);
 	}
 
 	@Test
@@ -39,7 +51,8 @@ class OrderPlacerTest {
 		
 		orderPlacer.addOrder(order);
 		
-		Mockito.when(exchangeService.placeOrder(order)).thenReturn(true);
+		Mockito.when(exchangeService.placeOrdersAsync(Collections.singletonList(order)))
+				.thenReturn(completedFuture(Collections.singletonList(true)));
 		
 		orderPlacer.placeOrders();
 		
@@ -52,11 +65,105 @@ class OrderPlacerTest {
 		
 		orderPlacer.addOrder(order);
 		
-		Mockito.when(exchangeService.placeOrder(order)).thenReturn(false);
+		Mockito.when(exchangeService.placeOrdersAsync(Collections.singletonList(order)))
+				.thenReturn(completedFuture(Collections.singletonList(false)));
 		
 		orderPlacer.placeOrders();
 
-	assertFalse(listener.isNotified());
-}
+		assertFalse(listener.isNotified());
+	}
+	
+	@Test
+	void placeOrders_whenOrdersForMultipleAccounts_shouldPlaceAllAndNotifyForPlacedOrders() {
+		MarketOrder first = new MarketOrder();
+		first.setAccount("FIRST");
+		MarketOrder second = new MarketOrder();
+		second.setAccount("SECOND");
+		
+		orderPlacer.addOrder(first);
+		orderPlacer.addOrder(second);
+		
+		Mockito.when(exchangeService.placeOrdersAsync(Collections.singletonList(first)))
+				.thenThrow(new IllegalStateException("Failed"));
+		Mockito.when(exchangeService.placeOrdersAsync(Collections.singletonList(second)))
+				.thenReturn(completedFuture(Collections.singletonList(true)));
+		
+		orderPlacer.placeOrders();
+		
+		Mockito.verify(exchangeService).placeOrdersAsync(Collections.singletonList(second));
+		assertTrue(listener.isNotified());
+	}
+
+	@Test
+	void placeOrders_whenAccountHasMultipleOrders_shouldPlaceThemAsOneBatch() {
+		MarketOrder first = new MarketOrder();
+		first.setAltCoin("ETH");
+		MarketOrder second = new MarketOrder();
+		second.setAltCoin("NEO");
+
+		orderPlacer.addOrder(first);
+		orderPlacer.addOrder(second);
+
+		Mockito.when(exchangeService.placeOrdersAsync(Arrays.asList(first, second)))
+				.thenReturn(completedFuture(Arrays.asList(false, true)));
+
+		orderPlacer.placeOrders();
+
+		Mockito.verify(exchangeService).placeOrdersAsync(Arrays.asList(first, second));
+		assertTrue(listener.isNotified());
+	}
+
+	@Test
+	void placeOrders_whenOrderNotPlaced_shouldNotifyFailureListeners() {
+		MarketOrder first = new MarketOrder();
+		first.setAltCoin("ETH");
+		MarketOrder second = new MarketOrder();
+		second.setAltCoin("NEO");
+
+		orderPlacer.addOrder(first);
+		orderPlacer.addOrder(second);
+
+		Mockito.when(exchangeService.placeOrdersAsync(Arrays.asList(first, second)))
+				.thenReturn(completedFuture(Arrays.asList(false, true)));
+
+		orderPlacer.placeOrders();
+
+		assertEquals(1, failed.size());
+		assertSame(first, failed.get(0));
+	}
+
+	@Test
+	void placeOrders_whenBatchIsProvided_shouldNotifyListenersOnProvidedExecutor() {
+		MarketOrder order = new MarketOrder();
+		List<Runnable> notifications = new ArrayList<>();
+
+		Mockito.when(exchangeService.placeOrdersAsync(Collections.singletonList(order)))
+				.thenReturn(completedFuture(Collections.singletonList(true)));
+
+		orderPlacer.placeOrders(Collections.singletonList(order), notifications::add);
+
+		Mockito.verify(exchangeService).placeOrdersAsync(Collections.singletonList(order));
+		assertFalse(listener.isNotified());
+		notifications.forEach(Runnable::run);
+		assertTrue(listener.isNotified());
+	}
+
+	@Test
+	void placeOrders_whenBatchFails_shouldNotifyFailureListenersForEveryOrder() {
+		MarketOrder first = new MarketOrder();
+		first.setAltCoin("ETH");
+		MarketOrder second = new MarketOrder();
+		second.setAltCoin("NEO");
+
+		orderPlacer.addOrder(first);
+		orderPlacer.addOrder(second);
+
+		Mockito.when(exchangeService.placeOrdersAsync(Arrays.asList(first, second)))
+				.thenThrow(new IllegalStateException("Failed"));
+
+		orderPlacer.placeOrders();
+
+		assertEquals(Arrays.asList(first, second), failed);
+	}
 
 }
@@ -0,0 +1,77 @@
+package tvtrader.orders;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+	private static final int CAPACITY = 2;
+	private static final long TIMEOUT_IN_MS = 2_000;
+
+	private List<String> handled = new CopyOnWriteArrayList<>();
+	private PipelineStage<String> stage;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@Test
+	void offer_whenStarted_shouldHandleItems() throws Exception {
+		CountDownLatch latch = new CountDownLatch(2);
+		stage = new PipelineStage<>("test", CAPACITY, OverloadPolicy.DROP_NEWEST, item -> {
+			handled.add(item);
+			latch.countDown();
+		});
+		stage.start();
+
+		stage.offer("first");
+		stage.offer("second");
+
+		assertTrue(latch.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+		assertEquals("first", handled.get(0));
+		assertEquals("second", handled.get(1));
+	}
+
+	@Test
+	void offer_whenFullAndDropNewest_shouldRejectItem() {
+		stage = new PipelineStage<>("test", CAPACITY, OverloadPolicy.DROP_NEWEST, handled::add);
+
+		assertTrue(stage.offer("first"));
+		assertTrue(stage.offer("second"));
+		assertFalse(stage.offer("third"));
+
+		assertEquals(CAPACITY, stage.getQueueDepth());
+		assertEquals(1, stage.getDropped());
+	}
+
+	@Test
+	void offer_whenHandlerThrows_shouldContinueWithNextItem() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		stage = new PipelineStage<>("test", CAPACITY, OverloadPolicy.BLOCK, item -> {
+			if (item.equals("first")) {
+				throw new IllegalStateException("Failed");
+			}
+			latch.countDown();
+		});
+		stage.start();
+
+		stage.offer("first");
+		stage.offer("second");
+
+		assertTrue(latch.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		stage.stop();
+	}
+
+}
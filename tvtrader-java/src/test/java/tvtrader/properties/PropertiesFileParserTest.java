@@ -13,6 +13,7 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 import tvtrader.exceptionlogger.GameBreakerException;
 import tvtrader.model.Account;
+import tvtrader.model.HttpClientConfiguration;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MailConfiguration;
 import tvtrader.stubs.MailConfigurationStub;
@@ -80,6 +81,45 @@ class PropertiesFileParserTest {
 				MailConfigurationStub.getMissingUsernameStub());
 	}
 	
+	@Test
+	void parseAdditionalMailConfigurations_whenMailboxesAreProvided_shouldCreateMailConfigs() throws Exception {
+		Properties config = new Properties();
+		config.put("mailboxes", "first second");
+		for (String name : new String[] { "first", "second" }) {
+			config.put("mailbox." + name + ".host", name + ".host");
+			config.put("mailbox." + name + ".inbox", "INBOX");
+			config.put("mailbox." + name + ".password", "password");
+			config.put("mailbox." + name + ".port", "993");
+			config.put("mailbox." + name + ".username", "username");
+		}
+
+		configParser.load(config);
+
+		List<MailConfiguration> mailConfigs = configParser.parseAdditionalMailConfigurations();
+
+		assertEquals(2, mailConfigs.size());
+		assertEquals("first", mailConfigs.get(0).getName());
+		assertEquals("second.host", mailConfigs.get(1).getHost());
+	}
+
+	@Test
+	void parseAdditionalMailConfigurations_whenMailboxIsIncomplete_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("mailboxes", "first");
+		config.put("mailbox.first.host", "host");
+
+		configParser.load(config);
+
+		assertThrows(GameBreakerException.class, () -> configParser.parseAdditionalMailConfigurations());
+	}
+
+	@Test
+	void parseAdditionalMailConfigurations_whenNoMailboxesAreProvided_shouldReturnEmptyList() throws Exception {
+		configParser.load(new Properties());
+
+		assertTrue(configParser.parseAdditionalMailConfigurations().isEmpty());
+	}
+	
 	@Test
 	void getExpectedSender_whenConfigNotLoaded_shouldThrowGameBreakerException() throws Exception {
 		assertThrows(GameBreakerException.class, () -> configParser.getExpectedSender());
@@ -319,4 +359,144 @@ class PropertiesFileParserTest {
 		
 		assertNotNull(accounts.get(exchange));
 	}
+	
+	@Test
+	void getSmtpAddress_whenNotProvided_shouldReturnNull() throws Exception {
+		configParser.load(new Properties());
+		
+		assertNull(configParser.getSmtpAddress());
+	}
+	
+	@Test
+	void getSmtpAddress_whenProvided_shouldReturnTrimmedAddress() throws Exception {
+		Properties config = new Properties();
+		config.put("smtp_address", " 10.0.0.2 ");
+		
+		configParser.load(config);
+		
+		assertEquals("10.0.0.2", configParser.getSmtpAddress());
+	}
+	
+	@Test
+	void getDedupWindow_whenNotProvided_shouldReturnDefault() throws Exception {
+		configParser.load(new Properties());
+		
+		assertEquals(0, configParser.getDedupWindow());
+	}
+	
+	@Test
+	void getDedupWindow_whenNotANumber_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("dedup_window", "ABC");
+		
+		configParser.load(config);
+		
+		assertThrows(GameBreakerException.class, () -> configParser.getDedupWindow());
+	}
+	
+	@Test
+	void getDedupWindow_whenNegative_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("dedup_window", "-1");
+		
+		configParser.load(config);
+		
+		assertThrows(GameBreakerException.class, () -> configParser.getDedupWindow());
+	}
+	
+	@Test
+	void getDedupWindow_whenSurroundedByWhitespace_shouldReturnWindow() throws Exception {
+		Properties config = new Properties();
+		config.put("dedup_window", " 60 ");
+		
+		configParser.load(config);
+		
+		assertEquals(60, configParser.getDedupWindow());
+	}
+	
+	@Test
+	void getTickerFilter_whenNotProvided_shouldReturnFalse() throws Exception {
+		configParser.load(new Properties());
+		
+		assertFalse(configParser.getTickerFilter());
+	}
+	
+	@Test
+	void parseHttpClientConfiguration_whenNotProvided_shouldReturnDefaults() throws Exception {
+		configParser.load(new Properties());
+		
+		assertEquals(new HttpClientConfiguration(), configParser.parseHttpClientConfiguration());
+	}
+	
+	@Test
+	void parseHttpClientConfiguration_whenProvided_shouldReturnSettings() throws Exception {
+		Properties config = new Properties();
+		config.put("http_connect_timeout", "2000");
+		config.put("http_keep_alive", "600");
+		config.put("http_max_requests_per_host", "4");
+		config.put("http_2", "false");
+		config.put("http_warm_up", "false");
+		config.put("rate_limit_per_exchange", "120");
+		config.put("rate_limit_per_key", "0");
+		config.put("circuit_failure_rate", "25");
+		config.put("hedge_reads", "true");
+		config.put("retry_attempts", "5");
+		config.put("retry_deadline", "0");
+		
+		configParser.load(config);
+		HttpClientConfiguration actual = configParser.parseHttpClientConfiguration();
+		
+		assertEquals(2000, actual.getConnectTimeout());
+		assertEquals(600, actual.getKeepAlive());
+		assertEquals(4, actual.getMaxRequestsPerHost());
+		assertFalse(actual.isHttp2());
+		assertFalse(actual.isWarmUp());
+		assertEquals(120, actual.getRateLimitPerExchange());
+		assertEquals(0, actual.getRateLimitPerKey());
+		assertEquals(25, actual.getCircuitFailureRate());
+		assertTrue(actual.isHedgeReads());
+		assertEquals(5, actual.getRetryAttempts());
+		assertEquals(0, actual.getRetryDeadline());
+	}
+	
+	@Test
+	void parseHttpClientConfiguration_whenLimitIsZero_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("http_max_requests", "0");
+		
+		configParser.load(config);
+		
+		assertThrows(GameBreakerException.class, () -> configParser.parseHttpClientConfiguration());
+	}
+	
+	@Test
+	void parseHttpClientConfiguration_whenFailureRateIsOutOfRange_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("circuit_failure_rate", "101");
+		
+		configParser.load(config);
+		
+		assertThrows(GameBreakerException.class, () -> configParser.parseHttpClientConfiguration());
+	}
+	
+	@Test
+	void parseAccountGroups_whenGroupsAreProvided_shouldReturnAccountsPerGroup() throws Exception {
+		Properties config = new Properties();
+		config.put("account_groups", "main");
+		config.put("account_group.main", "first second");
+		
+		configParser.load(config);
+		
+		assertEquals(Arrays.asList("first", "second"), configParser.parseAccountGroups().get("main"));
+	}
+	
+	@Test
+	void parseAccountGroups_whenGroupHasNoAccounts_shouldThrowGameBreakerException() {
+		Properties config = new Properties();
+		config.put("account_groups", "main");
+		
+		configParser.load(config);
+		
+		assertThrows(GameBreakerException.class, () -> configParser.parseAccountGroups());
+	}
 }
@@ -0,0 +1,138 @@
+package tvtrader.request;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+	private static final String ENDPOINT = "https://bittrex.com/api/v1.1/public/getmarketsummaries";
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+	private AtomicLong clock;
+	private CircuitBreaker breaker;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		clock = new AtomicLong();
+		breaker = new CircuitBreaker(clock::get);
+		breaker.configure(50, 1_000, 30_000);
+	}
+
+	@Test
+	void tryAcquire_whenCallsSucceed_shouldStayClosed() {
+		succeed(20);
+
+		assertTrue(breaker.tryAcquire(ENDPOINT));
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getStates().get(ENDPOINT));
+	}
+
+	@Test
+	void tryAcquire_whenTooFewCallsFailed_shouldStayClosed() {
+		fail(9);
+
+		assertTrue(breaker.tryAcquire(ENDPOINT));
+	}
+
+	@Test
+	void tryAcquire_whenFailureRateIsReached_shouldOpenCircuit() {
+		succeed(5);
+		fail(5);
+
+		assertFalse(breaker.tryAcquire(ENDPOINT));
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getStates().get(ENDPOINT));
+	}
+
+	@Test
+	void tryAcquire_whenCallsAreSlow_shouldOpenCircuit() {
+		for (int i = 0; i < 10; i++) {
+			breaker.onSuccess(ENDPOINT, SLOW);
+		}
+
+		assertFalse(breaker.tryAcquire(ENDPOINT));
+	}
+
+	@Test
+	void tryAcquire_whenOpenTimePassed_shouldLetOneProbeThrough() {
+		fail(10);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+		assertTrue(breaker.tryAcquire(ENDPOINT));
+		assertFalse(breaker.tryAcquire(ENDPOINT));
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getStates().get(ENDPOINT));
+	}
+
+	@Test
+	void onSuccess_whenProbeSucceeds_shouldCloseCircuit() {
+		fail(10);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		breaker.tryAcquire(ENDPOINT);
+
+		breaker.onSuccess(ENDPOINT, FAST);
+
+		assertTrue(breaker.tryAcquire(ENDPOINT));
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getStates().get(ENDPOINT));
+	}
+
+	@Test
+	void onFailure_whenProbeFails_shouldKeepCircuitOpen() {
+		fail(10);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		breaker.tryAcquire(ENDPOINT);
+
+		breaker.onFailure(ENDPOINT);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(29));
+
+		assertFalse(breaker.tryAcquire(ENDPOINT));
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getStates().get(ENDPOINT));
+	}
+
+	@Test
+	void tryAcquire_whenDisabled_shouldNeverOpen() {
+		breaker.configure(0, 1_000, 30_000);
+		fail(20);
+
+		assertTrue(breaker.tryAcquire(ENDPOINT));
+	}
+
+	@Test
+	void getP95Latency_whenTooFewCalls_shouldReturnMinusOne() {
+		succeed(19);
+
+		assertEquals(-1, breaker.getP95Latency(ENDPOINT));
+	}
+
+	@Test
+	void getP95Latency_whenEnoughCalls_shouldReturn95thPercentile() {
+		for (int i = 1; i <= 100; i++) {
+			breaker.onSuccess(ENDPOINT, i);
+		}
+
+		assertEquals(95, breaker.getP95Latency(ENDPOINT));
+	}
+
+	private void succeed(int calls) {
+		for (int i = 0; i < calls; i++) {
+			breaker.onSuccess(ENDPOINT, FAST);
+		}
+	}
+
+	private void fail(int calls) {
+		for (int i = 0; i < calls; i++) {
+			breaker.onFailure(ENDPOINT);
+		}
+	}
+
+}
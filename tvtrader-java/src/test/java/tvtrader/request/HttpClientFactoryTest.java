@@ -0,0 +1,62 @@
+package tvtrader.request;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tvtrader.model.HttpClientConfiguration;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientFactoryTest {
+	private HttpClientFactory factory;
+	private HttpClientConfiguration configuration;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		factory = new HttpClientFactory();
+		configuration = new HttpClientConfiguration();
+	}
+
+	@Test
+	void create_whenConfigured_shouldApplyTimeoutsAndLimits() {
+		configuration.setConnectTimeout(1_000);
+		configuration.setReadTimeout(2_000);
+		configuration.setWriteTimeout(3_000);
+		configuration.setMaxRequests(10);
+		configuration.setMaxRequestsPerHost(2);
+
+		OkHttpClient client = factory.create(configuration);
+
+		assertEquals(1_000, client.connectTimeoutMillis());
+		assertEquals(2_000, client.readTimeoutMillis());
+		assertEquals(3_000, client.writeTimeoutMillis());
+		assertEquals(10, client.dispatcher().getMaxRequests());
+		assertEquals(2, client.dispatcher().getMaxRequestsPerHost());
+	}
+
+	@Test
+	void create_whenHttp2IsEnabled_shouldPreferHttp2() {
+		OkHttpClient client = factory.create(configuration);
+
+		assertTrue(client.protocols().contains(Protocol.HTTP_2));
+	}
+
+	@Test
+	void create_whenHttp2IsDisabled_shouldOnlyUseHttp1() {
+		configuration.setHttp2(false);
+
+		OkHttpClient client = factory.create(configuration);
+
+		assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+	}
+}
@@ -0,0 +1,188 @@
+package tvtrader.request;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.exchange.TransientExchangeException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+	private static final String EXCHANGE = "BITTREX";
+	private static final String KEY = "key";
+
+	private AtomicLong clock;
+	private RateLimiter limiter;
+
+	@Mock
+	private ScheduledExecutorService scheduler;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		MockitoAnnotations.initMocks(this);
+
+		clock = new AtomicLong();
+		limiter = new RateLimiter(clock::get, scheduler);
+	}
+
+	@Test
+	void acquire_whenBudgetIsAvailable_shouldCompleteImmediately() {
+		limiter.configure(60, 60);
+
+		assertTrue(limiter.acquire(RequestBudget.refresh(EXCHANGE, KEY)).isDone());
+		assertEquals(0, limiter.getWaiting());
+	}
+
+	@Test
+	void acquire_whenBucketIsEmpty_shouldWaitForRefill() {
+		limiter.configure(60, 0);
+		acquireOrders(10, KEY);
+
+		CompletableFuture<Void> throttled = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+
+		assertFalse(throttled.isDone());
+		Mockito.verify(scheduler).schedule(ArgumentMatchers.any(Runnable.class), ArgumentMatchers.anyLong(),
+				ArgumentMatchers.eq(TimeUnit.NANOSECONDS));
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		limiter.drain();
+
+		assertTrue(throttled.isDone());
+	}
+
+	@Test
+	void acquire_whenRefreshesUseTheBudget_shouldLeaveReserveForOrders() {
+		limiter.configure(60, 0);
+
+		for (int i = 0; i < 8; i++) {
+			assertTrue(limiter.acquire(RequestBudget.refresh(EXCHANGE)).isDone());
+		}
+
+		CompletableFuture<Void> refresh = limiter.acquire(RequestBudget.refresh(EXCHANGE));
+		CompletableFuture<Void> order = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+
+		assertFalse(refresh.isDone());
+		assertTrue(order.isDone());
+	}
+
+	@Test
+	void acquire_whenOrderArrivesAfterWaitingRefresh_shouldGoFirst() {
+		limiter.configure(60, 0);
+		acquireOrders(10, KEY);
+
+		CompletableFuture<Void> refresh = limiter.acquire(RequestBudget.refresh(EXCHANGE));
+		CompletableFuture<Void> order = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		limiter.drain();
+
+		assertTrue(order.isDone());
+		assertFalse(refresh.isDone());
+		assertEquals(1, limiter.getWaiting());
+	}
+
+	@Test
+	void acquire_whenKeyIsOutOfBudget_shouldNotThrottleOtherKeys() {
+		limiter.configure(0, 60);
+		acquireOrders(10, KEY);
+
+		CompletableFuture<Void> sameKey = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+		CompletableFuture<Void> otherKey = limiter.acquire(RequestBudget.order(EXCHANGE, "other"));
+
+		assertFalse(sameKey.isDone());
+		assertTrue(otherKey.isDone());
+	}
+
+	@Test
+	void acquire_whenLimitsAreDisabled_shouldNeverWait() {
+		limiter.configure(0, 0);
+
+		assertTrue(acquireOrders(100, KEY).isDone());
+		assertTrue(limiter.getRemainingBudget().isEmpty());
+		Mockito.verifyZeroInteractions(scheduler);
+	}
+
+	@Test
+	void acquire_whenNotConfigured_shouldNotLimit() {
+		assertTrue(acquireOrders(100, KEY).isDone());
+		assertTrue(limiter.getRemainingBudget().isEmpty());
+	}
+
+	@Test
+	void acquire_whenWaiterIsCancelled_shouldLeaveTheQueue() {
+		limiter.configure(60, 0);
+		acquireOrders(10, KEY);
+
+		CompletableFuture<Void> cancelled = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+		CompletableFuture<Void> next = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+		cancelled.cancel(false);
+
+		assertEquals(1, limiter.getWaiting());
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		limiter.drain();
+
+		assertTrue(next.isDone());
+		assertEquals(0, limiter.getWaiting());
+	}
+
+	@Test
+	void acquire_whenTooManyRequestsAreWaiting_shouldRejectTheNewestRefresh() {
+		limiter.configure(60, 0);
+		acquireOrders(10, KEY);
+
+		CompletableFuture<Void> refresh = CompletableFuture.completedFuture(null);
+		for (int i = 0; i < 1_000; i++) {
+			refresh = limiter.acquire(RequestBudget.refresh(EXCHANGE));
+		}
+		CompletableFuture<Void> order = limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+
+		assertFalse(order.isDone());
+		ExecutionException exception = assertThrows(ExecutionException.class, refresh::get);
+		assertTrue(exception.getCause() instanceof TransientExchangeException);
+		assertEquals(1_000, limiter.getWaiting());
+	}
+
+	@Test
+	void getRemainingBudget_shouldReturnTokensPerExchangeAndKey() {
+		limiter.configure(60, 30);
+
+		limiter.acquire(RequestBudget.order(EXCHANGE, KEY));
+		Map<String, Double> remaining = limiter.getRemainingBudget();
+
+		assertEquals(2, remaining.size());
+		assertEquals(9.0, remaining.get(EXCHANGE), 0.001);
+		assertEquals(4.0, remaining.get(EXCHANGE + "_" + KEY), 0.001);
+	}
+
+	private CompletableFuture<Void> acquireOrders(int orders, String key) {
+		CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+		for (int i = 0; i < orders; i++) {
+			last = limiter.acquire(RequestBudget.order(EXCHANGE, key));
+			assertTrue(last.isDone());
+		}
+
+		return last;
+	}
+
+}
@@ -1,20 +1,24 @@
 package tvtrader.request;
 
-import com.squareup.okhttp.HttpUrl;
-import com.squareup.okhttp.mockwebserver.MockResponse;
-import com.squareup.okhttp.mockwebserver.MockWebServer;
-import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import okhttp3.HttpUrl;
 import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RequestHandlerTest {
 	private RequestHandler handler;
@@ -59,4 +63,52 @@ class RequestHandlerTest {
 		
 		server.shutdown();
 	}
+
+	@Test
+	void sendRequestAsync_whenProvidedWithUrl_shouldCompleteWithResponse() throws Exception {
+		String expected = "Received call";
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody(expected));
+		server.start();
+		LogManager.getLogManager().reset();
+
+		Url url = new Url(server.url("/handlerTest").toString());
+		url.addHeader("foo", "bar");
+
+		Response actual = handler.sendRequestAsync(url).get(5, TimeUnit.SECONDS);
+
+		assertEquals(expected, actual.body().string());
+		assertEquals("bar", server.takeRequest().getHeader("foo"));
+
+		server.shutdown();
+	}
+
+	@Test
+	void sendRequestAsync_whenEndpointIsNonExisting_shouldFailWithIOException() {
+		Url corruptUrl = new Url("http://invalid.123456");
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> handler.sendRequestAsync(corruptUrl).get(30, TimeUnit.SECONDS));
+
+		assertTrue(exception.getCause() instanceof IOException);
+	}
+
+	@Test
+	void warmUp_whenHostIsReachable_shouldSendHeadRequest() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse());
+		server.start();
+		LogManager.getLogManager().reset();
+
+		handler.warmUp(Collections.singletonList(server.url("/").toString())).get(5, TimeUnit.SECONDS);
+
+		assertEquals("HEAD", server.takeRequest().getMethod());
+
+		server.shutdown();
+	}
+
+	@Test
+	void warmUp_whenHostIsUnreachable_shouldNotFail() throws Exception {
+		handler.warmUp(Collections.singletonList("http://invalid.123456")).get(30, TimeUnit.SECONDS);
+	}
 }
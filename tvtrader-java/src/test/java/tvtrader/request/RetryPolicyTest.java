@@ -0,0 +1,205 @@
+package tvtrader.request;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import tvtrader.exchange.ExchangeException;
+import tvtrader.exchange.TransientExchangeException;
+import tvtrader.utils.Futures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+	private AtomicLong clock;
+	private List<Long> backoffs;
+	private List<Runnable> timeouts;
+	private RetryPolicy policy;
+
+	@Mock
+	private ScheduledExecutorService scheduler;
+	@Mock
+	private ScheduledFuture<Object> scheduled;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		MockitoAnnotations.initMocks(this);
+
+		clock = new AtomicLong();
+		backoffs = new ArrayList<>();
+		timeouts = new ArrayList<>();
+
+		// Retries run right away after moving the clock, deadlines are kept.
+		Mockito.doAnswer(invocation -> {
+			Runnable task = invocation.getArgument(0);
+			long delay = invocation.getArgument(1);
+
+			if (delay == TimeUnit.SECONDS.toNanos(1)) {
+				timeouts.add(task);
+			} else {
+				backoffs.add(delay);
+				clock.addAndGet(delay);
+				task.run();
+			}
+
+			return scheduled;
+		}).when(scheduler).schedule(ArgumentMatchers.any(Runnable.class), ArgumentMatchers.anyLong(),
+				ArgumentMatchers.eq(TimeUnit.NANOSECONDS));
+
+		policy = new RetryPolicy(clock::get, scheduler, () -> 1.0);
+		policy.configure(3, 1_000);
+	}
+
+	@Test
+	void retry_whenCallSucceeds_shouldNotRetry() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = policy.retry(() -> {
+			calls.incrementAndGet();
+			return CompletableFuture.completedFuture("result");
+		}).get();
+
+		assertEquals("result", result);
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void retry_whenCallFailsTransiently_shouldRetryWithBackoff() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = policy.retry(() -> calls.incrementAndGet() < 3
+				? Futures.failed(new TransientExchangeException("Failed"))
+				: CompletableFuture.completedFuture("result")).get();
+
+		assertEquals("result", result);
+		assertEquals(3, calls.get());
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(250), (long) backoffs.get(0));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(500), (long) backoffs.get(1));
+	}
+
+	@Test
+	void retry_whenAttemptsRunOut_shouldFailWithLastException() {
+		AtomicInteger calls = new AtomicInteger();
+
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> policy.retry(() -> {
+			calls.incrementAndGet();
+			return Futures.failed(new TransientExchangeException("Failed"));
+		}).get());
+
+		assertTrue(exception.getCause() instanceof TransientExchangeException);
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	void retry_whenFailureIsNotTransient_shouldNotRetry() {
+		AtomicInteger calls = new AtomicInteger();
+
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> policy.retry(() -> {
+			calls.incrementAndGet();
+			return Futures.failed(new ExchangeException("Invalid api key"));
+		}).get());
+
+		assertFalse(exception.getCause() instanceof TransientExchangeException);
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void retry_whenBackoffPassesDeadline_shouldNotRetry() {
+		AtomicInteger calls = new AtomicInteger();
+		policy.configure(10, 1_000);
+
+		assertThrows(ExecutionException.class, () -> policy.retry(() -> {
+			calls.incrementAndGet();
+			return Futures.failed(new TransientExchangeException("Failed"));
+		}).get());
+
+		// 250 + 500 ms of backoff fit within the second, another 1000 ms doesn't.
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	void retry_whenDeadlinePasses_shouldFailWhileAttemptIsRunning() {
+		CompletableFuture<String> result = policy.retry(CompletableFuture::new);
+
+		assertFalse(result.isDone());
+		timeouts.forEach(Runnable::run);
+
+		ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+		assertTrue(exception.getCause() instanceof TransientExchangeException);
+	}
+
+	@Test
+	void retry_whenDeadlinePasses_shouldCancelRunningAttempt() {
+		CompletableFuture<String> attempt = new CompletableFuture<>();
+
+		policy.retry(() -> attempt);
+		timeouts.forEach(Runnable::run);
+
+		assertTrue(attempt.isCancelled());
+	}
+
+	@Test
+	void retry_whenCancelledWithoutDeadline_shouldCancelRunningAttempt() {
+		policy.configure(3, 0);
+		CompletableFuture<String> attempt = new CompletableFuture<>();
+
+		CompletableFuture<String> result = policy.retry(() -> attempt);
+		result.cancel(false);
+
+		assertTrue(attempt.isCancelled());
+	}
+
+	@Test
+	void retry_whenCancelledWithoutDeadline_shouldNotRetry() {
+		policy.configure(3, 0);
+		AtomicInteger calls = new AtomicInteger();
+		CompletableFuture<String> attempt = new CompletableFuture<>();
+
+		CompletableFuture<String> result = policy.retry(() -> {
+			calls.incrementAndGet();
+			return attempt;
+		});
+		result.cancel(false);
+		attempt.completeExceptionally(new TransientExchangeException("Failed"));
+
+		assertEquals(1, calls.get());
+		assertTrue(backoffs.isEmpty());
+	}
+
+	@Test
+	void retry_whenAttemptFailsAfterDeadline_shouldNotRetry() {
+		AtomicInteger calls = new AtomicInteger();
+
+		CompletableFuture<String> result = policy.retry(() -> {
+			calls.incrementAndGet();
+			timeouts.forEach(Runnable::run);
+			return Futures.failed(new TransientExchangeException("Failed"));
+		});
+
+		assertThrows(ExecutionException.class, result::get);
+		assertEquals(1, calls.get());
+		assertTrue(backoffs.isEmpty());
+	}
+
+}
@@ -13,6 +13,8 @@ import tvtrader.exchange.apidata.Order;
 import tvtrader.model.Account;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
+import tvtrader.utils.Futures;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -142,6 +144,47 @@ class ExchangeServiceTest {
 		assertFalse(exchangeService.placeOrder(order));
 	}
 
+	@Test
+	void placeOrderAsync_whenExchangeExceptionIsThrown_shouldCompleteWithFalse() throws Exception {
+		String exchange = "exchange";
+		String accountName = "account";
+
+		MarketOrder order = new MarketOrder();
+		order.setAccount(accountName);
+		order.setExchange(exchange);
+		ApiCredentials credentials = new ApiCredentials("key", "secret");
+		Account account = new Account(exchange, accountName, "BTC", 0, 0, 0, 0, credentials);
+
+		Mockito.when(accountService.getAccount(exchange, accountName)).thenReturn(account);
+		Mockito.when(orderService.placeOrderAsync(order, credentials))
+				.thenReturn(Futures.failed(new ExchangeException("Failed")));
+
+		assertFalse(exchangeService.placeOrderAsync(order).join());
+	}
+
+	@Test
+	void placeOrdersAsync_whenExchangeExceptionIsThrown_shouldCompleteWithFalseForEveryOrder() throws Exception {
+		String exchange = "exchange";
+		String accountName = "account";
+
+		MarketOrder first = new MarketOrder();
+		first.setAccount(accountName);
+		first.setExchange(exchange);
+		MarketOrder second = new MarketOrder();
+		second.setAccount(accountName);
+		second.setExchange(exchange);
+		second.setAltCoin("ETH");
+		List<MarketOrder> orders = Arrays.asList(first, second);
+		ApiCredentials credentials = new ApiCredentials("key", "secret");
+		Account account = new Account(exchange, accountName, "BTC", 0, 0, 0, 0, credentials);
+
+		Mockito.when(accountService.getAccount(exchange, accountName)).thenReturn(account);
+		Mockito.when(orderService.placeOrdersAsync(exchange, orders, credentials))
+				.thenReturn(Futures.failed(new ExchangeException("Failed")));
+
+		assertEquals(Arrays.asList(false, false), exchangeService.placeOrdersAsync(orders).join());
+	}
+
 	@Test
 	void getBoughtPrice_whenCalled_shouldDelegateToTransactionHistoryService() throws Exception {
 		String exchange = "exchange";
@@ -161,7 +204,7 @@ class ExchangeServiceTest {
 		String key = "key";
 		String secret = "secret";
 		
-		Order order = new BittrexFilledOrder();
+		Order order = new BittrexFilledOrder("1", "BTC", "ETH", OrderType.LIMIT_BUY, 1, 0, 1, 1, 0, 0);
 		List<Order> orders = Arrays.asList(order);
 		
 		ApiCredentials credentials = new ApiCredentials(key, secret);
@@ -13,6 +13,7 @@ import tvtrader.exchange.ExchangeFactory;
 import tvtrader.exchange.apidata.Order;
 import tvtrader.model.ApiCredentials;
 import tvtrader.model.MarketOrder;
+import tvtrader.model.OrderType;
 
 import java.util.Arrays;
 import java.util.List;
@@ -69,7 +70,7 @@ class OrderServiceTest {
 
 	@Test
 	void getOpenOrders_whenCalled_shouldFetchExchangeAndGetOpenOrders() throws Exception {
-		Order order = new BittrexFilledOrder();
+		Order order = new BittrexFilledOrder("1", "BTC", "ETH", OrderType.LIMIT_BUY, 1, 0, 1, 1, 0, 0);
 		List<Order> orders = Arrays.asList(order);
 		
 		ApiCredentials credentials = new ApiCredentials("", "");
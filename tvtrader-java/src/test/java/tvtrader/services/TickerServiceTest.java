@@ -15,11 +15,18 @@ import tvtrader.exchange.ExchangeException;
 import tvtrader.exchange.ExchangeFactory;
 import tvtrader.exchange.apidata.Ticker;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @RunWith(MockitoJUnitRunner.StrictStubs.class)
 class TickerServiceTest {
@@ -41,6 +48,8 @@ class TickerServiceTest {
 	private ConfigurationService configurationService;
 	@Mock
 	private ExchangeFactory factory;
+	@Mock
+	private LongSupplier clock;
 
 	@InjectMocks
 	private TickerService service;
@@ -123,4 +132,96 @@ class TickerServiceTest {
 		assertEquals(BID, service.getBid(EXCHANGE, MAINCOIN, ALTCOIN));
 	}
 
+	@Test
+	void getAsk_whenTickerFilterIsEnabled_shouldOnlyFetchWatchedMarkets() throws Exception {
+		Mockito.when(factory.getExchange(EXCHANGE)).thenReturn(exchange);
+		Mockito.when(configurationService.isTickerFilter()).thenReturn(true);
+		Mockito.when(configurationService.getTickerRefreshRate()).thenReturn(ONE_MINUTE);
+
+		Ticker ticker = new BittrexTicker(MARKET, ASK, BID, LAST);
+		Map<String, Ticker> tickers = new HashMap<>();
+		tickers.put(MARKET, ticker);
+		Mockito.when(exchange.getTickers(Mockito.any())).thenAnswer(invocation -> {
+			Predicate<String> filter = invocation.getArgument(0);
+			assertTrue(filter.test(MARKET));
+			assertFalse(filter.test(UNKNOWN));
+			return tickers;
+		});
+
+		Mockito.when(exchange.createMarket(MAINCOIN, ALTCOIN)).thenReturn(MARKET);
+
+		assertEquals(ASK, service.getAsk(EXCHANGE, MAINCOIN, ALTCOIN));
+		Mockito.verify(exchange, Mockito.never()).getTickers();
+	}
+
+	@Test
+	void getAsk_whenTickerFilterIsEnabledAndMarketIsNew_shouldRefreshTickers() throws Exception {
+		Mockito.when(factory.getExchange(EXCHANGE)).thenReturn(exchange);
+		Mockito.when(configurationService.isTickerFilter()).thenReturn(true);
+		Mockito.when(configurationService.getTickerRefreshRate()).thenReturn(ONE_MINUTE);
+
+		Map<String, Ticker> tickers = new HashMap<>();
+		tickers.put(MARKET, new BittrexTicker(MARKET, ASK, BID, LAST));
+		tickers.put(UNKNOWN, new BittrexTicker(UNKNOWN, LAST, BID, ASK));
+		Mockito.when(exchange.getTickers(Mockito.any())).thenReturn(tickers);
+
+		Mockito.when(exchange.createMarket(MAINCOIN, ALTCOIN)).thenReturn(MARKET);
+		Mockito.when(exchange.createMarket(UNKNOWN, UNKNOWN)).thenReturn(UNKNOWN);
+
+		service.getAsk(EXCHANGE, MAINCOIN, ALTCOIN);
+
+		assertEquals(LAST, service.getAsk(EXCHANGE, UNKNOWN, UNKNOWN));
+		Mockito.verify(exchange, Mockito.times(2)).getTickers(Mockito.any());
+	}
+
+	@Test
+	void getAsk_whenWatchedMarketWasNotAskedForWithinExpiry_shouldNoLongerFetchIt() throws Exception {
+		Mockito.when(factory.getExchange(EXCHANGE)).thenReturn(exchange);
+		Mockito.when(configurationService.isTickerFilter()).thenReturn(true);
+		Mockito.when(configurationService.getTickerRefreshRate()).thenReturn(ONE_MINUTE);
+		Mockito.when(exchange.createMarket(MAINCOIN, ALTCOIN)).thenReturn(MARKET);
+		Mockito.when(exchange.createMarket(UNKNOWN, UNKNOWN)).thenReturn(UNKNOWN);
+
+		Map<String, Ticker> tickers = new HashMap<>();
+		tickers.put(MARKET, new BittrexTicker(MARKET, ASK, BID, LAST));
+		tickers.put(UNKNOWN, new BittrexTicker(UNKNOWN, LAST, BID, ASK));
+		List<Predicate<String>> filters = new ArrayList<>();
+		Mockito.when(exchange.getTickers(Mockito.any())).thenAnswer(invocation -> {
+			filters.add(invocation.getArgument(0));
+			return tickers;
+		});
+
+		service.getAsk(EXCHANGE, MAINCOIN, ALTCOIN);
+		Mockito.when(clock.getAsLong()).thenReturn(TimeUnit.HOURS.toMillis(2));
+		service.getAsk(EXCHANGE, UNKNOWN, UNKNOWN);
+
+		assertFalse(filters.get(1).test(MARKET));
+		assertTrue(filters.get(1).test(UNKNOWN));
+	}
+
+	@Test
+	void getAsk_whenTickerFilterIsEnabledAndMarketIsUnknown_shouldNotWatchIt() throws Exception {
+		Mockito.when(factory.getExchange(EXCHANGE)).thenReturn(exchange);
+		Mockito.when(configurationService.isTickerFilter()).thenReturn(true);
+		Mockito.when(configurationService.getTickerRefreshRate()).thenReturn(ONE_MINUTE);
+		Mockito.when(exchange.createMarket(MAINCOIN, ALTCOIN)).thenReturn(MARKET);
+		Mockito.when(exchange.createMarket(UNKNOWN, UNKNOWN)).thenReturn(UNKNOWN);
+
+		Map<String, Ticker> tickers = new HashMap<>();
+		tickers.put(MARKET, new BittrexTicker(MARKET, ASK, BID, LAST));
+		List<Predicate<String>> filters = new ArrayList<>();
+		Mockito.when(exchange.getTickers(Mockito.any())).thenAnswer(invocation -> {
+			filters.add(invocation.getArgument(0));
+			return tickers;
+		});
+
+		assertThrows(ExchangeException.class, () -> service.getAsk(EXCHANGE, UNKNOWN, UNKNOWN));
+		int refreshes = filters.size();
+		assertThrows(ExchangeException.class, () -> service.getAsk(EXCHANGE, UNKNOWN, UNKNOWN));
+		assertEquals(refreshes, filters.size());
+
+		service.getAsk(EXCHANGE, MAINCOIN, ALTCOIN);
+		assertFalse(filters.get(filters.size() - 1).test(UNKNOWN));
+	}
+
 }
@@ -1,11 +1,13 @@
 package tvtrader.services;
 
-import com.squareup.okhttp.HttpUrl;
-import com.squareup.okhttp.mockwebserver.MockResponse;
-import com.squareup.okhttp.mockwebserver.MockWebServer;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
 import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,15 +15,34 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import tvtrader.exchange.CircuitOpenException;
 import tvtrader.exchange.ExchangeException;
+import tvtrader.exchange.SupportedExchange;
+import tvtrader.exchange.TransientExchangeException;
+import tvtrader.model.HttpClientConfiguration;
+import tvtrader.request.CircuitBreaker;
+import tvtrader.request.RateLimiter;
+import tvtrader.request.RequestBudget;
 import tvtrader.request.RequestHandler;
+import tvtrader.request.RetryPolicy;
 import tvtrader.request.Url;
+import tvtrader.utils.Futures;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.LogManager;
 
 import static org.junit.Assert.assertEquals;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class WebServiceTest {
 	private static final int INVALID_RESPONSE = 503;
@@ -31,6 +52,15 @@ public class WebServiceTest {
 	
 	@Mock
 	private RequestHandler requestHandler;
+
+	@Mock
+	private RateLimiter rateLimiter;
+
+	@Mock
+	private CircuitBreaker circuitBreaker;
+
+	@Mock
+	private RetryPolicy retryPolicy;
 	
 	@InjectMocks
 	private WebService service;
@@ -43,6 +73,8 @@ public class WebServiceTest {
 	@BeforeEach
 	void setup() {
 		MockitoAnnotations.initMocks(this);
+		Mockito.when(circuitBreaker.tryAcquire(Mockito.any())).thenReturn(true);
+		Mockito.when(circuitBreaker.getP95Latency(Mockito.any())).thenReturn(-1L);
 
 		Request.Builder requestBuilder = new Request.Builder();
 		requestBuilder.url("http://example.com");
@@ -55,7 +87,7 @@ public class WebServiceTest {
 	}
 	
 	@Test
-	void sendRequest_whenResponseIsSuccessful_shouldReturnMessageBody() throws Exception {
+	void sendRequestAsync_whenServerResponds_shouldCompleteWithMessageBody() throws Exception {
 		String expected = "Received call";
 		MockWebServer server = new MockWebServer();
 		server.enqueue(new MockResponse().setBody(expected));
@@ -65,34 +97,336 @@ public class WebServiceTest {
 		HttpUrl baseUrl = server.url("/handlerTest");
 		Url url = new Url(baseUrl.toString());
 		
-		Mockito.when(requestHandler.sendRequest(url)).thenCallRealMethod();
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(new RequestHandler().sendRequestAsync(url));
 		
-		String response = service.sendRequest(url);
+		String response = service.sendRequestAsync(url).get();
 		
 		assertEquals(expected, response);
 		
 		server.shutdown();	
 	}
-	
+
 	@Test
-	void sendRequest_whenResponseIsNotSuccessful_shouldThrowExchangeException() throws Exception {
+	void sendRequestAsync_whenServerIsUnavailable_shouldFailWithTransientExchangeException() throws Exception {
 		Url url = new Url("");
 		builder.code(INVALID_RESPONSE);
-		
-		Response response = builder.build();
-		
-		Mockito.when(requestHandler.sendRequest(url)).thenReturn(response);
-		
-		assertThrows(ExchangeException.class, () -> service.sendRequest(url));
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof TransientExchangeException);
 	}
-	
+
 	@Test
-	void sendRequest_whenRequestFails_shouldThrowExchangeException() throws Exception {
+	void sendRequestAsync_whenRequestIsRejected_shouldNotFailWithTransientExchangeException() throws Exception {
 		Url url = new Url("");
-		
-		Mockito.when(requestHandler.sendRequest(url)).thenThrow(IOException.class);
-		
-		assertThrows(ExchangeException.class, () -> service.sendRequest(url));
+		builder.code(400);
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof ExchangeException);
+		assertFalse(exception.getCause() instanceof TransientExchangeException);
 	}
-	
+
+	@Test
+	void sendRequest_whenResponseIsSuccessful_shouldReturnMessageBody() throws Exception {
+		Url url = new Url("");
+		RequestBudget budget = RequestBudget.refresh("BITTREX");
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Received call"));
+
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		assertEquals("Received call", service.sendRequest(url, budget));
+	}
+
+	@Test
+	void sendRequest_whenResponseIsInvalid_shouldThrowExchangeException() throws Exception {
+		Url url = new Url("");
+		RequestBudget budget = RequestBudget.refresh("BITTREX");
+		builder.code(INVALID_RESPONSE);
+
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		assertThrows(TransientExchangeException.class, () -> service.sendRequest(url, budget));
+	}
+
+	@Test
+	void sendRequestAsync_whenResponseIsSuccessful_shouldCompleteWithMessageBody() throws Exception {
+		Url url = new Url("");
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Received call"));
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		assertEquals("Received call", service.sendRequestAsync(url).get());
+	}
+
+	@Test
+	void sendRequestAsync_whenResponseIsNotSuccessful_shouldFailWithExchangeException() throws Exception {
+		Url url = new Url("");
+		builder.code(INVALID_RESPONSE);
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof ExchangeException);
+	}
+
+	@Test
+	void sendRequestAsync_whenRequestFails_shouldFailWithExchangeException() throws Exception {
+		Url url = new Url("");
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(Futures.failed(new IOException("Failed")));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof ExchangeException);
+	}
+
+	@Test
+	void sendRequestAsync_withBudget_shouldWaitForTheRateLimiter() throws Exception {
+		Url url = new Url("");
+		RequestBudget budget = RequestBudget.order("BITTREX", "key");
+		CompletableFuture<Void> acquired = new CompletableFuture<>();
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Received call"));
+
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(acquired);
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		AtomicInteger built = new AtomicInteger();
+		CompletableFuture<String> response = service.sendRequestAsync(() -> {
+			built.incrementAndGet();
+			return url;
+		}, budget);
+
+		assertFalse(response.isDone());
+		assertEquals(0, built.get());
+		Mockito.verify(requestHandler, Mockito.never()).sendRequestAsync(url);
+
+		acquired.complete(null);
+
+		assertEquals("Received call", response.get());
+	}
+
+	@Test
+	void sendRequestAsync_whenCircuitIsOpen_shouldFailWithoutSendingRequest() throws Exception {
+		Url url = new Url("http://example.com/endpoint?apikey=key");
+		Mockito.when(circuitBreaker.tryAcquire("http://example.com/endpoint")).thenReturn(false);
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof CircuitOpenException);
+		Mockito.verify(requestHandler, Mockito.never()).sendRequestAsync(url);
+	}
+
+	@Test
+	void sendRequestAsync_whenGivenUpWhileWaiting_shouldLeaveTheRateLimiter() {
+		RequestBudget budget = RequestBudget.order("BITTREX", "key");
+		CompletableFuture<Void> acquired = new CompletableFuture<>();
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(acquired);
+
+		service.sendRequestAsync(() -> new Url(""), budget).cancel(false);
+
+		assertTrue(acquired.isCancelled());
+	}
+
+	@Test
+	void sendRequestAsync_whenGivenUpAfterSending_shouldCancelTheCall() {
+		Url url = new Url("");
+		RequestBudget budget = RequestBudget.refresh("BITTREX", "key");
+		CompletableFuture<Response> call = new CompletableFuture<>();
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(call);
+
+		service.sendRequestAsync(() -> url, budget).cancel(false);
+
+		assertTrue(call.isCancelled());
+	}
+
+	@Test
+	void sendRequestAsync_whenResponseIsSuccessful_shouldRecordSuccess() throws Exception {
+		Url url = new Url("http://example.com/endpoint");
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Received call"));
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		service.sendRequestAsync(url).get();
+
+		Mockito.verify(circuitBreaker).onSuccess(Mockito.eq("http://example.com/endpoint"), Mockito.anyLong());
+	}
+
+	@Test
+	void sendRequestAsync_whenServerErrors_shouldRecordFailure() throws Exception {
+		Url url = new Url("http://example.com/endpoint");
+		builder.code(INVALID_RESPONSE);
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		assertThrows(ExecutionException.class, () -> service.sendRequestAsync(url).get());
+		Mockito.verify(circuitBreaker).onFailure("http://example.com/endpoint");
+	}
+
+	@Test
+	void sendRequestAsync_whenProbeCantBeSent_shouldRecordFailure() {
+		Url url = new Url("http://example.com/endpoint");
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenThrow(new IllegalArgumentException("Invalid url"));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof IllegalArgumentException);
+		Mockito.verify(circuitBreaker).onFailure("http://example.com/endpoint");
+	}
+
+	@Test
+	void streamRequestAsync_whenReaderThrows_shouldRecordFailure() {
+		Url url = new Url("http://example.com/endpoint");
+		RequestBudget budget = RequestBudget.refresh("BITTREX");
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Not json"));
+
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(completedFuture(builder.build()));
+
+		CompletableFuture<String> response = service.streamRequestAsync(url, budget, body -> {
+			throw new IllegalStateException("Not json");
+		});
+
+		ExecutionException exception = assertThrows(ExecutionException.class, response::get);
+		assertTrue(exception.getCause() instanceof IllegalStateException);
+		Mockito.verify(circuitBreaker).onFailure("http://example.com/endpoint");
+		Mockito.verify(circuitBreaker, Mockito.never()).onSuccess(Mockito.any(), Mockito.anyLong());
+	}
+
+	@Test
+	void sendRequestAsync_whenRequestFailsWithError_shouldFailWithTransientExchangeException() {
+		Url url = new Url("http://example.com/endpoint");
+
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(Futures.failed(new StackOverflowError()));
+
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> service.sendRequestAsync(url).get());
+		assertTrue(exception.getCause() instanceof TransientExchangeException);
+		Mockito.verify(circuitBreaker).onFailure("http://example.com/endpoint");
+	}
+
+	@Test
+	void sendRequestAsync_whenReadIsSlowerThanUsual_shouldReturnHedgedResponse() throws Exception {
+		Url url = new Url("http://example.com/endpoint");
+		RequestBudget budget = RequestBudget.refresh("BITTREX");
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+		configuration.setWarmUp(false);
+		configuration.setHedgeReads(true);
+		service.setUpClient(configuration);
+
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Hedged call"));
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(circuitBreaker.getP95Latency("http://example.com/endpoint")).thenReturn(1_000_000L);
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(new CompletableFuture<>())
+				.thenReturn(completedFuture(builder.build()));
+
+		assertEquals("Hedged call", service.sendRequestAsync(() -> url, budget).get(5, TimeUnit.SECONDS));
+		Mockito.verify(requestHandler, Mockito.times(2)).sendRequestAsync(url);
+	}
+
+	@Test
+	void sendRequestAsync_whenReadCompletesBeforeHedgeIsSent_shouldLeaveTheRateLimiter() throws Exception {
+		Url url = new Url("http://example.com/endpoint");
+		RequestBudget budget = RequestBudget.refresh("BITTREX");
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+		configuration.setWarmUp(false);
+		configuration.setHedgeReads(true);
+		service.setUpClient(configuration);
+
+		CompletableFuture<Void> hedgeAcquired = new CompletableFuture<>();
+		CompletableFuture<Response> call = new CompletableFuture<>();
+		builder.code(200);
+		builder.body(ResponseBody.create(MediaType.parse("text/plain"), "Received call"));
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null)).thenReturn(hedgeAcquired);
+		Mockito.when(circuitBreaker.getP95Latency("http://example.com/endpoint")).thenReturn(1_000_000L);
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(call);
+
+		CompletableFuture<String> response = service.sendRequestAsync(() -> url, budget);
+		Mockito.verify(rateLimiter, Mockito.timeout(5_000).times(2)).acquire(budget);
+
+		call.complete(builder.build());
+
+		assertEquals("Received call", response.get(5, TimeUnit.SECONDS));
+		// The hedger thread might still be handing the hedge its place.
+		assertThrows(CancellationException.class, () -> hedgeAcquired.get(5, TimeUnit.SECONDS));
+		Mockito.verify(requestHandler, Mockito.times(1)).sendRequestAsync(url);
+	}
+
+	@Test
+	void sendRequestAsync_whenSignedReadIsSlow_shouldNotHedge() throws Exception {
+		Url url = new Url("http://example.com/endpoint");
+		RequestBudget budget = RequestBudget.refresh("BITTREX", "key");
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+		configuration.setWarmUp(false);
+		configuration.setHedgeReads(true);
+		service.setUpClient(configuration);
+
+		Mockito.when(rateLimiter.acquire(budget)).thenReturn(completedFuture(null));
+		Mockito.when(circuitBreaker.getP95Latency("http://example.com/endpoint")).thenReturn(1_000_000L);
+		Mockito.when(requestHandler.sendRequestAsync(url)).thenReturn(new CompletableFuture<>());
+
+		CompletableFuture<String> response = service.sendRequestAsync(() -> url, budget);
+		Thread.sleep(50);
+
+		assertFalse(response.isDone());
+		Mockito.verify(requestHandler, Mockito.times(1)).sendRequestAsync(url);
+	}
+
+	@Test
+	void getRemainingBudget_shouldReturnTheBudgetOfTheRateLimiter() {
+		Map<String, Double> budget = Collections.singletonMap("BITTREX", 10.0);
+		Mockito.when(rateLimiter.getRemainingBudget()).thenReturn(budget);
+
+		assertEquals(budget, service.getRemainingBudget());
+	}
+
+	@Test
+	void getCircuitStates_shouldReturnTheStatesOfTheCircuitBreaker() {
+		Map<String, CircuitBreaker.State> states = Collections.singletonMap("http://example.com/endpoint",
+				CircuitBreaker.State.OPEN);
+		Mockito.when(circuitBreaker.getStates()).thenReturn(states);
+
+		assertEquals(states, service.getCircuitStates());
+	}
+
+	@Test
+	void setUpClient_whenWarmUpIsEnabled_shouldWarmUpSupportedExchanges() {
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+
+		service.setUpClient(configuration);
+
+		Mockito.verify(requestHandler).configure(configuration);
+		Mockito.verify(rateLimiter).configure(configuration.getRateLimitPerExchange(),
+				configuration.getRateLimitPerKey());
+		Mockito.verify(circuitBreaker).configure(configuration.getCircuitFailureRate(),
+				configuration.getCircuitSlowCall(), configuration.getCircuitOpenTime());
+		Mockito.verify(retryPolicy).configure(configuration.getRetryAttempts(), configuration.getRetryDeadline());
+		Mockito.verify(requestHandler).warmUp(Collections.singletonList(SupportedExchange.BITTREX.getHost()));
+	}
+
+	@Test
+	void setUpClient_whenWarmUpIsDisabled_shouldNotWarmUp() {
+		HttpClientConfiguration configuration = new HttpClientConfiguration();
+		configuration.setWarmUp(false);
+
+		service.setUpClient(configuration);
+
+		Mockito.verify(requestHandler, Mockito.never()).warmUp(Mockito.any());
+	}
+
 }
@@ -4,7 +4,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class HashingUtilityTest {
 	private String data = "The quick brown fox jumps over the lazy dog";
@@ -41,4 +48,36 @@ class HashingUtilityTest {
 		
 		assertEquals(actual, expected);
 	}
+	
+	@Test
+	void calculateSignature_whenKeyChanges_shouldUseNewKey() throws Exception  {
+		HashingUtility hasher = new HashingUtility(Encoding.SHA256);
+		String expected = hasher.calculateSignature(data, key);
+		
+		String other = hasher.calculateSignature(data, "otherkey");
+		String actual = hasher.calculateSignature(data, key);
+		
+		assertNotEquals(expected, other);
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	void calculateSignature_whenCalledFromOtherThreads_shouldCalculateSameSignature() throws Exception  {
+		HashingUtility hasher = new HashingUtility(Encoding.SHA512);
+		String expected = hasher.calculateSignature(data, key);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try {
+			List<Future<String>> signatures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				signatures.add(executor.submit(() -> hasher.calculateSignature(data, key)));
+			}
+			
+			for (Future<String> signature : signatures) {
+				assertEquals(expected, signature.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
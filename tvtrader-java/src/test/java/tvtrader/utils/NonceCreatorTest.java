@@ -3,6 +3,15 @@ package tvtrader.utils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class NonceCreatorTest {
@@ -11,13 +20,66 @@ class NonceCreatorTest {
 	synchronized static void startup() {
 
 	}
-	
+
 	@Test
 	void getNonce_whenNonceIsCalled_shouldAlwaysReturnAGreaterNumber() {
 		long firstNonce = NonceCreator.getNonce();
-		
+
 		long secondNonce = NonceCreator.getNonce();
-		
+
 		assertTrue(secondNonce > firstNonce);
 	}
+
+	@Test
+	void getNonce_whenCalledWithinTheSameMillisecond_shouldStillIncrement() {
+		long lastNonce = NonceCreator.getNonce("increment");
+
+		for (int i = 0; i < 10_000; i++) {
+			long nonce = NonceCreator.getNonce("increment");
+
+			assertTrue(nonce > lastNonce);
+			lastNonce = nonce;
+		}
+	}
+
+	@Test
+	void getNonce_whenCalledForOtherKey_shouldNotIncrementFromIt() {
+		for (int i = 0; i < 1_000; i++) {
+			NonceCreator.getNonce("busy");
+		}
+
+		long busyNonce = NonceCreator.getNonce("busy");
+		long quietNonce = NonceCreator.getNonce("quiet");
+
+		assertTrue(quietNonce < busyNonce);
+	}
+
+	@Test
+	void getNonce_whenCalledConcurrently_shouldNeverReturnTheSameNonce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<long[]>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					long[] nonces = new long[1_000];
+					for (int j = 0; j < nonces.length; j++) {
+						nonces[j] = NonceCreator.getNonce("concurrent");
+					}
+					return nonces;
+				}));
+			}
+
+			Set<Long> nonces = new HashSet<>();
+			for (Future<long[]> result : results) {
+				for (long nonce : result.get()) {
+					nonces.add(nonce);
+				}
+			}
+
+			assertEquals(4_000, nonces.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,101 @@
+package tvtrader.web.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import tvtrader.orders.OrderPipeline;
+import tvtrader.services.ConfigurationService;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebhookControllerTest {
+	private static final String SECRET = "secret";
+	private static final String BUY_LINE = "BUY_BITTREX_ACCOUNT_ETH";
+	private static final String SELL_LINE = "SELL_BITTREX_ACCOUNT_ETH";
+
+	@Mock
+	private ConfigurationService configService;
+	@Mock
+	private OrderPipeline orderPipeline;
+
+	@InjectMocks
+	private WebhookController controller;
+
+	@BeforeAll
+	synchronized static void startup() {
+
+	}
+
+	@BeforeEach
+	void setup() {
+		MockitoAnnotations.initMocks(this);
+		Mockito.when(configService.getWebhookSecret()).thenReturn(SECRET);
+		Mockito.when(orderPipeline.ingest(Mockito.anyList())).thenReturn(true);
+	}
+
+	@Test
+	void receiveAlert_whenSecretIsValid_shouldQueueOrderLines() {
+		ResponseEntity<String> response = controller.receiveAlert(BUY_LINE + "\n" + SELL_LINE + "\n" + BUY_LINE,
+				SECRET, null);
+
+		assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+		Mockito.verify(orderPipeline).ingest(Arrays.asList(BUY_LINE, SELL_LINE));
+	}
+
+	@Test
+	void receiveAlert_whenLinesAreSeparatedByCommasOrSemicolons_shouldQueueEveryLineOnce() {
+		controller.receiveAlert(BUY_LINE + ", " + SELL_LINE + ";" + BUY_LINE, SECRET, null);
+
+		Mockito.verify(orderPipeline).ingest(Arrays.asList(BUY_LINE, SELL_LINE));
+	}
+
+	@Test
+	void receiveAlert_whenSecretIsInHeader_shouldAccept() {
+		ResponseEntity<String> response = controller.receiveAlert(BUY_LINE, null, SECRET);
+
+		assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+	}
+
+	@Test
+	void receiveAlert_whenSecretIsInvalid_shouldReturnForbidden() {
+		ResponseEntity<String> response = controller.receiveAlert(BUY_LINE, "wrong", null);
+
+		assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+		Mockito.verifyZeroInteractions(orderPipeline);
+	}
+
+	@Test
+	void receiveAlert_whenNoSecretIsConfigured_shouldReturnForbidden() {
+		Mockito.when(configService.getWebhookSecret()).thenReturn(null);
+
+		ResponseEntity<String> response = controller.receiveAlert(BUY_LINE, null, null);
+
+		assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+	}
+
+	@Test
+	void receiveAlert_whenPipelineIsOverloaded_shouldReturnServiceUnavailable() {
+		Mockito.when(orderPipeline.ingest(Mockito.anyList())).thenReturn(false);
+
+		ResponseEntity<String> response = controller.receiveAlert(BUY_LINE, SECRET, null);
+
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+	}
+
+	@Test
+	void receiveAlert_whenBodyIsEmpty_shouldReturnBadRequest() {
+		ResponseEntity<String> response = controller.receiveAlert(" \n", SECRET, null);
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		Mockito.verifyZeroInteractions(orderPipeline);
+	}
+
+}